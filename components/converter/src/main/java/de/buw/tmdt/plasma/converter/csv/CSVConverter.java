@@ -1,18 +1,30 @@
 package de.buw.tmdt.plasma.converter.csv;
 
-import com.fasterxml.jackson.core.JsonProcessingException;
+import com.fasterxml.jackson.core.JsonGenerator;
 import com.fasterxml.jackson.databind.ObjectMapper;
-import com.fasterxml.jackson.databind.node.ObjectNode;
 import de.buw.tmdt.plasma.converter.ConversionException;
+import org.jetbrains.annotations.NotNull;
 
+import java.io.ByteArrayInputStream;
 import java.io.IOException;
-import java.io.Reader;
-import java.io.StringReader;
+import java.io.InputStream;
+import java.io.InputStreamReader;
+import java.io.StringWriter;
+import java.nio.charset.StandardCharsets;
+import java.util.AbstractList;
 import java.util.ArrayList;
+import java.util.LinkedHashMap;
 import java.util.List;
+import java.util.Map;
 
 public class CSVConverter {
 
+    /**
+     * The number of data rows the column types are inferred from.
+     * These rows are held in memory until the types are known, all following rows are written as they are read.
+     */
+    public static final int TYPE_SAMPLE_SIZE = 1000;
+
     private static final ObjectMapper objectMapper = new ObjectMapper();
 
     private CSVConverter() {
@@ -24,28 +36,124 @@ public class CSVConverter {
     }
 
     public static String convert(String input, char delimiter, int headerHeight) throws ConversionException {
-        Reader dataReader;
-        dataReader = new StringReader(input);
-        com.opencsv.CSVReader reader = new com.opencsv.CSVReader(dataReader, delimiter);
+        StringWriter result = new StringWriter();
+        try (JsonGenerator generator = objectMapper.getFactory().createGenerator(result)) {
+            convert(new ByteArrayInputStream(input.getBytes(StandardCharsets.UTF_8)), delimiter, headerHeight, false, generator);
+        } catch (IOException e) {
+            throw new ConversionException("Error writing content to combined JSON.", e);
+        }
+        return result.toString();
+    }
+
+    /**
+     * Converts a table into a JSON array with an object per data row, writing each row as soon as it is read.
+     * If the column types are inferred, the first {@value #TYPE_SAMPLE_SIZE} rows are buffered to determine the types,
+     * and numbers and booleans are written as such instead of strings. Cells that do not match the type of their column
+     * are still written as strings, empty cells of typed columns as null.
+     *
+     * @param input        the UTF-8 encoded table, not closed by this method
+     * @param delimiter    the separator of the cells
+     * @param headerHeight the number of header rows
+     * @param inferTypes   whether to infer the types of the columns
+     * @param generator    the generator the array is written to, neither flushed nor closed by this method
+     * @return the number of data rows written
+     * @throws ConversionException if the input cannot be read or the output cannot be written
+     */
+    public static long convert(@NotNull InputStream input, char delimiter, int headerHeight, boolean inferTypes, @NotNull JsonGenerator generator)
+            throws ConversionException {
+        com.opencsv.CSVReader reader = new com.opencsv.CSVReader(new InputStreamReader(input, StandardCharsets.UTF_8), delimiter);
         //Generate the tabular processor
         TabularProcessor tabularProcessor = new TabularProcessor(headerHeight);
-        List<ObjectNode> nodes = new ArrayList<>();
+        RowWriter rowWriter = null;
+        List<String[]> sample = new ArrayList<>();
+        long rows = 0;
+        String[] line;
         try {
-            String[] line;
+            generator.writeStartArray();
             while ((line = reader.readNext()) != null) {
-                ObjectNode jsonNode = tabularProcessor.processRow(line);
-                if (jsonNode != null) {
-                    nodes.add(jsonNode);
+                String[] row = tabularProcessor.validateRow(line);
+                if (row == null) {
+                    continue;
+                }
+                rows++;
+                if (rowWriter == null) {
+                    sample.add(row);
+                    if (inferTypes && sample.size() < TYPE_SAMPLE_SIZE) {
+                        continue;
+                    }
+                    rowWriter = new RowWriter(tabularProcessor.getKeys(), sample, inferTypes);
+                    for (String[] sampled : sample) {
+                        rowWriter.write(generator, sampled);
+                    }
+                    sample = null;
+                } else {
+                    rowWriter.write(generator, row);
                 }
             }
-            reader.close();
+            if (rowWriter == null && !sample.isEmpty()) {
+                rowWriter = new RowWriter(tabularProcessor.getKeys(), sample, inferTypes);
+                for (String[] sampled : sample) {
+                    rowWriter.write(generator, sampled);
+                }
+            }
+            generator.writeEndArray();
         } catch (IOException e) {
-            throw new ConversionException("Couldn't read the input for CSV conversion.", e);
+            throw new ConversionException("Couldn't convert the input of the CSV conversion.", e);
         }
-        try {
-            return objectMapper.writeValueAsString(nodes);
-        } catch (JsonProcessingException e) {
-            throw new ConversionException("Error writing content to combined JSON.", e);
+        return rows;
+    }
+
+    /**
+     * Writes the rows of a table as objects.
+     * Like an {@link com.fasterxml.jackson.databind.node.ObjectNode}, a key used by several columns appears once at its first
+     * position and holds the value of its last column.
+     */
+    private static final class RowWriter {
+
+        private final String[] fields;
+        private final int[] columns;
+        private final ColumnType[] types;
+
+        private RowWriter(List<String> keys, List<String[]> sample, boolean inferTypes) {
+            Map<String, Integer> lastColumn = new LinkedHashMap<>();
+            for (int i = 0; i < keys.size(); i++) {
+                lastColumn.put(keys.get(i), i);
+            }
+            fields = new String[lastColumn.size()];
+            columns = new int[lastColumn.size()];
+            int field = 0;
+            for (Map.Entry<String, Integer> entry : lastColumn.entrySet()) {
+                fields[field] = entry.getKey();
+                columns[field] = entry.getValue();
+                field++;
+            }
+            types = new ColumnType[keys.size()];
+            for (int i = 0; i < types.length; i++) {
+                types[i] = inferTypes ? ColumnType.infer(column(sample, i)) : ColumnType.STRING;
+            }
+        }
+
+        private static List<String> column(List<String[]> rows, int column) {
+            return new AbstractList<>() {
+                @Override
+                public String get(int index) {
+                    return rows.get(index)[column];
+                }
+
+                @Override
+                public int size() {
+                    return rows.size();
+                }
+            };
+        }
+
+        private void write(JsonGenerator generator, String[] row) throws IOException {
+            generator.writeStartObject();
+            for (int i = 0; i < fields.length; i++) {
+                generator.writeFieldName(fields[i]);
+                types[columns[i]].write(generator, row[columns[i]]);
+            }
+            generator.writeEndObject();
         }
     }
 }
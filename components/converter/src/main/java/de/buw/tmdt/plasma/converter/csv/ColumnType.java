@@ -0,0 +1,140 @@
+package de.buw.tmdt.plasma.converter.csv;
+
+import com.fasterxml.jackson.core.JsonGenerator;
+import org.jetbrains.annotations.NotNull;
+import org.jetbrains.annotations.Nullable;
+
+import java.io.IOException;
+import java.time.LocalDate;
+import java.time.LocalDateTime;
+import java.time.OffsetDateTime;
+import java.time.format.DateTimeParseException;
+import java.util.Collection;
+import java.util.Locale;
+import java.util.regex.Pattern;
+
+/**
+ * The type of the values of a column, used to write the cells of a table as typed JSON values.
+ * Empty cells carry no type information, they are written as null unless the column holds strings.
+ */
+public enum ColumnType {
+
+    /** whole numbers without leading zeros, written as JSON numbers */
+    INTEGER,
+    /** decimal numbers in JSON notation, written as JSON numbers */
+    DECIMAL,
+    /** true or false in any case, written as JSON booleans */
+    BOOLEAN,
+    /** ISO 8601 dates and date times, written as strings since JSON has no date type */
+    DATE,
+    /** anything else */
+    STRING;
+
+    private static final Pattern INTEGER_PATTERN = Pattern.compile("-?(0|[1-9][0-9]*)");
+    private static final Pattern DECIMAL_PATTERN = Pattern.compile("-?(0|[1-9][0-9]*)(\\.[0-9]+)?([eE][+-]?[0-9]+)?");
+
+    /**
+     * Determines the most specific type of a single value.
+     *
+     * @param value the value of a cell
+     * @return the type or null if the value is empty
+     */
+    @Nullable
+    public static ColumnType of(@NotNull String value) {
+        if (value.isEmpty()) {
+            return null;
+        }
+        if (INTEGER_PATTERN.matcher(value).matches()) {
+            return INTEGER;
+        }
+        if (DECIMAL_PATTERN.matcher(value).matches()) {
+            return DECIMAL;
+        }
+        if ("true".equalsIgnoreCase(value) || "false".equalsIgnoreCase(value)) {
+            return BOOLEAN;
+        }
+        if (isDate(value)) {
+            return DATE;
+        }
+        return STRING;
+    }
+
+    /**
+     * Determines the type that covers all given values of a column.
+     * Integers and decimals are combined into decimals, any other combination falls back to strings.
+     *
+     * @param values the values of the column
+     * @return the common type, strings if all values are empty
+     */
+    @NotNull
+    public static ColumnType infer(@NotNull Collection<String> values) {
+        ColumnType type = null;
+        for (String value : values) {
+            type = merge(type, of(value));
+            if (type == STRING) {
+                break;
+            }
+        }
+        return type == null ? STRING : type;
+    }
+
+    @Nullable
+    static ColumnType merge(@Nullable ColumnType a, @Nullable ColumnType b) {
+        if (a == null || a == b) {
+            return b;
+        }
+        if (b == null) {
+            return a;
+        }
+        if ((a == INTEGER && b == DECIMAL) || (a == DECIMAL && b == INTEGER)) {
+            return DECIMAL;
+        }
+        return STRING;
+    }
+
+    /**
+     * Writes a cell of a column of this type.
+     * Values that do not match the type, e.g. because the type was inferred from a sample of the column, are written as strings.
+     *
+     * @param generator the generator to write to
+     * @param value     the value of the cell
+     * @throws IOException if the value cannot be written
+     */
+    public void write(@NotNull JsonGenerator generator, @NotNull String value) throws IOException {
+        if (this == STRING) {
+            generator.writeString(value);
+            return;
+        }
+        ColumnType actual = of(value);
+        if (actual == null) {
+            generator.writeNull();
+        } else if (merge(this, actual) != this) {
+            generator.writeString(value);
+        } else if (actual == INTEGER || actual == DECIMAL) {
+            // the matched notation is valid JSON, so the number is written as is without losing precision
+            generator.writeNumber(value);
+        } else if (actual == BOOLEAN) {
+            generator.writeBoolean(Boolean.parseBoolean(value.toLowerCase(Locale.ROOT)));
+        } else {
+            generator.writeString(value);
+        }
+    }
+
+    private static boolean isDate(String value) {
+        if (value.length() < 10 || !Character.isDigit(value.charAt(0)) || value.charAt(4) != '-') {
+            return false;
+        }
+        try {
+            if (value.length() == 10) {
+                LocalDate.parse(value);
+            } else if (value.endsWith("Z") || value.indexOf('+', 10) > 0 || value.lastIndexOf('-') > 10) {
+                OffsetDateTime.parse(value);
+            } else {
+                LocalDateTime.parse(value);
+            }
+            return true;
+        } catch (DateTimeParseException e) {
+            return false;
+        }
+    }
+}
@@ -9,6 +9,7 @@ import org.slf4j.LoggerFactory;
 
 import java.io.Serializable;
 import java.util.ArrayList;
+import java.util.Collections;
 import java.util.List;
 import java.util.stream.Collectors;
 
@@ -32,6 +33,25 @@ public class TabularProcessor implements Serializable {
     }
 
     public ObjectNode processRow(@NotNull String[] line) {
+        String[] row = validateRow(line);
+        if (row == null) {
+            return null;
+        }
+        //Annotate a valid row with data
+        ObjectNode rowJsonObj = objectMapper.createObjectNode();
+        for (int i = 0; i < row.length; i++) {
+            rowJsonObj.put(possibleKeys.get(i), row[i]);
+        }
+        return rowJsonObj;
+    }
+
+    /**
+     * Consumes a line of the table without creating a JSON representation.
+     *
+     * @param line the cells of the line
+     * @return the line if it is a data row with the expected number of columns, null for header rows and invalid rows
+     */
+    public String[] validateRow(@NotNull String[] line) {
         //We check if we already have a header
         if (headerCreated.isSane()) {
             //If header height is 0 and we do not have any header yet, we generate a empty header
@@ -52,13 +72,7 @@ public class TabularProcessor implements Serializable {
 
         //Validate the data row
         if (columnAmount == line.length) {
-
-            //Annotate a valid row with data
-            ObjectNode rowJsonObj = objectMapper.createObjectNode();
-            for (int i = 0; i < line.length; i++) {
-                rowJsonObj.put(possibleKeys.get(i), line[i]);
-            }
-            return rowJsonObj;
+            return line;
         } else if (line.length - columnAmount > 0) {
             log.warn("A row of the incoming data had more columns than expected.");
         } else {
@@ -67,6 +81,13 @@ public class TabularProcessor implements Serializable {
         return null;
     }
 
+    /**
+     * The keys of the columns, only available once the header has been processed.
+     */
+    public List<String> getKeys() {
+        return Collections.unmodifiableList(possibleKeys);
+    }
+
     private void finishHeaderCalculation() {
         //Identify the column amount (based on the header)
         columnAmount = identifyColumnAmount(headerRows);
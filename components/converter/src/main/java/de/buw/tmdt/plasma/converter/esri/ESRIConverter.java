@@ -1,38 +1,52 @@
 package de.buw.tmdt.plasma.converter.esri;
 
+import com.fasterxml.jackson.core.JsonFactory;
+import com.fasterxml.jackson.core.JsonGenerator;
 import de.buw.tmdt.plasma.converter.ConversionException;
 import de.buw.tmdt.plasma.converter.geojson.GeoJSONConverter;
+import de.buw.tmdt.plasma.converter.geojson.format.Feature;
+import de.buw.tmdt.plasma.converter.geojson.format.Geometry;
+import de.buw.tmdt.plasma.converter.geojson.format.LineGeometry;
+import de.buw.tmdt.plasma.converter.geojson.format.MultiLineGeometry;
+import de.buw.tmdt.plasma.converter.geojson.format.MultiPointGeometry;
+import de.buw.tmdt.plasma.converter.geojson.format.MultiPolygonGeometry;
+import de.buw.tmdt.plasma.converter.geojson.format.PointGeometry;
+import de.buw.tmdt.plasma.converter.geojson.format.PolygonGeometry;
 import edu.umd.cs.findbugs.annotations.SuppressFBWarnings;
-import org.apache.commons.io.FileUtils;
-import org.apache.commons.io.FilenameUtils;
-import org.geotools.data.DataStoreFinder;
-import org.geotools.data.FeatureSource;
 import org.geotools.data.shapefile.ShapefileDataStore;
-import org.geotools.feature.FeatureCollection;
+import org.geotools.data.simple.SimpleFeatureIterator;
 import org.geotools.geojson.feature.FeatureJSON;
 import org.geotools.geojson.geom.GeometryJSON;
+import org.jetbrains.annotations.NotNull;
+import org.jetbrains.annotations.Nullable;
+import org.locationtech.jts.geom.LineString;
+import org.locationtech.jts.geom.MultiLineString;
+import org.locationtech.jts.geom.MultiPoint;
+import org.locationtech.jts.geom.MultiPolygon;
+import org.locationtech.jts.geom.Point;
+import org.locationtech.jts.geom.Polygon;
 import org.opengis.feature.simple.SimpleFeature;
-import org.opengis.feature.simple.SimpleFeatureType;
-import org.opengis.filter.Filter;
-import org.slf4j.Logger;
-import org.slf4j.LoggerFactory;
+import org.opengis.feature.type.AttributeDescriptor;
+import org.opengis.feature.type.GeometryDescriptor;
 
-import java.io.*;
+import java.io.IOException;
+import java.io.InputStream;
+import java.io.StringWriter;
 import java.nio.charset.Charset;
 import java.nio.charset.StandardCharsets;
+import java.nio.file.Files;
 import java.nio.file.Path;
-import java.util.HashMap;
+import java.util.ArrayList;
+import java.util.Date;
+import java.util.LinkedHashMap;
+import java.util.List;
 import java.util.Map;
-import java.util.UUID;
-import java.util.zip.ZipEntry;
-import java.util.zip.ZipInputStream;
 
 public class ESRIConverter {
 
-    private static final Logger log = LoggerFactory.getLogger(ESRIConverter.class);
-
     public static final int DECIMALS = 15;
-    public static final int BUFFER_SIZE = 1024;
+
+    private static final JsonFactory jsonFactory = new JsonFactory();
 
     private ESRIConverter() {
 
@@ -46,97 +60,146 @@ public class ESRIConverter {
         return convertToJSON(filePath, StandardCharsets.ISO_8859_1);
     }
 
+    @SuppressFBWarnings("PATH_TRAVERSAL_IN")
     public static String convertToJSON(Path filePath, Charset charset) throws ConversionException {
-        String geoJson = convertToGeoJSON(filePath, charset);
-        return GeoJSONConverter.convert(geoJson);
+        StringWriter result = new StringWriter();
+        try (InputStream inputStream = Files.newInputStream(filePath); JsonGenerator generator = jsonFactory.createGenerator(result)) {
+            convert(inputStream, charset, generator);
+        } catch (IOException e) {
+            throw new ConversionException("Failed to read shape file properly.", e);
+        }
+        return result.toString();
     }
 
     @SuppressFBWarnings("PATH_TRAVERSAL_IN")
     public static String convertToGeoJSON(Path filePath, Charset charset) throws ConversionException {
-        String tmpDirectory = "./" + UUID.randomUUID();
-        File destDir = null;
         ShapefileDataStore dataStore = null;
-        try (InputStream inputStream = new FileInputStream(filePath.toFile())) {
-
-            // Unzip File
-
-            destDir = new File(tmpDirectory);
-            if (!destDir.mkdirs()) {
-                log.warn("DestDir " + destDir.getAbsolutePath() + " could not be created!");
-            }
-            byte[] buffer = new byte[BUFFER_SIZE];
-            ZipInputStream zis = new ZipInputStream(inputStream);
-            ZipEntry zipEntry = zis.getNextEntry();
-            while (zipEntry != null) {
-                File newFile = newFile(destDir, zipEntry);
-                FileOutputStream fos = new FileOutputStream(newFile);
-                int len;
-                while ((len = zis.read(buffer)) > 0) {
-                    fos.write(buffer, 0, len);
-                }
-                fos.close();
-                zipEntry = zis.getNextEntry();
-            }
-            zis.closeEntry();
-            zis.close();
-
-            String[] shapeFiles = destDir.list((dir, name) -> name.endsWith(".shp"));
-
-            // Read Shape File
-            if (shapeFiles == null || shapeFiles.length == 0) {
-                throw new ConversionException("No valid *.shp file in ZIP archive.");
-            }
-            File file = new File(destDir, FilenameUtils.getName(shapeFiles[0]));
-            Map<String, Object> map = new HashMap<>();
-            map.put("url", file.toURI().toURL());
-
-            dataStore = (ShapefileDataStore) DataStoreFinder.getDataStore(map);
-
-            dataStore.setCharset(charset);
-            String typeName = dataStore.getTypeNames()[0];
-
-            FeatureSource<SimpleFeatureType, SimpleFeature> source =
-                    dataStore.getFeatureSource(typeName);
-            Filter filter = Filter.INCLUDE;
-
-            FeatureCollection<SimpleFeatureType, SimpleFeature> collection = source.getFeatures(filter);
+        try (InputStream inputStream = Files.newInputStream(filePath)) {
+            dataStore = ShapefileArchive.read(inputStream).openDataStore(charset);
 
             // Parse to GeoJSON
             StringWriter sw = new StringWriter();
             GeometryJSON geometryJSON = new GeometryJSON(DECIMALS);
             FeatureJSON fj = new FeatureJSON(geometryJSON);
 
-            fj.writeFeatureCollection(collection, sw);
-            dataStore.dispose();
+            fj.writeFeatureCollection(dataStore.getFeatureSource().getFeatures(), sw);
             return sw.toString();
         } catch (IOException e) {
             throw new ConversionException("Failed to read shape file properly.", e);
-
         } finally {
             if (dataStore != null) {
                 dataStore.dispose();
             }
+        }
+    }
 
-            if (destDir != null) {
-                try {
-                    FileUtils.deleteDirectory(destDir);
-                } catch (IOException e) {
-                    e.printStackTrace();
+    /**
+     * Converts a zipped shapefile into a JSON array of features like {@link GeoJSONConverter} does for GeoJSON.
+     * The shapefile is read from the archive into memory and each feature is written as soon as it is read.
+     *
+     * @param input     the ZIP archive, not closed by this method
+     * @param charset   the charset of the attributes
+     * @param generator the generator the array is written to, neither flushed nor closed by this method
+     * @return the number of features written
+     * @throws ConversionException if the archive contains no valid shapefile or the output cannot be written
+     */
+    public static long convert(@NotNull InputStream input, @NotNull Charset charset, @NotNull JsonGenerator generator) throws ConversionException {
+        ShapefileDataStore dataStore = null;
+        long features = 0;
+        try {
+            dataStore = ShapefileArchive.read(input).openDataStore(charset);
+            generator.writeStartArray();
+            try (SimpleFeatureIterator iterator = dataStore.getFeatureSource().getFeatures().features()) {
+                while (iterator.hasNext()) {
+                    // shapefiles have neither a collection name nor a CRS in the GeoJSON sense
+                    GeoJSONConverter.writeFeature(generator, toFeature(iterator.next()), null, null);
+                    features++;
                 }
+            }
+            generator.writeEndArray();
+        } catch (IOException e) {
+            throw new ConversionException("Failed to read shape file properly.", e);
+        } finally {
+            if (dataStore != null) {
+                dataStore.dispose();
+            }
+        }
+        return features;
+    }
+
+    private static Feature toFeature(SimpleFeature feature) throws ConversionException {
+        Map<String, String> properties = new LinkedHashMap<>();
+        List<AttributeDescriptor> descriptors = feature.getFeatureType().getAttributeDescriptors();
+        for (int i = 0; i < descriptors.size(); i++) {
+            AttributeDescriptor descriptor = descriptors.get(i);
+            if (!(descriptor instanceof GeometryDescriptor)) {
+                properties.put(descriptor.getLocalName(), toProperty(feature.getAttribute(i)));
+            }
+        }
+        return new Feature("Feature", toGeometry((org.locationtech.jts.geom.Geometry) feature.getDefaultGeometry()), properties);
+    }
+
+    @Nullable
+    private static String toProperty(@Nullable Object value) {
+        if (value == null) {
+            return null;
+        }
+        if (value instanceof Date) {
+            return ((Date) value).toInstant().toString();
+        }
+        return value.toString();
+    }
 
+    @Nullable
+    private static Geometry toGeometry(@Nullable org.locationtech.jts.geom.Geometry geometry) throws ConversionException {
+        if (geometry == null || geometry.isEmpty()) {
+            return null;
+        }
+        if (geometry instanceof Point) {
+            return new PointGeometry("Point", toPosition(geometry.getCoordinate()));
+        } else if (geometry instanceof LineString) {
+            return new LineGeometry("LineString", toPositions(geometry.getCoordinates()));
+        } else if (geometry instanceof Polygon) {
+            return new PolygonGeometry("Polygon", toRings((Polygon) geometry));
+        } else if (geometry instanceof MultiPoint) {
+            return new MultiPointGeometry("MultiPoint", toPositions(geometry.getCoordinates()));
+        } else if (geometry instanceof MultiLineString) {
+            List<List<List<Double>>> lines = new ArrayList<>();
+            for (int i = 0; i < geometry.getNumGeometries(); i++) {
+                lines.add(toPositions(geometry.getGeometryN(i).getCoordinates()));
             }
+            return new MultiLineGeometry("MultiLineString", lines);
+        } else if (geometry instanceof MultiPolygon) {
+            List<List<List<List<Double>>>> polygons = new ArrayList<>();
+            for (int i = 0; i < geometry.getNumGeometries(); i++) {
+                polygons.add(toRings((Polygon) geometry.getGeometryN(i)));
+            }
+            return new MultiPolygonGeometry("MultiPolygon", polygons);
+        }
+        throw new ConversionException("Unsupported geometry type " + geometry.getGeometryType());
+    }
 
+    private static List<List<List<Double>>> toRings(Polygon polygon) {
+        List<List<List<Double>>> rings = new ArrayList<>(polygon.getNumInteriorRing() + 1);
+        rings.add(toPositions(polygon.getExteriorRing().getCoordinates()));
+        for (int i = 0; i < polygon.getNumInteriorRing(); i++) {
+            rings.add(toPositions(polygon.getInteriorRingN(i).getCoordinates()));
         }
+        return rings;
     }
 
-    private static File newFile(File destinationDir, ZipEntry zipEntry) throws IOException {
-        File destFile = new File(destinationDir, FilenameUtils.getName(zipEntry.getName()));
-        String destDirPath = destinationDir.getCanonicalPath();
-        String destFilePath = destFile.getCanonicalPath();
+    private static List<List<Double>> toPositions(org.locationtech.jts.geom.Coordinate[] coordinates) {
+        List<List<Double>> positions = new ArrayList<>(coordinates.length);
+        for (org.locationtech.jts.geom.Coordinate coordinate : coordinates) {
+            positions.add(toPosition(coordinate));
+        }
+        return positions;
+    }
 
-        if (!destFilePath.startsWith(destDirPath + File.separator)) {
-            throw new IOException("Entry is outside of the target dir: " + zipEntry.getName());
+    private static List<Double> toPosition(org.locationtech.jts.geom.Coordinate coordinate) {
+        if (Double.isNaN(coordinate.getZ())) {
+            return List.of(coordinate.getX(), coordinate.getY());
         }
-        return destFile;
+        return List.of(coordinate.getX(), coordinate.getY(), coordinate.getZ());
     }
 }
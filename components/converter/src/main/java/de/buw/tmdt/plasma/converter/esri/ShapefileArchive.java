@@ -0,0 +1,110 @@
+package de.buw.tmdt.plasma.converter.esri;
+
+import de.buw.tmdt.plasma.converter.ConversionException;
+import org.apache.commons.io.FilenameUtils;
+import org.apache.commons.io.IOUtils;
+import org.geotools.data.shapefile.ShapefileDataStore;
+import org.jetbrains.annotations.NotNull;
+
+import java.io.ByteArrayInputStream;
+import java.io.FileNotFoundException;
+import java.io.IOException;
+import java.io.InputStream;
+import java.net.URL;
+import java.net.URLConnection;
+import java.net.URLStreamHandler;
+import java.nio.charset.Charset;
+import java.util.HashMap;
+import java.util.Locale;
+import java.util.Map;
+import java.util.Set;
+import java.util.zip.ZipEntry;
+import java.util.zip.ZipInputStream;
+
+/**
+ * The components of a shapefile read from a ZIP archive into memory.
+ * The data store reads them through URLs of a handler that is private to the archive, so nothing is extracted to disk.
+ */
+final class ShapefileArchive {
+
+    private static final String PROTOCOL = "shapefile";
+    private static final Set<String> COMPONENTS = Set.of("shp", "shx", "dbf", "prj", "cpg");
+
+    private final Map<String, byte[]> files = new HashMap<>();
+    private final URLStreamHandler handler = new URLStreamHandler() {
+        @Override
+        protected URLConnection openConnection(URL url) throws IOException {
+            byte[] content = files.get(FilenameUtils.getName(url.getPath()).toLowerCase(Locale.ROOT));
+            if (content == null) {
+                throw new FileNotFoundException(url.toExternalForm());
+            }
+            return new URLConnection(url) {
+                @Override
+                public void connect() {
+                    // nothing to connect to
+                }
+
+                @Override
+                public InputStream getInputStream() {
+                    return new ByteArrayInputStream(content);
+                }
+
+                @Override
+                public long getContentLengthLong() {
+                    return content.length;
+                }
+            };
+        }
+    };
+    private String shapeFile;
+
+    private ShapefileArchive() {
+
+    }
+
+    /**
+     * Reads the components of the first shapefile of an archive, other entries are skipped.
+     *
+     * @param input the ZIP archive, not closed by this method
+     * @return the components
+     * @throws IOException         if the archive cannot be read
+     * @throws ConversionException if the archive contains no shapefile
+     */
+    @NotNull
+    static ShapefileArchive read(@NotNull InputStream input) throws IOException, ConversionException {
+        ShapefileArchive archive = new ShapefileArchive();
+        ZipInputStream zis = new ZipInputStream(input);
+        ZipEntry zipEntry;
+        while ((zipEntry = zis.getNextEntry()) != null) {
+            String name = FilenameUtils.getName(zipEntry.getName());
+            String extension = FilenameUtils.getExtension(name).toLowerCase(Locale.ROOT);
+            if (zipEntry.isDirectory() || !COMPONENTS.contains(extension)) {
+                continue;
+            }
+            if ("shp".equals(extension) && archive.shapeFile == null) {
+                archive.shapeFile = name;
+            }
+            archive.files.put(name.toLowerCase(Locale.ROOT), IOUtils.toByteArray(zis));
+        }
+        if (archive.shapeFile == null) {
+            throw new ConversionException("No valid *.shp file in ZIP archive.");
+        }
+        return archive;
+    }
+
+    /**
+     * Opens a data store on the shapefile, which has to be disposed by the caller.
+     *
+     * @param charset the charset of the attributes
+     * @return the data store
+     */
+    @NotNull
+    ShapefileDataStore openDataStore(@NotNull Charset charset) throws IOException {
+        // the data store derives the URLs of the other components from this one, they keep its handler
+        ShapefileDataStore dataStore = new ShapefileDataStore(new URL(PROTOCOL, null, -1, "/" + shapeFile, handler));
+        dataStore.setMemoryMapped(false);
+        dataStore.setIndexed(false);
+        dataStore.setCharset(charset);
+        return dataStore;
+    }
+}
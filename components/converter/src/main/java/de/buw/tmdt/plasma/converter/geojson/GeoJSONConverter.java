@@ -1,41 +1,143 @@
 package de.buw.tmdt.plasma.converter.geojson;
 
+import com.fasterxml.jackson.core.JsonGenerator;
+import com.fasterxml.jackson.core.JsonParseException;
+import com.fasterxml.jackson.core.JsonParser;
 import com.fasterxml.jackson.core.JsonProcessingException;
+import com.fasterxml.jackson.core.JsonToken;
 import com.fasterxml.jackson.databind.ObjectMapper;
+import com.fasterxml.jackson.databind.ObjectReader;
+import com.fasterxml.jackson.databind.ObjectWriter;
+import com.fasterxml.jackson.databind.SerializationFeature;
 import de.buw.tmdt.plasma.converter.ConversionException;
 import de.buw.tmdt.plasma.converter.geojson.format.Crs;
 import de.buw.tmdt.plasma.converter.geojson.format.EnrichedFeature;
 import de.buw.tmdt.plasma.converter.geojson.format.Feature;
-import de.buw.tmdt.plasma.converter.geojson.format.FeatureCollection;
+import org.jetbrains.annotations.NotNull;
+import org.jetbrains.annotations.Nullable;
 
-import java.util.ArrayList;
-import java.util.List;
+import java.io.ByteArrayInputStream;
+import java.io.IOException;
+import java.io.InputStream;
+import java.io.StringWriter;
+import java.nio.charset.StandardCharsets;
 
 public class GeoJSONConverter {
+    private static final String NAME_PROPERTY = "name";
+    private static final String FEATURES_PROPERTY = "features";
+    private static final String CRS_PROPERTY = "crs";
+
     private static ObjectMapper mapper = new ObjectMapper();
+    private static final ObjectReader featureReader = mapper.readerFor(Feature.class);
+    private static final ObjectReader crsReader = mapper.readerFor(Crs.class);
+    // the generator is flushed by the caller, not after every feature
+    private static final ObjectWriter featureWriter = mapper.writerFor(EnrichedFeature.class).without(SerializationFeature.FLUSH_AFTER_WRITE_VALUE);
 
     private GeoJSONConverter() {
 
     }
 
     public static String convert(String input) throws ConversionException {
-        List<EnrichedFeature> features = new ArrayList<>();
-        try {
-            FeatureCollection fc = mapper.readValue(input, FeatureCollection.class);
-            String collectionName = fc.getName();
-            Crs crs = fc.getCrs();
-            for (Feature f : fc.getFeatures()) {
-                EnrichedFeature ef = new EnrichedFeature(f, collectionName, crs);
-
-                features.add(ef);
+        StringWriter result = new StringWriter();
+        try (JsonGenerator generator = mapper.getFactory().createGenerator(result)) {
+            convert(new ByteArrayInputStream(input.getBytes(StandardCharsets.UTF_8)), generator);
+        } catch (IOException e) {
+            throw new ConversionException("Error writing final features.", e);
+        }
+        return result.toString();
+    }
+
+    /**
+     * Converts a feature collection into a JSON array of {@link EnrichedFeature}s in a single pass, reading and writing one feature at a time.
+     * The name and the CRS of the collection are added to every feature if they are given before the features, as common GeoJSON writers do.
+     * Otherwise they are null, RFC 7946 does not define these members at all.
+     *
+     * @param input     the UTF-8 encoded feature collection, closed once it has been read
+     * @param generator the generator the array is written to, neither flushed nor closed by this method
+     * @return the number of features written
+     * @throws ConversionException if the input is no valid GeoJSON or cannot be read or the output cannot be written
+     */
+    public static long convert(@NotNull InputStream input, @NotNull JsonGenerator generator) throws ConversionException {
+        try (JsonParser parser = mapper.getFactory().createParser(input)) {
+            Header header = new Header();
+            if (!header.readUntilFeatures(parser)) {
+                throw new ConversionException("Could not read GeoJson. The feature collection has no features.");
+            }
+            long features = writeFeatures(parser, header, generator);
+            // the members following the features are only checked to be valid JSON
+            while (parser.nextToken() == JsonToken.FIELD_NAME) {
+                parser.nextToken();
+                parser.skipChildren();
             }
+            if (parser.currentToken() != JsonToken.END_OBJECT) {
+                throw new JsonParseException(parser, "The feature collection is not closed.");
+            }
+            return features;
         } catch (JsonProcessingException e) {
             throw new ConversionException("Could not read GeoJson. Please verify that file is valid GeoJSON.", e);
-        }
-        try {
-            return mapper.writeValueAsString(features);
-        } catch (JsonProcessingException e) {
+        } catch (IOException e) {
             throw new ConversionException("Error writing final features.", e);
         }
     }
+
+    private static long writeFeatures(JsonParser parser, Header header, JsonGenerator generator) throws IOException {
+        if (parser.currentToken() != JsonToken.START_ARRAY) {
+            throw new JsonParseException(parser, "The features of the collection are no array.");
+        }
+        long features = 0;
+        generator.writeStartArray();
+        while (parser.nextToken() != JsonToken.END_ARRAY) {
+            writeFeature(generator, featureReader.readValue(parser), header.name, header.crs);
+            features++;
+        }
+        generator.writeEndArray();
+        return features;
+    }
+
+    /**
+     * Writes a feature enriched by the metadata of its collection.
+     *
+     * @param generator      the generator to write to
+     * @param feature        the feature
+     * @param collectionName the name of the collection of the feature
+     * @param crs            the CRS of the collection of the feature
+     * @throws IOException if the feature cannot be written
+     */
+    public static void writeFeature(@NotNull JsonGenerator generator, @NotNull Feature feature, @Nullable String collectionName, @Nullable Crs crs)
+            throws IOException {
+        featureWriter.writeValue(generator, new EnrichedFeature(feature, collectionName, crs));
+    }
+
+    /**
+     * The members of the feature collection that are added to each feature.
+     */
+    private static final class Header {
+        private String name;
+        private Crs crs;
+
+        /**
+         * Reads the members of the collection up to the features or the end of the collection.
+         *
+         * @return true if the parser points to the start of the features, false if the collection has been read completely
+         */
+        private boolean readUntilFeatures(JsonParser parser) throws IOException {
+            if (parser.currentToken() == null && parser.nextToken() != JsonToken.START_OBJECT) {
+                throw new JsonParseException(parser, "The GeoJSON is no feature collection.");
+            }
+            while (parser.nextToken() == JsonToken.FIELD_NAME) {
+                String field = parser.getCurrentName();
+                parser.nextToken();
+                if (FEATURES_PROPERTY.equals(field)) {
+                    return true;
+                } else if (NAME_PROPERTY.equals(field)) {
+                    name = parser.getValueAsString();
+                } else if (CRS_PROPERTY.equals(field)) {
+                    crs = crsReader.readValue(parser);
+                } else {
+                    parser.skipChildren();
+                }
+            }
+            return false;
+        }
+    }
 }
@@ -1,12 +1,17 @@
 package de.buw.tmdt.plasma.converter.csv;
 
+import com.fasterxml.jackson.core.JsonFactory;
+import com.fasterxml.jackson.core.JsonGenerator;
 import de.buw.tmdt.plasma.converter.ConversionException;
 import junit.framework.TestCase;
 import org.apache.commons.io.IOUtils;
 
+import java.io.ByteArrayInputStream;
 import java.io.IOException;
 import java.io.InputStream;
+import java.io.StringWriter;
 import java.nio.charset.StandardCharsets;
+import java.util.List;
 
 public class CSVConverterTest extends TestCase {
 
@@ -82,5 +87,46 @@ public class CSVConverterTest extends TestCase {
         assertEquals(expected, result);
     }
 
+    public void testInferTypes() throws IOException, ConversionException {
+        String prefix = "csv/typedColumns/";
+        InputStream is = CSVConverter.class.getClassLoader().getResourceAsStream(prefix + "test.csv");
+        assertNotNull(is);
+        StringWriter result = new StringWriter();
+        try (JsonGenerator generator = new JsonFactory().createGenerator(result)) {
+            assertEquals(3, CSVConverter.convert(is, ',', 1, true, generator));
+        }
+        is = CSVConverter.class.getClassLoader().getResourceAsStream(prefix + "result.json");
+        assertNotNull(is);
+        String expected = IOUtils.toString(is, StandardCharsets.UTF_8);
+        assertEquals(expected, result.toString());
+    }
+
+    public void testInferTypesBeyondSample() throws IOException, ConversionException {
+        StringBuilder input = new StringBuilder("number\n");
+        for (int i = 0; i < CSVConverter.TYPE_SAMPLE_SIZE; i++) {
+            input.append(i).append('\n');
+        }
+        input.append("n/a\n");
+        StringWriter result = new StringWriter();
+        try (JsonGenerator generator = new JsonFactory().createGenerator(result)) {
+            long rows = CSVConverter.convert(new ByteArrayInputStream(input.toString().getBytes(StandardCharsets.UTF_8)), ',', 1, true, generator);
+            assertEquals(CSVConverter.TYPE_SAMPLE_SIZE + 1, rows);
+        }
+        assertTrue(result.toString().startsWith("[{\"number\":0},{\"number\":1},"));
+        assertTrue(result.toString().endsWith("{\"number\":999},{\"number\":\"n/a\"}]"));
+    }
 
-}
\ No newline at end of file
+    public void testColumnType() {
+        assertEquals(ColumnType.INTEGER, ColumnType.of("-42"));
+        assertEquals(ColumnType.DECIMAL, ColumnType.of("1.5e10"));
+        assertEquals(ColumnType.STRING, ColumnType.of("007"));
+        assertEquals(ColumnType.STRING, ColumnType.of("1."));
+        assertEquals(ColumnType.BOOLEAN, ColumnType.of("True"));
+        assertEquals(ColumnType.DATE, ColumnType.of("2021-12-31"));
+        assertEquals(ColumnType.STRING, ColumnType.of("2021-13-31"));
+        assertNull(ColumnType.of(""));
+        assertEquals(ColumnType.DECIMAL, ColumnType.infer(List.of("1", "", "2.5")));
+        assertEquals(ColumnType.STRING, ColumnType.infer(List.of("1", "true")));
+        assertEquals(ColumnType.STRING, ColumnType.infer(List.of("", "")));
+    }
+}
@@ -1,5 +1,6 @@
 package de.buw.tmdt.plasma.converter.esri;
 
+import com.fasterxml.jackson.core.JsonGenerator;
 import com.fasterxml.jackson.databind.JsonNode;
 import com.fasterxml.jackson.databind.ObjectMapper;
 import de.buw.tmdt.plasma.converter.ConversionException;
@@ -7,15 +8,21 @@ import org.apache.commons.io.IOUtils;
 import org.junit.jupiter.api.BeforeEach;
 import org.junit.jupiter.api.Test;
 
+import java.io.ByteArrayInputStream;
+import java.io.ByteArrayOutputStream;
 import java.io.IOException;
 import java.io.InputStream;
+import java.io.StringWriter;
 import java.net.URISyntaxException;
 import java.net.URL;
 import java.nio.charset.StandardCharsets;
 import java.nio.file.Path;
+import java.util.zip.ZipEntry;
+import java.util.zip.ZipOutputStream;
 
 import static org.junit.jupiter.api.Assertions.assertEquals;
 import static org.junit.jupiter.api.Assertions.assertNotNull;
+import static org.junit.jupiter.api.Assertions.assertThrows;
 
 public class ESRIConverterTest {
 
@@ -51,5 +58,28 @@ public class ESRIConverterTest {
         assertEquals(jsonFileExpected, jsonFileActual);
     }
 
+    @Test
+    public void testConvertStream() throws ConversionException, IOException {
+        StringWriter result = new StringWriter();
+        try (InputStream input = ESRIConverter.class.getClassLoader().getResourceAsStream(INPUT_SHAPE_FILE_ZIP);
+             JsonGenerator generator = mapper.getFactory().createGenerator(result)) {
+            assertNotNull(input);
+            assertEquals(1, ESRIConverter.convert(input, StandardCharsets.ISO_8859_1, generator));
+        }
+        InputStream inputStream = ESRIConverter.class.getClassLoader().getResourceAsStream(EXPECTED_OUTPUT_FILE);
+        assertNotNull(inputStream);
+        assertEquals(mapper.readTree(inputStream), mapper.readTree(result.toString()));
+    }
 
-}
\ No newline at end of file
+    @Test
+    public void testArchiveWithoutShapefile() throws IOException {
+        ByteArrayOutputStream archive = new ByteArrayOutputStream();
+        try (ZipOutputStream zip = new ZipOutputStream(archive)) {
+            zip.putNextEntry(new ZipEntry("readme.txt"));
+            zip.write("no shapes".getBytes(StandardCharsets.UTF_8));
+            zip.closeEntry();
+        }
+        assertThrows(ConversionException.class, () -> ESRIConverter.convert(new ByteArrayInputStream(archive.toByteArray()),
+                StandardCharsets.ISO_8859_1, mapper.getFactory().createGenerator(new StringWriter())));
+    }
+}
@@ -1,16 +1,23 @@
 package de.buw.tmdt.plasma.converter.geojson;
 
+import com.fasterxml.jackson.core.JsonGenerator;
+import com.fasterxml.jackson.databind.JsonNode;
 import com.fasterxml.jackson.databind.ObjectMapper;
 import de.buw.tmdt.plasma.converter.ConversionException;
 import junit.framework.TestCase;
 import org.apache.commons.io.IOUtils;
 
+import java.io.ByteArrayInputStream;
 import java.io.IOException;
 import java.io.InputStream;
+import java.io.StringWriter;
 import java.nio.charset.StandardCharsets;
 
 public class GeoJSONConverterTest extends TestCase {
 
+    private static final String FEATURE = "{\"type\":\"Feature\",\"geometry\":{\"type\":\"Point\",\"coordinates\":[7.27,51.27]},"
+            + "\"properties\":{\"key\":\"value\"}}";
+
     ObjectMapper mapper = new ObjectMapper();
 
     public void testGeoJson() throws IOException, ConversionException {
@@ -28,4 +35,50 @@ public class GeoJSONConverterTest extends TestCase {
                 .replace("\t", "");
         assertEquals(mapper.readTree(expectedString), mapper.readTree(resultString));
     }
+
+    public void testStreamFeatures() throws IOException, ConversionException {
+        String input = "{\"type\":\"FeatureCollection\",\"name\":\"c\",\"crs\":{\"type\":\"name\",\"properties\":{\"name\":\"EPSG:4326\"}},"
+                + "\"features\":[" + FEATURE + "," + FEATURE + "]}";
+        StringWriter result = new StringWriter();
+        try (JsonGenerator generator = mapper.getFactory().createGenerator(result)) {
+            long features = GeoJSONConverter.convert(new ByteArrayInputStream(input.getBytes(StandardCharsets.UTF_8)), generator);
+            assertEquals(2, features);
+        }
+        JsonNode feature = mapper.readTree(result.toString()).get(1);
+        assertEquals("c", feature.get("collectionName").asText());
+        assertEquals("EPSG:4326", feature.get("crs").get("properties").get("name").asText());
+    }
+
+    public void testCollectionWithoutCrs() throws IOException, ConversionException {
+        String input = "{\"type\":\"FeatureCollection\",\"name\":\"c\",\"features\":[" + FEATURE + "],\"bbox\":[0,0,1,1]}";
+        JsonNode feature = mapper.readTree(GeoJSONConverter.convert(input)).get(0);
+        assertEquals("c", feature.get("collectionName").asText());
+        assertTrue(feature.get("crs").isNull());
+    }
+
+    public void testMetadataAfterFeatures() throws IOException, ConversionException {
+        // the features are converted before the members following them are read
+        String input = "{\"type\":\"FeatureCollection\",\"features\":[" + FEATURE + "],\"name\":\"c\"}";
+        JsonNode feature = mapper.readTree(GeoJSONConverter.convert(input)).get(0);
+        assertTrue(feature.get("collectionName").isNull());
+        assertTrue(feature.get("crs").isNull());
+    }
+
+    public void testTruncatedCollection() {
+        try {
+            GeoJSONConverter.convert("{\"type\":\"FeatureCollection\",\"features\":[" + FEATURE + "],\"name\":");
+            fail();
+        } catch (ConversionException expected) {
+            // expected
+        }
+    }
+
+    public void testMissingFeatures() {
+        try {
+            GeoJSONConverter.convert("{\"type\":\"FeatureCollection\",\"name\":\"c\"}");
+            fail();
+        } catch (ConversionException expected) {
+            // expected
+        }
+    }
 }
@@ -0,0 +1,89 @@
+package de.buw.tmdt.plasma.services.dps.benchmark;
+
+import com.fasterxml.jackson.databind.JsonNode;
+import de.buw.tmdt.plasma.datamodel.CombinedModel;
+import de.buw.tmdt.plasma.services.dps.conversion.ConversionException;
+import de.buw.tmdt.plasma.services.dps.conversion.rdf.ConversionPlan;
+import de.buw.tmdt.plasma.services.dps.conversion.rdf.RDFConverter;
+import org.apache.jena.graph.Triple;
+import org.apache.jena.rdf.model.Model;
+import org.apache.jena.riot.system.StreamRDF;
+import org.apache.jena.riot.system.StreamRDFBase;
+import org.openjdk.jmh.annotations.*;
+import org.openjdk.jmh.infra.Blackhole;
+
+import java.util.List;
+import java.util.concurrent.TimeUnit;
+
+/**
+ * Throughput of the conversion of single records by the {@link RDFConverter}.
+ * Every invocation converts one record, so running with {@code -prof gc} reports the allocations per record as
+ * {@code gc.alloc.rate.norm}.
+ */
+@State(Scope.Thread)
+@BenchmarkMode(Mode.Throughput)
+@OutputTimeUnit(TimeUnit.SECONDS)
+@Warmup(iterations = 3, time = 2)
+@Measurement(iterations = 5, time = 2)
+@Fork(1)
+public class RDFConverterBenchmark {
+
+    private static final int RECORDS = 1000;
+
+    @Param({"FLAT", "NESTED", "ARRAY"})
+    public SyntheticDataset.Shape shape;
+
+    @Param({"4", "32"})
+    public int size;
+
+    private CombinedModel model;
+    private ConversionPlan plan;
+    private RDFConverter converter;
+    private List<JsonNode> records;
+    private int next = 0;
+
+    @Setup
+    public void setup() throws ConversionException {
+        SyntheticDataset dataset = new SyntheticDataset(shape, size);
+        model = dataset.getModel();
+        plan = ConversionPlan.compile(model);
+        converter = new RDFConverter(SyntheticDataset.getPrefixes());
+        records = dataset.createRecords(RECORDS);
+    }
+
+    private JsonNode nextRecord() {
+        JsonNode record = records.get(next);
+        next = (next + 1) % RECORDS;
+        return record;
+    }
+
+    /**
+     * Converts a record into a model, compiling the conversion plan for each record.
+     */
+    @Benchmark
+    public Model convertToRDF() throws ConversionException {
+        return converter.convertToRDF(model, nextRecord());
+    }
+
+    /**
+     * Converts a record into a model with a precompiled plan.
+     */
+    @Benchmark
+    public Model convertToRDFCompiled() throws ConversionException {
+        return converter.convertToRDF(plan, nextRecord());
+    }
+
+    /**
+     * Converts a record and streams the triples without collecting them, as done by the conversion pipeline.
+     */
+    @Benchmark
+    public void convertStreamed(Blackhole blackhole) throws ConversionException {
+        StreamRDF sink = new StreamRDFBase() {
+            @Override
+            public void triple(Triple triple) {
+                blackhole.consume(triple);
+            }
+        };
+        converter.convert(plan, nextRecord(), sink);
+    }
+}
@@ -0,0 +1,78 @@
+package de.buw.tmdt.plasma.services.dps.benchmark;
+
+import com.fasterxml.jackson.databind.JsonNode;
+import de.buw.tmdt.plasma.services.dps.conversion.ConversionException;
+import de.buw.tmdt.plasma.services.dps.conversion.rdf.ConversionPlan;
+import de.buw.tmdt.plasma.services.dps.conversion.rdf.RDFConverter;
+import de.buw.tmdt.plasma.services.dps.conversion.rdf.RDFOutputFormat;
+import org.apache.jena.graph.Triple;
+import org.apache.jena.rdf.model.Model;
+import org.apache.jena.rdf.model.ModelFactory;
+import org.apache.jena.riot.RDFDataMgr;
+import org.apache.jena.riot.system.StreamRDF;
+import org.apache.jena.riot.system.StreamRDFLib;
+import org.apache.jena.riot.system.StreamRDFWriter;
+import org.openjdk.jmh.annotations.*;
+
+import java.io.OutputStream;
+import java.util.List;
+import java.util.concurrent.TimeUnit;
+
+/**
+ * Time to serialize a converted dataset, comparing the formats and the streaming writers used for downloads with the
+ * writers that render the complete model.
+ */
+@State(Scope.Benchmark)
+@BenchmarkMode(Mode.AverageTime)
+@OutputTimeUnit(TimeUnit.MILLISECONDS)
+@Warmup(iterations = 3, time = 2)
+@Measurement(iterations = 5, time = 2)
+@Fork(1)
+public class SerializationBenchmark {
+
+    @Param({"TURTLE", "NTRIPLES"})
+    public RDFOutputFormat format;
+
+    @Param({"FLAT", "ARRAY"})
+    public SyntheticDataset.Shape shape;
+
+    @Param({"1000"})
+    public int records;
+
+    private Model model;
+    private List<Triple> triples;
+
+    @Setup
+    public void setup() throws ConversionException {
+        SyntheticDataset dataset = new SyntheticDataset(shape, 8);
+        ConversionPlan plan = ConversionPlan.compile(dataset.getModel());
+        RDFConverter converter = new RDFConverter(SyntheticDataset.getPrefixes());
+        model = ModelFactory.createDefaultModel();
+        model.setNsPrefixes(converter.getPrefixes());
+        StreamRDF sink = StreamRDFLib.graph(model.getGraph());
+        for (JsonNode record : dataset.createRecords(records)) {
+            converter.convert(plan, record, sink);
+        }
+        triples = model.getGraph().find().toList();
+    }
+
+    /**
+     * Writes the triples in conversion order with the streaming writer of the format.
+     */
+    @Benchmark
+    public void writeStreaming() {
+        StreamRDF writer = StreamRDFWriter.getWriterStream(OutputStream.nullOutputStream(), format.getStreamingFormat());
+        writer.start();
+        model.getNsPrefixMap().forEach(writer::prefix);
+        triples.forEach(writer::triple);
+        writer.finish();
+    }
+
+    /**
+     * Writes the complete model with the (pretty) writer of the format.
+     */
+    @Benchmark
+    public void writeModel() {
+        RDFDataMgr.write(OutputStream.nullOutputStream(), model, format.getFormat());
+    }
+}
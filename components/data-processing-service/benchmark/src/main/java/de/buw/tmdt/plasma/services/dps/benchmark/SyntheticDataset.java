@@ -0,0 +1,234 @@
+package de.buw.tmdt.plasma.services.dps.benchmark;
+
+import com.fasterxml.jackson.core.JsonGenerator;
+import com.fasterxml.jackson.databind.JsonNode;
+import com.fasterxml.jackson.databind.ObjectMapper;
+import com.fasterxml.jackson.databind.node.ArrayNode;
+import de.buw.tmdt.plasma.datamodel.CombinedModel;
+import de.buw.tmdt.plasma.datamodel.modification.operation.DataType;
+import de.buw.tmdt.plasma.datamodel.semanticmodel.Class;
+import de.buw.tmdt.plasma.datamodel.semanticmodel.*;
+import de.buw.tmdt.plasma.datamodel.syntaxmodel.*;
+import org.apache.jena.shared.PrefixMapping;
+import org.apache.jena.shared.impl.PrefixMappingImpl;
+
+import java.io.IOException;
+import java.io.OutputStream;
+import java.util.ArrayList;
+import java.util.List;
+import java.util.Map;
+import java.util.Random;
+import java.util.UUID;
+
+import static de.buw.tmdt.plasma.datamodel.syntaxmodel.SchemaNode.ARRAY_PATH_TOKEN;
+import static de.buw.tmdt.plasma.datamodel.syntaxmodel.SchemaNode.ROOT_PATH_TOKEN;
+
+/**
+ * Generates a {@link CombinedModel} of a given shape together with matching JSON records.
+ * The records are generated from a fixed seed, so all runs of a benchmark convert the same data.
+ */
+public final class SyntheticDataset {
+
+    public static final String NAMESPACE = "http://local.host/ontology#";
+
+    private static final ObjectMapper MAPPER = new ObjectMapper();
+    private static final long SEED = 4711;
+
+    /**
+     * The structure of the generated records.
+     */
+    public enum Shape {
+        /** {@code size} primitive fields on the root object, each mapped to a literal of one class */
+        FLAT,
+        /** a chain of {@code size} nested objects, each mapped to a class holding a literal */
+        NESTED,
+        /** an array of {@code size} objects per record, mapped as array context */
+        ARRAY
+    }
+
+    private final Shape shape;
+    private final int size;
+    private final CombinedModel model;
+
+    /**
+     * Creates the model of the dataset.
+     *
+     * @param shape the structure of the records
+     * @param size  the number of fields, nesting levels or array elements per record, depending on the shape
+     */
+    public SyntheticDataset(Shape shape, int size) {
+        if (size < 1) {
+            throw new IllegalArgumentException("Size must be positive");
+        }
+        this.shape = shape;
+        this.size = size;
+        this.model = createModel();
+    }
+
+    public CombinedModel getModel() {
+        return model;
+    }
+
+    /**
+     * The prefixes used by the converter, as served by the KGS.
+     */
+    public static Map<String, String> getNamespaces() {
+        return Map.of("local", NAMESPACE,
+                "plcm", "http://plasma.uni-wuppertal.de/cm#",
+                "plsm", "http://plasma.uni-wuppertal.de/sm/",
+                "plasma", "http://plasma.uni-wuppertal.de/ontology#");
+    }
+
+    public static PrefixMapping getPrefixes() {
+        return new PrefixMappingImpl().withDefaultMappings(PrefixMapping.Standard).setNsPrefixes(getNamespaces());
+    }
+
+    /**
+     * Generates the records of the dataset.
+     *
+     * @param count the number of records
+     * @return the records
+     */
+    public List<JsonNode> createRecords(int count) {
+        Random random = new Random(SEED);
+        List<JsonNode> records = new ArrayList<>(count);
+        for (int i = 0; i < count; i++) {
+            records.add(createRecord(i, random));
+        }
+        return records;
+    }
+
+    /**
+     * Writes the records of the dataset as JSON array.
+     *
+     * @param count the number of records
+     * @param out   the stream to write to, which is not closed
+     * @throws IOException if the records cannot be written
+     */
+    public void writeRecords(int count, OutputStream out) throws IOException {
+        ArrayNode array = MAPPER.createArrayNode();
+        array.addAll(createRecords(count));
+        MAPPER.writer().without(JsonGenerator.Feature.AUTO_CLOSE_TARGET).writeValue(out, array);
+    }
+
+    // the Jackson object node is fully qualified as the syntax model has an ObjectNode as well
+    private JsonNode createRecord(int id, Random random) {
+        com.fasterxml.jackson.databind.node.ObjectNode record = MAPPER.createObjectNode();
+        record.put("id", "record-" + id);
+        switch (shape) {
+            case FLAT:
+                for (int i = 0; i < size; i++) {
+                    record.put("field" + i, "value " + random.nextInt(1000));
+                }
+                break;
+            case NESTED:
+                com.fasterxml.jackson.databind.node.ObjectNode parent = record;
+                for (int i = 0; i < size; i++) {
+                    parent = parent.putObject("level" + i);
+                    parent.put("value", random.nextDouble());
+                }
+                break;
+            case ARRAY:
+                ArrayNode items = record.putArray("items");
+                for (int i = 0; i < size; i++) {
+                    com.fasterxml.jackson.databind.node.ObjectNode item = items.addObject();
+                    item.put("name", "item " + random.nextInt(1000));
+                    item.put("value", random.nextInt());
+                }
+                break;
+            default:
+                throw new IllegalStateException("Unknown shape " + shape);
+        }
+        return record;
+    }
+
+    private CombinedModel createModel() {
+        List<SchemaNode> nodes = new ArrayList<>();
+        List<Edge> edges = new ArrayList<>();
+        List<SemanticModelNode> elements = new ArrayList<>();
+        List<Relation> relations = new ArrayList<>();
+
+        SchemaNode root = new ObjectNode("root", List.of(ROOT_PATH_TOKEN), null, null);
+        nodes.add(root);
+        Class recordClass = new Class(NAMESPACE + "record", "record", "A generated record");
+        elements.add(recordClass);
+        PrimitiveNode idNode = primitive(root, "id", DataType.String, nodes, edges);
+        literal(recordClass, idNode, "identifier", elements, relations, false);
+
+        switch (shape) {
+            case FLAT:
+                for (int i = 0; i < size; i++) {
+                    literal(recordClass, primitive(root, "field" + i, DataType.String, nodes, edges), "field" + i, elements, relations, false);
+                }
+                break;
+            case NESTED:
+                SchemaNode parent = root;
+                Class parentClass = recordClass;
+                for (int i = 0; i < size; i++) {
+                    ObjectNode level = new ObjectNode("level" + i);
+                    level.setPath(append(parent.getPath(), level.getLabel()));
+                    nodes.add(level);
+                    edges.add(new Edge(parent.getUuid(), level.getUuid()));
+                    Class levelClass = new Class(NAMESPACE + "level", "level", "A level of nesting");
+                    elements.add(levelClass);
+                    relations.add(new ObjectProperty(parentClass.getUuid(), levelClass.getUuid(), NAMESPACE + "contains"));
+                    literal(levelClass, primitive(level, "value", DataType.Number, nodes, edges), "value", elements, relations, false);
+                    parent = level;
+                    parentClass = levelClass;
+                }
+                break;
+            case ARRAY:
+                SetNode items = new SetNode(UUID.randomUUID().toString(), "items", null, null, null, true, false);
+                items.setPath(append(root.getPath(), items.getLabel()));
+                ObjectNode item = new ObjectNode(UUID.randomUUID().toString(), SchemaNode.OBJECT_LABEL, null, null, null, true, false);
+                item.setPath(append(items.getPath(), ARRAY_PATH_TOKEN));
+                nodes.addAll(List.of(items, item));
+                edges.addAll(List.of(new Edge(root.getUuid(), items.getUuid()), new Edge(items.getUuid(), item.getUuid())));
+                Class itemClass = new Class(NAMESPACE + "item", "item", "An element of the items array");
+                map(itemClass, item);
+                elements.add(itemClass);
+                relations.add(new ObjectProperty(recordClass.getUuid(), itemClass.getUuid(), NAMESPACE + "hasItem"));
+                literal(itemClass, primitive(item, "name", DataType.String, nodes, edges), "name", elements, relations, true);
+                literal(itemClass, primitive(item, "value", DataType.Number, nodes, edges), "value", elements, relations, true);
+                break;
+            default:
+                throw new IllegalStateException("Unknown shape " + shape);
+        }
+
+        SyntaxModel syntaxModel = new SyntaxModel(root.getUuid(), nodes, edges);
+        SemanticModel semanticModel = new SemanticModel(UUID.randomUUID().toString(), elements, relations);
+        CombinedModel combinedModel = new CombinedModel(UUID.randomUUID().toString(), syntaxModel, semanticModel, new ArrayList<>(), false);
+        combinedModel.validate();
+        return combinedModel;
+    }
+
+    private static PrimitiveNode primitive(SchemaNode parent, String label, DataType dataType, List<SchemaNode> nodes, List<Edge> edges) {
+        PrimitiveNode node = new PrimitiveNode(label, dataType, null, null);
+        node.setPath(append(parent.getPath(), label));
+        nodes.add(node);
+        edges.add(new Edge(parent.getUuid(), node.getUuid()));
+        return node;
+    }
+
+    private static void literal(Class owner, PrimitiveNode schemaNode, String property, List<SemanticModelNode> elements,
+                                List<Relation> relations, boolean arrayContext) {
+        Literal literal = new Literal(schemaNode.getLabel());
+        map(literal, schemaNode);
+        Relation relation = new DataProperty(owner.getUuid(), literal.getUuid(), NAMESPACE + property);
+        relation.setArrayContext(arrayContext);
+        elements.add(literal);
+        relations.add(relation);
+    }
+
+    private static void map(MappableSemanticModelNode semanticNode, MappableSyntaxNode schemaNode) {
+        semanticNode.setMappedSyntaxNodeLabel(schemaNode.getLabel());
+        semanticNode.setMappedSyntaxNodeUuid(schemaNode.getUuid());
+        semanticNode.setMappedSyntaxNodePath(schemaNode.getPathAsJSONPointer());
+    }
+
+    private static List<String> append(List<String> parent, String token) {
+        List<String> path = new ArrayList<>(parent);
+        path.add(token);
+        return path;
+    }
+}
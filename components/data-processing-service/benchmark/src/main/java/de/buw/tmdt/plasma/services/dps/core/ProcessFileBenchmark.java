@@ -0,0 +1,85 @@
+package de.buw.tmdt.plasma.services.dps.core;
+
+import de.buw.tmdt.plasma.datamodel.CombinedModel;
+import de.buw.tmdt.plasma.services.dps.benchmark.SyntheticDataset;
+import de.buw.tmdt.plasma.services.dps.conversion.rdf.RDFOutputFormat;
+import de.buw.tmdt.plasma.services.kgs.shared.feignclient.OntologyApiClient;
+import io.micrometer.core.instrument.simple.SimpleMeterRegistry;
+import org.openjdk.jmh.annotations.*;
+import org.springframework.util.FileSystemUtils;
+
+import java.io.IOException;
+import java.io.OutputStream;
+import java.lang.reflect.Proxy;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.util.concurrent.TimeUnit;
+
+/**
+ * End-to-end conversion of a stored file by the {@link DataProcessingHandler}, from reading the upload to writing the output.
+ * The handler is assembled by hand, the result cache is disabled so every invocation converts the file.
+ * Located in the package of the handler to configure the storage like the tests do.
+ */
+@State(Scope.Benchmark)
+@BenchmarkMode(Mode.AverageTime)
+@OutputTimeUnit(TimeUnit.MILLISECONDS)
+@Warmup(iterations = 2, time = 5)
+@Measurement(iterations = 5, time = 5)
+@Fork(1)
+public class ProcessFileBenchmark {
+
+    private static final String DATA_ID = "benchmark";
+    private static final String FILE_ID = "records.json";
+
+    @Param({"FLAT", "NESTED", "ARRAY"})
+    public SyntheticDataset.Shape shape;
+
+    @Param({"10000"})
+    public int records;
+
+    @Param({"TURTLE", "NTRIPLES"})
+    public RDFOutputFormat format;
+
+    private Path storage;
+    private CombinedModel model;
+    private ConversionWorkerPool workerPool;
+    private PrefixCache prefixCache;
+    private DataProcessingHandler handler;
+
+    @Setup
+    public void setup() throws IOException {
+        SyntheticDataset dataset = new SyntheticDataset(shape, 8);
+        model = dataset.getModel();
+        storage = Files.createTempDirectory("dps-benchmark");
+        Path data = Files.createDirectories(storage.resolve(DATA_ID));
+        try (OutputStream out = Files.newOutputStream(data.resolve(FILE_ID))) {
+            dataset.writeRecords(records, out);
+        }
+
+        DataStorageHandler storageHandler = new DataStorageHandler();
+        storageHandler.storageDirectoryString = storage.toString();
+        OntologyApiClient ontologyApiClient = (OntologyApiClient) Proxy.newProxyInstance(OntologyApiClient.class.getClassLoader(),
+                new Class<?>[]{OntologyApiClient.class}, (proxy, method, args) -> {
+                    if (method.getName().equals("getNamespaces")) {
+                        return SyntheticDataset.getNamespaces();
+                    }
+                    throw new UnsupportedOperationException(method.getName());
+                });
+        prefixCache = new PrefixCache(ontologyApiClient, 300);
+        workerPool = new ConversionWorkerPool(0, 64);
+        handler = new DataProcessingHandler(prefixCache, storageHandler, workerPool, new ConversionCache(storage.toString(), false, 0),
+                new ConversionMetrics(new SimpleMeterRegistry()));
+    }
+
+    @TearDown
+    public void tearDown() throws IOException {
+        workerPool.shutdown();
+        prefixCache.shutdown();
+        FileSystemUtils.deleteRecursively(storage);
+    }
+
+    @Benchmark
+    public void processFile() {
+        handler.processFile(model, DATA_ID, FILE_ID, format, OutputStream.nullOutputStream());
+    }
+}
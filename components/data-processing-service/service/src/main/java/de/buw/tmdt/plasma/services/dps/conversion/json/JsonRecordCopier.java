@@ -0,0 +1,148 @@
+package de.buw.tmdt.plasma.services.dps.conversion.json;
+
+import com.fasterxml.jackson.core.JsonGenerator;
+import com.fasterxml.jackson.core.JsonParser;
+import com.fasterxml.jackson.core.JsonToken;
+import com.fasterxml.jackson.core.io.SerializedString;
+import com.fasterxml.jackson.databind.JsonNode;
+import com.fasterxml.jackson.databind.ObjectMapper;
+import org.jetbrains.annotations.Nullable;
+
+import java.io.FilterOutputStream;
+import java.io.IOException;
+import java.io.OutputStream;
+import java.util.ArrayList;
+import java.util.List;
+
+/**
+ * Copies a JSON document token by token and collects the first records as samples on the way.
+ * Records are identified the same way as by the {@link JsonRecordReader}, JSON Lines documents are written as JSON Lines again.
+ * Only the sampled records are materialized, all others are passed through without building a tree, so the memory
+ * consumption does not depend on the size of the document.
+ */
+public final class JsonRecordCopier {
+
+    private static final ObjectMapper MAPPER = new ObjectMapper();
+    private static final SerializedString LINE_SEPARATOR = new SerializedString("\n");
+
+    private JsonRecordCopier() {
+    }
+
+    /**
+     * Copies the document read by the parser to the given stream.
+     * The parser is consumed but neither the parser nor the stream are closed.
+     *
+     * @param parser     the parser to read from
+     * @param out        the stream to write the document to
+     * @param sampleSize the maximum number of records to return
+     * @return the serialized first records of the document
+     * @throws IOException if the document is not valid JSON or could not be written
+     */
+    public static List<String> copy(JsonParser parser, OutputStream out, int sampleSize) throws IOException {
+        return copy(parser, out, sampleSize, null, false);
+    }
+
+    /**
+     * Copies the document read by the parser to the given stream and records the offsets of the written records.
+     * The parser is consumed but neither the parser nor the stream are closed.
+     * The index is finished once the document has been copied completely.
+     *
+     * @param parser     the parser to read from
+     * @param out        the stream to write the document to
+     * @param sampleSize the maximum number of records to return
+     * @param index      the index to add the records to, can be null
+     * @param lines      whether the document is JSON Lines, each record is written to a line of its own then
+     * @return the serialized first records of the document
+     * @throws IOException if the document is not valid JSON or could not be written
+     */
+    public static List<String> copy(JsonParser parser, OutputStream out, int sampleSize, @Nullable RecordIndex.Writer index,
+                                    boolean lines) throws IOException {
+        if (parser.getCodec() == null) {
+            parser.setCodec(MAPPER);
+        }
+        List<String> samples = new ArrayList<>();
+        CountingOutputStream counter = new CountingOutputStream(out);
+        try (JsonGenerator generator = MAPPER.getFactory().createGenerator(counter)) {
+            generator.disable(JsonGenerator.Feature.AUTO_CLOSE_TARGET);
+            // flushing the generator to determine record offsets must not flush the underlying stream
+            generator.disable(JsonGenerator.Feature.FLUSH_PASSED_TO_STREAM);
+            generator.setRootValueSeparator(LINE_SEPARATOR);
+            JsonToken token = parser.nextToken();
+            if (lines) {
+                boolean first = true;
+                while (token != null) {
+                    copyRecord(parser, generator, counter, samples, sampleSize, index, !first);
+                    first = false;
+                    token = parser.nextToken();
+                }
+            } else if (token == JsonToken.START_ARRAY) {
+                generator.writeStartArray();
+                boolean first = true;
+                while (parser.nextToken() != JsonToken.END_ARRAY) {
+                    if (parser.currentToken() == null) {
+                        throw new IOException("Unexpected end of JSON array");
+                    }
+                    copyRecord(parser, generator, counter, samples, sampleSize, index, !first);
+                    first = false;
+                }
+                generator.writeEndArray();
+            } else if (token != null) {
+                copyRecord(parser, generator, counter, samples, sampleSize, index, false);
+            }
+        }
+        if (lines && counter.count > 0) {
+            counter.write('\n');
+        }
+        if (index != null) {
+            index.finish(counter.count);
+        }
+        return samples;
+    }
+
+    private static void copyRecord(JsonParser parser, JsonGenerator generator, CountingOutputStream counter, List<String> samples,
+                                   int sampleSize, @Nullable RecordIndex.Writer index, boolean separated) throws IOException {
+        long start = 0;
+        if (index != null) {
+            // the separator preceding the record is only written together with the record
+            generator.flush();
+            start = counter.count + (separated ? 1 : 0);
+        }
+        if (samples.size() < sampleSize) {
+            JsonNode record = parser.readValueAsTree();
+            samples.add(record.toString());
+            generator.writeTree(record);
+        } else {
+            generator.copyCurrentStructure(parser);
+        }
+        if (index != null) {
+            generator.flush();
+            index.add(start, counter.count);
+        }
+    }
+
+    private static final class CountingOutputStream extends FilterOutputStream {
+
+        private long count = 0;
+
+        private CountingOutputStream(OutputStream out) {
+            super(out);
+        }
+
+        @Override
+        public void write(int b) throws IOException {
+            out.write(b);
+            count++;
+        }
+
+        @Override
+        public void write(byte[] b, int off, int len) throws IOException {
+            out.write(b, off, len);
+            count += len;
+        }
+
+        @Override
+        public void close() {
+            // the wrapped stream is closed by the caller
+        }
+    }
+}
@@ -0,0 +1,124 @@
+package de.buw.tmdt.plasma.services.dps.conversion.json;
+
+import com.fasterxml.jackson.core.JsonParser;
+import com.fasterxml.jackson.core.JsonToken;
+import com.fasterxml.jackson.databind.JsonNode;
+import com.fasterxml.jackson.databind.ObjectMapper;
+
+import java.io.Closeable;
+import java.io.File;
+import java.io.IOException;
+import java.io.InputStream;
+import java.io.UncheckedIOException;
+import java.util.Iterator;
+import java.util.List;
+import java.util.Locale;
+import java.util.NoSuchElementException;
+
+/**
+ * Reads the records of a JSON document one by one.
+ * If the document's root is an array, each top level element is a record, otherwise the root itself is the only record.
+ * In JSON Lines (NDJSON) documents each line holds one record, regardless of its type.
+ * Only the record currently returned is materialized, the remaining document is consumed lazily from the underlying stream.
+ */
+public class JsonRecordReader implements Iterator<JsonNode>, Closeable {
+
+    /**
+     * The file extensions of JSON Lines documents, the first one is used for stored files.
+     */
+    public static final List<String> LINES_EXTENSIONS = List.of("ndjson", "jsonl");
+
+    private static final ObjectMapper MAPPER = new ObjectMapper();
+
+    private final JsonParser parser;
+    private final boolean lines;
+    private final boolean array;
+    private JsonNode next;
+    private boolean finished = false;
+
+    private JsonRecordReader(JsonParser parser, boolean lines) throws IOException {
+        this.parser = parser;
+        this.lines = lines;
+        JsonToken token = parser.nextToken();
+        this.array = !lines && token == JsonToken.START_ARRAY;
+        if (token == null) {
+            finished = true;
+        } else if (!array) {
+            next = parser.readValueAsTree();
+        }
+    }
+
+    /**
+     * Opens a stored file, files with one of the {@link #LINES_EXTENSIONS} are read as JSON Lines.
+     */
+    public static JsonRecordReader of(File file) throws IOException {
+        return new JsonRecordReader(MAPPER.getFactory().createParser(file), isLines(file.getName()));
+    }
+
+    public static JsonRecordReader of(InputStream inputStream) throws IOException {
+        return new JsonRecordReader(MAPPER.getFactory().createParser(inputStream), false);
+    }
+
+    public static JsonRecordReader ofLines(InputStream inputStream) throws IOException {
+        return new JsonRecordReader(MAPPER.getFactory().createParser(inputStream), true);
+    }
+
+    /**
+     * Checks whether a file is a JSON Lines document based on its extension.
+     *
+     * @param fileName the name of the file
+     * @return true if each line of the file is a record
+     */
+    public static boolean isLines(String fileName) {
+        int separator = fileName.lastIndexOf('.');
+        return separator >= 0 && LINES_EXTENSIONS.contains(fileName.substring(separator + 1).toLowerCase(Locale.ROOT));
+    }
+
+    @Override
+    public boolean hasNext() {
+        if (next != null) {
+            return true;
+        }
+        if (finished || !(array || lines)) {
+            return false;
+        }
+        try {
+            JsonToken token = parser.nextToken();
+            if (token == null || token == JsonToken.END_ARRAY && array) {
+                finished = true;
+                return false;
+            }
+            next = parser.readValueAsTree();
+        } catch (IOException e) {
+            throw new UncheckedIOException("Could not read next record", e);
+        }
+        return true;
+    }
+
+    @Override
+    public JsonNode next() {
+        if (!hasNext()) {
+            throw new NoSuchElementException();
+        }
+        JsonNode current = next;
+        next = null;
+        if (!array && !lines) {
+            finished = true;
+        }
+        return current;
+    }
+
+    /**
+     * The number of bytes of the input consumed so far.
+     *
+     * @return the byte offset of the parser or -1 if the input is not byte based
+     */
+    public long getBytesRead() {
+        return parser.getCurrentLocation().getByteOffset();
+    }
+
+    @Override
+    public void close() throws IOException {
+        parser.close();
+    }
+}
@@ -0,0 +1,290 @@
+package de.buw.tmdt.plasma.services.dps.conversion.json;
+
+import com.fasterxml.jackson.core.JsonParser;
+import com.fasterxml.jackson.core.JsonToken;
+import com.fasterxml.jackson.databind.JsonNode;
+import com.fasterxml.jackson.databind.ObjectMapper;
+
+import java.io.BufferedOutputStream;
+import java.io.Closeable;
+import java.io.DataOutputStream;
+import java.io.EOFException;
+import java.io.IOException;
+import java.nio.ByteBuffer;
+import java.nio.LongBuffer;
+import java.nio.MappedByteBuffer;
+import java.nio.channels.FileChannel;
+import java.nio.charset.StandardCharsets;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.nio.file.StandardCopyOption;
+import java.nio.file.StandardOpenOption;
+import java.util.ArrayList;
+import java.util.List;
+
+/**
+ * Byte offsets of the records of a stored JSON document, see {@link JsonRecordReader} for the definition of a record.
+ * The index is stored next to the document as a sequence of longs: the start and end offset of each record followed by the number of
+ * records and the size of the indexed document.
+ * Index and document are accessed through memory mappings, so reading a page of records does not depend on the size of the document.
+ * The index is mapped in windows, as a single mapping is limited to 2 GB.
+ */
+public final class RecordIndex {
+
+    private static final ObjectMapper MAPPER = new ObjectMapper();
+    private static final String PARTIAL_SUFFIX = ".part";
+    /**
+     * Number of longs per mapped window of the index, a power of two.
+     */
+    private static final int WINDOW_SIZE = 1 << 27;
+
+    private final LongBuffer[] windows;
+    private final int windowShift;
+    private final long recordCount;
+    private final long fileSize;
+
+    private RecordIndex(LongBuffer[] windows, int windowShift, long length) {
+        this.windows = windows;
+        this.windowShift = windowShift;
+        this.recordCount = get(length - 2);
+        this.fileSize = get(length - 1);
+    }
+
+    /**
+     * Maps an index written by a {@link Writer}.
+     *
+     * @param indexFile the index file
+     * @return the index
+     * @throws IOException if the file cannot be read or is not a valid index
+     */
+    public static RecordIndex read(Path indexFile) throws IOException {
+        return read(indexFile, WINDOW_SIZE);
+    }
+
+    /**
+     * Maps an index in windows of the given number of longs, which must be a power of two.
+     */
+    static RecordIndex read(Path indexFile, int windowSize) throws IOException {
+        try (FileChannel channel = FileChannel.open(indexFile, StandardOpenOption.READ)) {
+            long size = channel.size();
+            if (size < 2 * Long.BYTES || size % (2 * Long.BYTES) != 0) {
+                throw new IOException("Invalid record index " + indexFile);
+            }
+            long length = size / Long.BYTES;
+            LongBuffer[] windows = new LongBuffer[Math.toIntExact((length + windowSize - 1) / windowSize)];
+            for (int i = 0; i < windows.length; i++) {
+                long first = (long) i * windowSize;
+                long count = Math.min(windowSize, length - first);
+                windows[i] = channel.map(FileChannel.MapMode.READ_ONLY, first * Long.BYTES, count * Long.BYTES).asLongBuffer();
+            }
+            RecordIndex index = new RecordIndex(windows, Integer.numberOfTrailingZeros(windowSize), length);
+            if (index.recordCount * 2 != length - 2) {
+                throw new IOException("Invalid record index " + indexFile);
+            }
+            return index;
+        }
+    }
+
+    /**
+     * Creates the index of an existing document by scanning it once.
+     *
+     * @param jsonFile  the document
+     * @param indexFile the file to write the index to
+     * @param lines     whether the document is JSON Lines
+     * @return the index
+     * @throws IOException if the document cannot be read or the index cannot be written
+     */
+    public static RecordIndex build(Path jsonFile, Path indexFile, boolean lines) throws IOException {
+        try (JsonParser parser = MAPPER.getFactory().createParser(jsonFile.toFile());
+             Writer writer = new Writer(indexFile)) {
+            JsonToken token = parser.nextToken();
+            if (token == JsonToken.START_ARRAY && !lines) {
+                while (parser.nextToken() != JsonToken.END_ARRAY) {
+                    indexValue(parser, writer);
+                }
+            } else {
+                while (token != null) {
+                    indexValue(parser, writer);
+                    token = lines ? parser.nextToken() : null;
+                }
+            }
+            writer.finish(Files.size(jsonFile));
+        }
+        return read(indexFile);
+    }
+
+    private static void indexValue(JsonParser parser, Writer writer) throws IOException {
+        long start = parser.getTokenLocation().getByteOffset();
+        parser.skipChildren();
+        parser.finishToken();
+        writer.add(start, parser.getCurrentLocation().getByteOffset());
+    }
+
+    public long getRecordCount() {
+        return recordCount;
+    }
+
+    public long getFileSize() {
+        return fileSize;
+    }
+
+    public long getStart(long record) {
+        return get(record * 2);
+    }
+
+    public long getEnd(long record) {
+        return get(record * 2 + 1);
+    }
+
+    private long get(long position) {
+        return windows[(int) (position >>> windowShift)].get((int) (position & ((1L << windowShift) - 1)));
+    }
+
+    /**
+     * Reads a range of records from the indexed document.
+     *
+     * @param jsonFile the indexed document
+     * @param offset   the first record to read
+     * @param limit    the maximum number of records to read
+     * @return the serialized records, empty if the offset is beyond the last record
+     * @throws IOException if the document cannot be read
+     */
+    public List<String> readRecords(Path jsonFile, long offset, int limit) throws IOException {
+        List<String> records = new ArrayList<>();
+        long last = Math.min(recordCount, offset + limit) - 1;
+        if (offset < 0 || offset > last) {
+            return records;
+        }
+        long start = getStart(offset);
+        try (FileChannel channel = FileChannel.open(jsonFile, StandardOpenOption.READ)) {
+            if (channel.size() != fileSize) {
+                throw new IOException("Record index of " + jsonFile + " is outdated");
+            }
+            MappedByteBuffer page = channel.map(FileChannel.MapMode.READ_ONLY, start, getEnd(last) - start);
+            for (long i = offset; i <= last; i++) {
+                byte[] record = new byte[Math.toIntExact(getEnd(i) - getStart(i))];
+                page.position(Math.toIntExact(getStart(i) - start));
+                page.get(record);
+                records.add(new String(record, StandardCharsets.UTF_8));
+            }
+        }
+        return records;
+    }
+
+    /**
+     * Splits the records into consecutive shards of about the given size, a shard holds at least one record.
+     *
+     * @param shardSize the number of bytes per shard
+     * @return the first record of each shard followed by the number of records
+     */
+    public long[] split(long shardSize) {
+        List<Long> bounds = new ArrayList<>();
+        long first = 0;
+        while (first < recordCount) {
+            bounds.add(first);
+            first = Math.max(first + 1, firstRecordAfter(getStart(first) + shardSize, first));
+        }
+        bounds.add(recordCount);
+        return bounds.stream().mapToLong(Long::longValue).toArray();
+    }
+
+    /**
+     * Binary search for the first record starting at or after the given offset.
+     */
+    private long firstRecordAfter(long offset, long from) {
+        long low = from;
+        long high = recordCount;
+        while (low < high) {
+            long mid = (low + high) >>> 1;
+            if (getStart(mid) < offset) {
+                low = mid + 1;
+            } else {
+                high = mid;
+            }
+        }
+        return low;
+    }
+
+    /**
+     * Reads and parses a range of records from the indexed document.
+     * The channel is only accessed by positional reads, so it can be shared between threads.
+     *
+     * @param channel the channel of the indexed document
+     * @param from    the first record to read
+     * @param to      the record after the last one to read
+     * @return the parsed records
+     * @throws IOException if the document cannot be read or a record is not valid JSON
+     */
+    public List<JsonNode> parseRecords(FileChannel channel, long from, long to) throws IOException {
+        if (from >= to) {
+            return List.of();
+        }
+        long start = getStart(from);
+        ByteBuffer buffer = ByteBuffer.allocate(Math.toIntExact(getEnd(to - 1) - start));
+        while (buffer.hasRemaining()) {
+            if (channel.read(buffer, start + buffer.position()) < 0) {
+                throw new EOFException("Record index does not match document");
+            }
+        }
+        byte[] bytes = buffer.array();
+        List<JsonNode> records = new ArrayList<>(Math.toIntExact(to - from));
+        for (long i = from; i < to; i++) {
+            records.add(MAPPER.readTree(bytes, Math.toIntExact(getStart(i) - start), Math.toIntExact(getEnd(i) - getStart(i))));
+        }
+        return records;
+    }
+
+    /**
+     * Writes an index while the document is written.
+     * The index only becomes visible after {@link #finish(long)}, closing an unfinished writer discards it.
+     */
+    public static final class Writer implements Closeable {
+
+        private final Path indexFile;
+        private final Path partial;
+        private final DataOutputStream out;
+        private long recordCount = 0;
+        private boolean finished = false;
+
+        public Writer(Path indexFile) throws IOException {
+            this.indexFile = indexFile;
+            this.partial = indexFile.resolveSibling(indexFile.getFileName() + PARTIAL_SUFFIX);
+            this.out = new DataOutputStream(new BufferedOutputStream(Files.newOutputStream(partial)));
+        }
+
+        /**
+         * Adds the next record.
+         *
+         * @param start offset of the first byte of the record
+         * @param end   offset after the last byte of the record
+         * @throws IOException if the index cannot be written
+         */
+        public void add(long start, long end) throws IOException {
+            out.writeLong(start);
+            out.writeLong(end);
+            recordCount++;
+        }
+
+        /**
+         * Completes the index.
+         *
+         * @param fileSize the size of the indexed document
+         * @throws IOException if the index cannot be written
+         */
+        public void finish(long fileSize) throws IOException {
+            out.writeLong(recordCount);
+            out.writeLong(fileSize);
+            out.close();
+            Files.move(partial, indexFile, StandardCopyOption.REPLACE_EXISTING, StandardCopyOption.ATOMIC_MOVE);
+            finished = true;
+        }
+
+        @Override
+        public void close() throws IOException {
+            if (!finished) {
+                out.close();
+                Files.deleteIfExists(partial);
+            }
+        }
+    }
+}
@@ -0,0 +1,367 @@
+package de.buw.tmdt.plasma.services.dps.conversion.rdf;
+
+import com.fasterxml.jackson.core.JsonPointer;
+import de.buw.tmdt.plasma.datamodel.CombinedModel;
+import de.buw.tmdt.plasma.datamodel.semanticmodel.MappableSemanticModelNode;
+import de.buw.tmdt.plasma.datamodel.semanticmodel.Relation;
+import de.buw.tmdt.plasma.datamodel.semanticmodel.SemanticModel;
+import de.buw.tmdt.plasma.datamodel.semanticmodel.SemanticModelNode;
+import de.buw.tmdt.plasma.datamodel.syntaxmodel.SchemaNode;
+import de.buw.tmdt.plasma.services.dps.conversion.ConversionException;
+import org.jetbrains.annotations.NotNull;
+
+import java.util.*;
+import java.util.stream.Collectors;
+
+import static de.buw.tmdt.plasma.datamodel.syntaxmodel.SchemaNode.ARRAY_PATH_TOKEN;
+
+/**
+ * The datum independent part of a conversion.
+ * A plan is compiled once per {@link CombinedModel} and can then be applied by the {@link RDFConverter} to any number of data.
+ * It contains the array contexts of the model in processing order, the nodes and relations that remain after all array contexts have been
+ * processed and lookup tables for the semantic and syntactic nodes.
+ * The JSON pointers of all syntax nodes are compiled once and looked up by the syntax node's UUID during conversion.
+ */
+public class ConversionPlan {
+
+    private final CombinedModel combinedModel;
+    private final String semanticModelId;
+    private final List<ArrayContextPlan> arrayContexts;
+    private final List<SemanticModelNode> remainingNodes;
+    private final List<Relation> remainingEdges;
+    private final Map<String, SemanticModelNode> semanticNodes;
+    private final Map<String, SchemaNode> schemaNodes;
+    private final Map<String, JsonPointer> pointers;
+
+    private ConversionPlan(CombinedModel combinedModel,
+                           List<ArrayContextPlan> arrayContexts,
+                           List<SemanticModelNode> remainingNodes,
+                           List<Relation> remainingEdges,
+                           Map<String, SemanticModelNode> semanticNodes,
+                           Map<String, SchemaNode> schemaNodes,
+                           Map<String, JsonPointer> pointers) {
+        this.combinedModel = combinedModel;
+        this.semanticModelId = combinedModel.getSemanticModel().getId().substring(0, 13);
+        this.arrayContexts = Collections.unmodifiableList(arrayContexts);
+        this.remainingNodes = Collections.unmodifiableList(remainingNodes);
+        this.remainingEdges = Collections.unmodifiableList(remainingEdges);
+        this.semanticNodes = Collections.unmodifiableMap(semanticNodes);
+        this.schemaNodes = Collections.unmodifiableMap(schemaNodes);
+        this.pointers = Collections.unmodifiableMap(pointers);
+    }
+
+    /**
+     * Compiles the conversion plan for the given model.
+     * The model must not be modified while the plan is in use.
+     *
+     * @param combinedModel The model to compile
+     * @return The compiled plan
+     * @throws ConversionException If the model contains array contexts that cannot be converted
+     */
+    public static ConversionPlan compile(@NotNull CombinedModel combinedModel) throws ConversionException {
+        SemanticModel semanticModel = combinedModel.getSemanticModel();
+
+        Map<String, SemanticModelNode> semanticNodes = new HashMap<>();
+        for (SemanticModelNode node : semanticModel.getNodes()) {
+            semanticNodes.put(node.getUuid(), node);
+        }
+        Map<String, SchemaNode> schemaNodes = new HashMap<>();
+        Map<String, JsonPointer> pointers = new HashMap<>();
+        for (SchemaNode node : combinedModel.getSyntaxModel().getNodes()) {
+            schemaNodes.put(node.getUuid(), node);
+            pointers.put(node.getUuid(), JsonPointer.compile(node.getPathAsJSONPointer()));
+        }
+
+        // identify array contexts
+        Set<String> contextNodeUuids = new HashSet<>();
+        List<SemanticModel> contexts = new ArrayList<>();
+        Map<SemanticModel, Long> contextDepths = new IdentityHashMap<>();
+        for (SemanticModelNode node : semanticModel.getNodes()) {
+            // check that this node is not part of any existing array context
+            if (contextNodeUuids.contains(node.getUuid())) {
+                continue;
+            }
+            SemanticModel arrayContext = semanticModel.getArrayContext(node, new ArrayList<>());
+            if (arrayContext.getNodes().size() == 1) {
+                // check if this node is actually mapped below an array
+                SemanticModelNode semanticModelNode = arrayContext.getNodes().get(0);
+                if (!semanticModelNode.isMapped()) {
+                    continue;
+                }
+                MappableSemanticModelNode mappedNode = (MappableSemanticModelNode) semanticModelNode;
+                SchemaNode schemaNode = schemaNodes.get(mappedNode.getMappedSyntaxNodeUuid());
+                if (!schemaNode.getPath().contains(ARRAY_PATH_TOKEN)) {
+                    continue;
+                }
+            }
+
+            // check homogeneity of each array context (same level)
+            for (Relation r : arrayContext.getEdges()) {
+                int fromLevel = combinedModel.getArrayDepthOfNode(semanticNodes.get(r.getFrom()));
+                int toLevel = combinedModel.getArrayDepthOfNode(semanticNodes.get(r.getTo()));
+                if (fromLevel > 0 && toLevel > 0 && fromLevel != toLevel) {
+                    throw new ConversionException("Found array context spanning multiple array depths");
+                }
+                // reject all models with array context depth > 1 (remove when #68 is solved)
+                if (fromLevel > 1 || toLevel > 1) {
+                    throw new ConversionException("Array contexts of depth greater than 1 are not yet supported");
+                }
+            }
+            SchemaNode firstMapped = arrayContext.getNodes().stream()
+                    .filter(SemanticModelNode::isMapped)
+                    .map(n -> schemaNodes.get(((MappableSemanticModelNode) n).getMappedSyntaxNodeUuid()))
+                    .findFirst()
+                    .orElseThrow(() -> new ConversionException("Array context containing node "
+                            + arrayContext.getNodes().get(0).getUuid() + " has no mapped node"));
+            contextDepths.put(arrayContext, firstMapped.getPath().stream().filter(ARRAY_PATH_TOKEN::equals).count());
+            arrayContext.getNodes().forEach(n -> contextNodeUuids.add(n.getUuid()));
+            contexts.add(arrayContext);
+        }
+        // process the deepest array contexts first
+        contexts = contexts.stream()
+                .sorted(Comparator.comparing(contextDepths::get))
+                .collect(Collectors.toList());
+        Collections.reverse(contexts);
+
+        List<ArrayContextPlan> arrayContexts = new ArrayList<>();
+        List<Relation> remainingEdges = new ArrayList<>(semanticModel.getEdges());
+        for (SemanticModel arrayContext : contexts) {
+            MappableSemanticModelNode indexNode = identifyIndexNode(arrayContext);
+            SchemaNode indexSchemaNode = schemaNodes.get(indexNode.getMappedSyntaxNodeUuid());
+            remainingEdges.removeAll(arrayContext.getEdges());
+            arrayContexts.add(new ArrayContextPlan(
+                    arrayContext,
+                    indexNode,
+                    indexSchemaNode,
+                    new ArrayList<>(remainingEdges),
+                    compileRelativePointers(arrayContext, indexSchemaNode, schemaNodes)
+            ));
+        }
+        List<SemanticModelNode> remainingNodes = semanticModel.getNodes().stream()
+                .filter(n -> !contextNodeUuids.contains(n.getUuid()))
+                .collect(Collectors.toList());
+
+        return new ConversionPlan(combinedModel, arrayContexts, remainingNodes, remainingEdges, semanticNodes, schemaNodes, pointers);
+    }
+
+    /**
+     * Compiles the pointers of all mapped nodes of an array context relative to a single entry of the context's array.
+     */
+    private static Map<String, JsonPointer> compileRelativePointers(SemanticModel arrayContext,
+                                                                    SchemaNode indexSchemaNode,
+                                                                    Map<String, SchemaNode> schemaNodes) {
+        String basePath = indexSchemaNode.getPathAsJSONPointer();
+        Map<String, JsonPointer> relativePointers = new HashMap<>();
+        for (SemanticModelNode node : arrayContext.getNodes()) {
+            if (!node.isMapped()) {
+                continue;
+            }
+            SchemaNode schemaNode = schemaNodes.get(((MappableSemanticModelNode) node).getMappedSyntaxNodeUuid());
+            String path = schemaNode.getPathAsJSONPointer();
+            if (path.startsWith(basePath)) {
+                path = path.substring(basePath.length());
+            }
+            relativePointers.put(schemaNode.getUuid(), JsonPointer.compile(path));
+        }
+        return relativePointers;
+    }
+
+    private static MappableSemanticModelNode identifyIndexNode(SemanticModel arrayContext) throws ConversionException {
+        if (arrayContext.getNodes().size() == 1) {
+            return (MappableSemanticModelNode) arrayContext.getNodes().get(0);
+        }
+        List<MappableSemanticModelNode> indexNodes = arrayContext.getNodes().stream()
+                .filter(smn -> smn instanceof MappableSemanticModelNode)
+                .filter(SemanticModelNode::isMapped)
+                .map(smn -> (MappableSemanticModelNode) smn)
+                .filter(smn -> smn.getMappedSyntaxNodePath().endsWith(ARRAY_PATH_TOKEN))
+                .collect(Collectors.toList());
+        if (indexNodes.size() != 1) {
+            throw new ConversionException(
+                    "Could not identify unanimous index node for array context containing node " +
+                            arrayContext.getNodes().get(0).getUuid() +
+                            " (" + arrayContext.getNodes().get(0).getURI() + ")");
+        }
+        return indexNodes.get(0);
+    }
+
+    public CombinedModel getCombinedModel() {
+        return combinedModel;
+    }
+
+    /**
+     * The prefix of the semantic model's id used to build instance URIs.
+     *
+     * @return the shortened semantic model id
+     */
+    public String getSemanticModelId() {
+        return semanticModelId;
+    }
+
+    /**
+     * The array contexts of the model, ordered by descending array depth.
+     *
+     * @return the array contexts in processing order
+     */
+    public List<ArrayContextPlan> getArrayContexts() {
+        return arrayContexts;
+    }
+
+    /**
+     * The nodes that are not part of any array context.
+     *
+     * @return the remaining nodes
+     */
+    public List<SemanticModelNode> getRemainingNodes() {
+        return remainingNodes;
+    }
+
+    /**
+     * The relations that are not part of any array context.
+     *
+     * @return the remaining relations
+     */
+    public List<Relation> getRemainingEdges() {
+        return remainingEdges;
+    }
+
+    public SemanticModelNode getSemanticNode(String uuid) {
+        return semanticNodes.get(uuid);
+    }
+
+    public SchemaNode getSchemaNode(String uuid) {
+        return schemaNodes.get(uuid);
+    }
+
+    /**
+     * The compiled pointers of all syntax nodes relative to the root of a datum.
+     *
+     * @return the pointers keyed by the UUID of their syntax node
+     */
+    public Map<String, JsonPointer> getPointers() {
+        return pointers;
+    }
+
+    public JsonPointer getPointer(String syntaxNodeUuid) {
+        return pointers.get(syntaxNodeUuid);
+    }
+
+    /**
+     * A single array context of the model together with its index node.
+     */
+    public static class ArrayContextPlan {
+
+        private final SemanticModel arrayContext;
+        private final MappableSemanticModelNode indexNode;
+        private final SchemaNode indexSchemaNode;
+        private final List<Relation> outerEdges;
+        private final Map<String, JsonPointer> pointers;
+        private final List<String> pathSegments;
+        private final List<JsonPointer> arrayPointers;
+        private final JsonPointer entryPointer;
+
+        ArrayContextPlan(SemanticModel arrayContext,
+                         MappableSemanticModelNode indexNode,
+                         SchemaNode indexSchemaNode,
+                         List<Relation> outerEdges,
+                         Map<String, JsonPointer> pointers) {
+            this.arrayContext = arrayContext;
+            this.indexNode = indexNode;
+            this.indexSchemaNode = indexSchemaNode;
+            this.outerEdges = Collections.unmodifiableList(outerEdges);
+            this.pointers = Collections.unmodifiableMap(pointers);
+
+            // split the path of the index node at its array tokens
+            List<String> segments = new ArrayList<>();
+            StringBuilder segment = new StringBuilder();
+            List<String> path = indexSchemaNode.getPath();
+            for (int i = 1; i < path.size(); i++) {
+                String token = path.get(i);
+                if (ARRAY_PATH_TOKEN.equals(token)) {
+                    segments.add(segment.toString());
+                    segment.setLength(0);
+                } else {
+                    segment.append('/').append(token.replace("~", "~0").replace("/", "~1"));
+                }
+            }
+            segments.add(segment.toString());
+            this.pathSegments = Collections.unmodifiableList(segments);
+            this.arrayPointers = segments.subList(0, segments.size() - 1).stream()
+                    .map(JsonPointer::compile)
+                    .collect(Collectors.toUnmodifiableList());
+            this.entryPointer = JsonPointer.compile(segments.get(segments.size() - 1));
+        }
+
+        public SemanticModel getArrayContext() {
+            return arrayContext;
+        }
+
+        public MappableSemanticModelNode getIndexNode() {
+            return indexNode;
+        }
+
+        public SchemaNode getIndexSchemaNode() {
+            return indexSchemaNode;
+        }
+
+        /**
+         * The relations that are neither part of this array context nor of one processed before.
+         *
+         * @return the relations outside of this array context
+         */
+        public List<Relation> getOuterEdges() {
+            return outerEdges;
+        }
+
+        /**
+         * The compiled pointers of the mapped nodes of this array context relative to a single entry of the array.
+         *
+         * @return the pointers keyed by the UUID of their syntax node
+         */
+        public Map<String, JsonPointer> getPointers() {
+            return pointers;
+        }
+
+        /**
+         * The number of nested arrays on the path of the index node.
+         *
+         * @return the number of array levels
+         */
+        public int getLevels() {
+            return arrayPointers.size();
+        }
+
+        /**
+         * The pointer to the array of the given level, relative to an element of the enclosing level or to the datum for the outermost level.
+         *
+         * @param level the array level, starting at 0 for the outermost array
+         * @return the pointer to the array
+         */
+        public JsonPointer getArrayPointer(int level) {
+            return arrayPointers.get(level);
+        }
+
+        /**
+         * The pointer from an element of the innermost array to the entry the index node is mapped to.
+         *
+         * @return the pointer to the entry
+         */
+        public JsonPointer getEntryPointer() {
+            return entryPointer;
+        }
+
+        /**
+         * Composes the path of a single entry of this array context.
+         *
+         * @param indices the element index for each array level
+         * @return the entry's path in JSON pointer notation
+         */
+        public String composePath(int[] indices) {
+            StringBuilder path = new StringBuilder(pathSegments.get(0));
+            for (int level = 0; level < arrayPointers.size(); level++) {
+                path.append('/').append(indices[level]).append(pathSegments.get(level + 1));
+            }
+            return path.toString();
+        }
+    }
+}
@@ -0,0 +1,251 @@
+package de.buw.tmdt.plasma.services.dps.conversion.rdf;
+
+import com.fasterxml.jackson.databind.JsonNode;
+import de.buw.tmdt.plasma.services.dps.conversion.ConversionException;
+import org.apache.jena.graph.Triple;
+import org.apache.jena.riot.system.StreamRDF;
+import org.apache.jena.riot.system.StreamRDFBase;
+
+import java.io.IOException;
+import java.util.ArrayDeque;
+import java.util.ArrayList;
+import java.util.Collection;
+import java.util.Deque;
+import java.util.Iterator;
+import java.util.List;
+import java.util.concurrent.ExecutionException;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Future;
+
+/**
+ * Converts a sequence of records on multiple threads.
+ * Records are grouped into batches or shards which are converted concurrently on the given executor.
+ * The results are forwarded to the sink in the order of the input, at most {@code maxPendingBatches} batches or {@code maxPendingShards}
+ * shards are held in memory at a time.
+ */
+public class ParallelRDFConverter {
+
+    private final RDFConverter converter;
+    private final ExecutorService executor;
+    private final int batchSize;
+    private final int maxPendingBatches;
+    private final int maxPendingShards;
+    private final Listener listener;
+
+    public ParallelRDFConverter(RDFConverter converter, ExecutorService executor, int batchSize, int maxPendingBatches) {
+        this(converter, executor, batchSize, maxPendingBatches, maxPendingBatches, new Listener() {
+        });
+    }
+
+    /**
+     * Creates the converter.
+     *
+     * @param converter         the converter to use for the single records
+     * @param executor          the executor converting the batches and shards
+     * @param batchSize         the number of records per batch
+     * @param maxPendingBatches the number of batches submitted to the executor or waiting to be sent to the sink
+     * @param maxPendingShards  the number of shards submitted to the executor or waiting to be sent to the sink, as a shard is much larger
+     *                          than a batch this should not exceed the number of workers by much
+     * @param listener          the listener to report the duration of each phase to
+     */
+    public ParallelRDFConverter(RDFConverter converter, ExecutorService executor, int batchSize, int maxPendingBatches, int maxPendingShards,
+                                Listener listener) {
+        if (batchSize < 1 || maxPendingBatches < 1 || maxPendingShards < 1) {
+            throw new IllegalArgumentException("Batch size and number of pending batches and shards must be positive");
+        }
+        this.converter = converter;
+        this.executor = executor;
+        this.batchSize = batchSize;
+        this.maxPendingBatches = maxPendingBatches;
+        this.maxPendingShards = maxPendingShards;
+        this.listener = listener;
+    }
+
+    /**
+     * Converts all records and sends the resulting triples to the sink.
+     *
+     * @param plan    The compiled plan to apply to each record
+     * @param records The records to convert
+     * @param sink    The sink receiving the triples in input order
+     * @throws ConversionException If any of the records could not be converted
+     */
+    public void convert(ConversionPlan plan, Iterator<JsonNode> records, StreamRDF sink) throws ConversionException {
+        Iterator<Shard> batches = new Iterator<>() {
+            @Override
+            public boolean hasNext() {
+                return records.hasNext();
+            }
+
+            @Override
+            public Shard next() {
+                List<JsonNode> batch = new ArrayList<>(batchSize);
+                long start = System.nanoTime();
+                while (batch.size() < batchSize && records.hasNext()) {
+                    batch.add(records.next());
+                }
+                listener.parsed(batch.size(), System.nanoTime() - start);
+                return new Batch(batch);
+            }
+        };
+        convert(plan, batches, sink, maxPendingBatches);
+    }
+
+    /**
+     * Converts the records of all shards and sends the resulting triples to the sink.
+     * In contrast to {@link #convert(ConversionPlan, Iterator, StreamRDF)} the records are read by the workers, so reading and parsing
+     * the input is parallelized as well.
+     *
+     * @param plan   The compiled plan to apply to each record
+     * @param shards The shards to convert
+     * @param sink   The sink receiving the triples in the order of the shards
+     * @throws ConversionException If any of the records could not be read or converted
+     */
+    public void convertShards(ConversionPlan plan, Iterator<? extends Shard> shards, StreamRDF sink) throws ConversionException {
+        convert(plan, shards, sink, maxPendingShards);
+    }
+
+    private void convert(ConversionPlan plan, Iterator<? extends Shard> shards, StreamRDF sink, int maxPending) throws ConversionException {
+        Deque<Pending> pending = new ArrayDeque<>();
+        try {
+            while (shards.hasNext()) {
+                if (pending.size() == maxPending) {
+                    emit(pending.poll(), sink);
+                }
+                Shard shard = shards.next();
+                pending.add(new Pending(shard, submit(plan, shard)));
+            }
+            while (!pending.isEmpty()) {
+                emit(pending.poll(), sink);
+            }
+        } finally {
+            pending.forEach(p -> p.result.cancel(true));
+        }
+    }
+
+    private Future<List<Triple>> submit(ConversionPlan plan, Shard shard) {
+        return executor.submit(() -> {
+            List<Triple> triples = new ArrayList<>();
+            StreamRDF collector = new StreamRDFBase() {
+                @Override
+                public void triple(Triple triple) {
+                    triples.add(triple);
+                }
+            };
+            long start = System.nanoTime();
+            Iterable<JsonNode> records = shard.read();
+            if (!(shard instanceof Batch)) {
+                // batches are parsed on the calling thread while they are assembled
+                long parsed = System.nanoTime();
+                listener.parsed(size(records), parsed - start);
+                start = parsed;
+            }
+            int count = 0;
+            for (JsonNode datum : records) {
+                converter.convert(plan, datum, collector);
+                count++;
+            }
+            listener.converted(count, System.nanoTime() - start);
+            return triples;
+        });
+    }
+
+    private void emit(Pending pending, StreamRDF sink) throws ConversionException {
+        try {
+            List<Triple> triples = pending.result.get();
+            long start = System.nanoTime();
+            triples.forEach(sink::triple);
+            listener.serialized(triples.size(), System.nanoTime() - start);
+            pending.shard.emitted();
+        } catch (InterruptedException e) {
+            Thread.currentThread().interrupt();
+            throw new ConversionException("Conversion was interrupted", e);
+        } catch (ExecutionException e) {
+            if (e.getCause() instanceof ConversionException) {
+                throw (ConversionException) e.getCause();
+            }
+            throw new ConversionException("Conversion failed: " + e.getCause().getMessage(), e.getCause());
+        }
+    }
+
+    /**
+     * A consecutive part of the input which is read and converted by a single worker.
+     */
+    @FunctionalInterface
+    public interface Shard {
+
+        /**
+         * Reads the records of this shard, called on the worker converting the shard.
+         *
+         * @return the records in input order
+         * @throws IOException if the records could not be read
+         */
+        Iterable<JsonNode> read() throws IOException;
+
+        /**
+         * Called once all triples of this shard have been sent to the sink.
+         */
+        default void emitted() {
+        }
+    }
+
+    /**
+     * Receives the durations of the phases of a conversion.
+     * Parsing and conversion are reported by the workers, so implementations must be thread safe.
+     */
+    public interface Listener {
+
+        /**
+         * Called after the records of a batch or shard have been read and parsed.
+         */
+        default void parsed(int records, long nanos) {
+        }
+
+        /**
+         * Called after the records of a batch or shard have been converted.
+         */
+        default void converted(int records, long nanos) {
+        }
+
+        /**
+         * Called after the triples of a batch or shard have been sent to the sink.
+         */
+        default void serialized(int triples, long nanos) {
+        }
+    }
+
+    private static int size(Iterable<JsonNode> records) {
+        if (records instanceof Collection) {
+            return ((Collection<JsonNode>) records).size();
+        }
+        int size = 0;
+        for (JsonNode ignored : records) {
+            size++;
+        }
+        return size;
+    }
+
+    private static final class Batch implements Shard {
+
+        private final List<JsonNode> records;
+
+        private Batch(List<JsonNode> records) {
+            this.records = records;
+        }
+
+        @Override
+        public Iterable<JsonNode> read() {
+            return records;
+        }
+    }
+
+    private static final class Pending {
+
+        private final Shard shard;
+        private final Future<List<Triple>> result;
+
+        private Pending(Shard shard, Future<List<Triple>> result) {
+            this.shard = shard;
+            this.result = result;
+        }
+    }
+}
@@ -12,7 +12,13 @@ import de.buw.tmdt.plasma.datamodel.semanticmodel.Literal;
 import de.buw.tmdt.plasma.datamodel.semanticmodel.*;
 import de.buw.tmdt.plasma.datamodel.syntaxmodel.*;
 import de.buw.tmdt.plasma.services.dps.conversion.ConversionException;
-import org.apache.jena.rdf.model.*;
+import org.apache.jena.graph.Node;
+import org.apache.jena.graph.NodeFactory;
+import org.apache.jena.graph.Triple;
+import org.apache.jena.rdf.model.Model;
+import org.apache.jena.rdf.model.ModelFactory;
+import org.apache.jena.riot.system.StreamRDF;
+import org.apache.jena.riot.system.StreamRDFLib;
 import org.apache.jena.shared.PrefixMapping;
 import org.apache.jena.vocabulary.RDF;
 import org.jetbrains.annotations.NotNull;
@@ -21,6 +27,9 @@ import org.slf4j.LoggerFactory;
 import org.springframework.web.util.HtmlUtils;
 
 import java.util.*;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.atomic.AtomicInteger;
+import java.util.function.IntConsumer;
 import java.util.stream.Collectors;
 
 import static de.buw.tmdt.plasma.datamodel.syntaxmodel.SchemaNode.ARRAY_PATH_TOKEN;
@@ -28,6 +37,7 @@ import static de.buw.tmdt.plasma.datamodel.syntaxmodel.SchemaNode.PREDEFINED_LAB
 
 /**
  * Converter to parse a {@link SemanticModel} with filled {@link Literal}s and convert it to RDF.
+ * The converter itself does not hold any per datum state and can be shared between threads.
  */
 public class RDFConverter {
 
@@ -37,43 +47,57 @@ public class RDFConverter {
     private static final String ROOT_ELEMENT_NAME = "";
 
     private static final String MISSING_DATA_LITERAL = "##ValueNotAvailable##";
+    private static final Node MISSING_DATA_NODE = NodeFactory.createLiteral(MISSING_DATA_LITERAL);
 
+    private static final Node TYPE = RDF.type.asNode();
+    private static final Node FIRST = RDF.first.asNode();
+    private static final Node REST = RDF.rest.asNode();
+    private static final Node NIL = RDF.nil.asNode();
+    private static final Node LABEL = PLCM.label.asNode();
+    private static final Node DESCRIPTION = PLCM.description.asNode();
+    private static final Node NAMED_ENTITY = PLCM.NamedEntity.asNode();
+
+    private static final int MAX_CACHED_URIS = 4096;
 
     private final PrefixMapping prefixes;
 
-    /* Runtime resources.
-     * Those are reset for every datum to parse.
-     */
-    private CombinedModel combinedModel;
-    private JsonNode datum;
-    private Map<String, RDFNode> uuidtoResource = new HashMap<>();
-    private Model m;
-    private String smURI;
-    private String plasmaURI;
-    private Property hasValueProperty;
-    private String semanticModelId;
-    private Map<SemanticModelNode, List<RDFNode>> arrayExpansionMap = new HashMap<>();
-    private Map<String, RDFNode> deepListMap = new HashMap<>();
-    private int counter = 0;
-    private boolean dirty = false;
-    List<SemanticModelNode> unprocessedNodes;
-    List<Relation> unprocessedEdges;
-    Set<Relation> processed;
+    private final String smURI;
+    private final String plasmaURI;
+
+    private final Node hasValue;
+    private final IntConsumer arrayExpansionObserver;
+
+    private final AtomicInteger counter = new AtomicInteger();
+    private final Map<String, Node> uriNodes = new ConcurrentHashMap<>();
 
     /**
      * Initialize a new {@link RDFConverter}.
      */
     public RDFConverter(PrefixMapping prefixes) {
+        this(prefixes, size -> {
+        });
+    }
+
+    /**
+     * Initialize a new {@link RDFConverter} which reports the number of entity sets created for each expanded array context.
+     */
+    public RDFConverter(PrefixMapping prefixes, IntConsumer arrayExpansionObserver) {
         this.prefixes = prefixes;
+        this.arrayExpansionObserver = arrayExpansionObserver;
+        this.smURI = prefixes.getNsPrefixURI("plsm");
+        this.plasmaURI = prefixes.getNsPrefixURI("plasma");
+        this.hasValue = NodeFactory.createURI(plasmaURI + "hasValue");
     }
 
-    public void reset() {
-        uuidtoResource = new HashMap<>();
-        arrayExpansionMap = new HashMap<>();
-        semanticModelId = null;
-        combinedModel = null;
-        datum = null;
-        dirty = false;
+    public PrefixMapping getPrefixes() {
+        return prefixes;
+    }
+
+    /**
+     * The namespace of the instances created by this converter.
+     */
+    public String getInstanceNamespace() {
+        return smURI;
     }
 
     private void validate() {
@@ -81,522 +105,517 @@ public class RDFConverter {
     }
 
     private int getCounter() {
-        return counter++;
+        return counter.getAndIncrement();
     }
 
-    public List<Model> convertToRDF(CombinedModel combinedModel, List<JsonNode> data) throws ConversionException {
-        return convertToRDF(combinedModel, data, null);
+    /**
+     * Resolves a URI of the model, prefixed names are expanded with the prefixes of this converter.
+     * The nodes are cached as the same predicates and classes are used for every datum.
+     */
+    private Node uri(String uri) {
+        Node node = uriNodes.get(uri);
+        if (node == null) {
+            if (uriNodes.size() >= MAX_CACHED_URIS) {
+                uriNodes.clear();
+            }
+            node = NodeFactory.createURI(prefixes.expandPrefix(uri));
+            uriNodes.put(uri, node);
+        }
+        return node;
     }
 
-    public List<Model> convertToRDF(CombinedModel combinedModel, List<JsonNode> data, String relativePath) throws ConversionException {
+    public List<Model> convertToRDF(CombinedModel combinedModel, List<JsonNode> data) throws ConversionException {
+        ConversionPlan plan = ConversionPlan.compile(combinedModel);
         List<Model> results = new ArrayList<>(data.size());
         for (JsonNode datum : data) {
-            results.add(convertToRDF(combinedModel, datum, relativePath));
+            results.add(convertToRDF(plan, datum));
         }
         return results;
     }
 
     public Model convertToRDF(CombinedModel combinedModel, JsonNode datum) throws ConversionException {
-        return convertToRDF(combinedModel, datum, null);
+        return convertToRDF(ConversionPlan.compile(combinedModel), datum);
     }
 
-    public Model convertToRDF(CombinedModel combinedModel, JsonNode datum, String relativePath) throws ConversionException {
-        SemanticModel semanticModel = combinedModel.getSemanticModel();
-        if (dirty) {
-            reset();
-        }
-        if (relativePath == null) {
-            relativePath = "";
+    /**
+     * Converts a single datum by applying a compiled {@link ConversionPlan}.
+     * Prefer this over {@link #convertToRDF(CombinedModel, JsonNode)} when converting multiple data with the same model.
+     * This method is thread-safe, all state of a conversion is confined to the call.
+     *
+     * @param plan  The compiled plan of the model to use as template
+     * @param datum The datum to convert
+     * @return The converted datum
+     * @throws ConversionException If the datum does not match the model
+     */
+    public Model convertToRDF(ConversionPlan plan, JsonNode datum) throws ConversionException {
+        Model model = ModelFactory.createDefaultModel();
+        model.setNsPrefixes(prefixes);
+        convert(plan, datum, StreamRDFLib.graph(model.getGraph()));
+        return model;
+    }
+
+    /**
+     * Converts a single datum and sends the resulting triples directly to the sink without building a model.
+     * The sink receives every triple as it is created, duplicates are not removed.
+     * This method is thread-safe as long as the sink is not shared between concurrent calls.
+     *
+     * @param plan  The compiled plan of the model to use as template
+     * @param datum The datum to convert
+     * @param sink  The sink receiving the triples
+     * @throws ConversionException If the datum does not match the model
+     */
+    public void convert(ConversionPlan plan, JsonNode datum, StreamRDF sink) throws ConversionException {
+        new Conversion(plan, datum, sink).convert();
+    }
+
+    public static String convertToInstanceId(String label) {
+        String formatted = label.trim().toLowerCase().replace(" ", "_");
+        formatted = HtmlUtils.htmlEscape(formatted);
+        formatted = formatted.replaceAll("##", "_");
+        formatted = formatted.replaceAll("#", "_");
+        formatted = formatted.replaceAll("\\[", "_");
+        formatted = formatted.replaceAll("\\]", "_");
+        formatted = formatted.replaceAll("\\)", "_");
+        formatted = formatted.replaceAll("\\(", "_");
+        formatted = formatted.replaceAll("__", "_");
+        return formatted;
+    }
+
+    /**
+     * The conversion of a single datum.
+     * Holds the runtime resources which are only valid while the datum is processed.
+     * Triples are sent to the sink as soon as they are created.
+     */
+    private final class Conversion {
+
+        private final ConversionPlan plan;
+        private final JsonNode datum;
+        private final StreamRDF sink;
+        private final String semanticModelId;
+        private final Map<String, Node> uuidtoResource = new HashMap<>();
+        private final Map<SemanticModelNode, List<Node>> arrayExpansionMap = new HashMap<>();
+        private int expanded = 0;
+        private final Map<String, Node> deepListMap = new HashMap<>();
+        private final Set<Relation> processed = new HashSet<>();
+        // outer edges linked by the array context being converted, they are linked for each of its elements
+        private final Set<Relation> processedInContext = new HashSet<>();
+        private final Set<Node> lists = new HashSet<>();
+
+        private Conversion(ConversionPlan plan, JsonNode datum, StreamRDF sink) {
+            this.plan = plan;
+            this.datum = datum;
+            this.sink = sink;
+            this.semanticModelId = plan.getSemanticModelId();
         }
-        dirty = true;
-        this.combinedModel = combinedModel;
-        this.datum = datum;
-
-        semanticModelId = semanticModel.getId().substring(0, 13);
-        m = ModelFactory.createDefaultModel();
-        m.setNsPrefixes(prefixes);
-        smURI = prefixes.getNsPrefixURI("plsm");
-        plasmaURI = prefixes.getNsPrefixURI("plasma");
-        hasValueProperty = m.createProperty(plasmaURI, "hasValue");
-
-        unprocessedNodes = new ArrayList<>(combinedModel.getSemanticModel().getNodes());
-        unprocessedEdges = new ArrayList<>(combinedModel.getSemanticModel().getEdges());
-
-        // process primitive arrays
-
-        // process serialized arrays
-
-        // identify array contexts
-        List<SemanticModel> arrayContexts = new ArrayList<>();
-        for (SemanticModelNode unprocessedNode : unprocessedNodes) {
-            // check that this node is not part of any existing array context
-            if (arrayContexts.stream()
-                    .flatMap(ic -> ic.getNodes().stream())
-                    .anyMatch(node -> node.getUuid().equals(unprocessedNode.getUuid()))) {
-                continue;
-            }
-            SemanticModel arrayContext = combinedModel.getSemanticModel().getArrayContext(unprocessedNode, new ArrayList<>());
-            if (arrayContext.getNodes().size() == 1) {
-                // check if this node is actually mapped below an array
-                SemanticModelNode semanticModelNode = arrayContext.getNodes().get(0);
-                if (!semanticModelNode.isMapped()) {
-                    continue;
-                }
-                MappableSemanticModelNode mappedNode = (MappableSemanticModelNode) semanticModelNode;
-                SchemaNode schemaNode = combinedModel.getSyntaxModel().getNode(mappedNode.getMappedSyntaxNodeUuid());
-                if (!schemaNode.getPath().contains(ARRAY_PATH_TOKEN)) {
-                    continue;
+
+        private void convert() throws ConversionException {
+            for (ConversionPlan.ArrayContextPlan arrayContextPlan : plan.getArrayContexts()) {
+                SemanticModel arrayContext = arrayContextPlan.getArrayContext();
+                MappableSemanticModelNode indexNode = arrayContextPlan.getIndexNode();
+                // identify the array json node
+                JsonPointer tmpPointer = plan.getPointer(arrayContextPlan.getIndexSchemaNode().getUuid());
+                JsonPointer arrayPointer = null;
+                while (arrayPointer == null) {
+                    JsonNode jsonNode = datum.at(tmpPointer);
+                    if (jsonNode.isArray()) {
+                        arrayPointer = tmpPointer;
+                        continue;
+                    }
+                    if (tmpPointer.matches()) {
+                        throw new ConversionException(
+                                "Could not identify array node for array context containing node " +
+                                        arrayContext.getNodes().get(0).getUuid() +
+                                        " (" + arrayContext.getNodes().get(0).getURI() + ")");
+                    }
+                    tmpPointer = tmpPointer.head();
                 }
+
+                Node list = buildRDFListForArrayContext(arrayContextPlan);
+                uuidtoResource.put(indexNode.getUuid(), list);
             }
 
-            // heck homogeneity of each array context (same level)
-            for (Relation r : arrayContext.getEdges()) {
-                SemanticModelNode from = semanticModel.getNode(r.getFrom());
-                SemanticModelNode to = semanticModel.getNode(r.getTo());
-                int fromLevel = combinedModel.getArrayDepthOfNode(from);
-                int toLevel = combinedModel.getArrayDepthOfNode(to);
-                if (fromLevel > 0 && toLevel > 0 && fromLevel != toLevel) {
-                    throw new ConversionException("Found array context spanning multiple array depths");
-                }
-                // reject all models with array context depth > 1 (remove when #68 is solved)
-                if (fromLevel > 1 || toLevel > 1) {
-                    throw new ConversionException("Array contexts of depth greater than 1 are not yet supported");
-                }
+            // process the remaining nodes and edges
+            for (SemanticModelNode node : plan.getRemainingNodes()) {
+                convertNodeToRDF(node, false);
             }
-            arrayContexts.add(arrayContext);
-        }
-        arrayContexts = arrayContexts.stream().sorted(Comparator.comparing(ac ->
-                                ac.getNodes().stream()
-                                        .filter(SemanticModelNode::isMapped)
-                                        .map(node -> (MappableSemanticModelNode) node)
-                                        .map(node -> combinedModel.getSyntaxModel().getNode(node.getMappedSyntaxNodeUuid()))
-                                        .map(snode -> snode.getPath().stream()
-                                                .filter(token -> token.equals(ARRAY_PATH_TOKEN))
-                                                .count())
-                                        .findFirst().orElseThrow()
-                        )
-                )
-                .collect(Collectors.toList());
-        Collections.reverse(arrayContexts);
-
-        for (SemanticModel arrayContext : arrayContexts) {
-            MappableSemanticModelNode indexNode;
-            if (arrayContext.getNodes().size() == 1) {
-                indexNode = (MappableSemanticModelNode) arrayContext.getNodes().get(0);
-            } else {
-                // identify the index node
-                List<MappableSemanticModelNode> indexNodes = arrayContext.getNodes().stream()
-                        .filter(smn -> smn instanceof MappableSemanticModelNode)
-                        .filter(SemanticModelNode::isMapped)
-                        .map(smn -> (MappableSemanticModelNode) smn)
-                        .filter(smn -> smn.getMappedSyntaxNodePath().endsWith(ARRAY_PATH_TOKEN))
-                        .collect(Collectors.toList());
-                if (indexNodes.size() != 1) {
-                    throw new ConversionException(
-                            "Could not identify unanimous index node for array context containing node " +
-                                    arrayContext.getNodes().get(0).getUuid() +
-                                    " (" + arrayContext.getNodes().get(0).getURI() + ")");
+            for (Relation r : plan.getRemainingEdges()) {
+                if (processed.contains(r)) {
+                    continue;
                 }
-                indexNode = indexNodes.get(0);
-            }
-            // identify the array json node
-            SchemaNode schemaNode = combinedModel.getSyntaxModel().getNode(indexNode.getMappedSyntaxNodeUuid());
-            JsonPointer tmpPointer = JsonPointer.compile(schemaNode.getPathAsJSONPointer());
-            JsonPointer arrayPointer = null;
-            JsonPointer tailPointer = tmpPointer;
-            while (arrayPointer == null) {
-                JsonNode jsonNode = datum.at(tmpPointer);
-                if (jsonNode.isArray()) {
-                    arrayPointer = tmpPointer;
+                SemanticModelNode from = plan.getSemanticNode(r.getFrom());
+                SemanticModelNode to = plan.getSemanticNode(r.getTo());
+                Node fromNode = uuidtoResource.get(from.getUuid());
+                Node toNode = uuidtoResource.get(to.getUuid());
+                if (fromNode == null || toNode == null) {
+                    // one of the nodes is part of an empty array context
                     continue;
                 }
-                if (tmpPointer.toString().equals("/")) {
-                    throw new ConversionException(
-                            "Could not identify array node for array context containing node " +
-                                    arrayContext.getNodes().get(0).getUuid() +
-                                    " (" + arrayContext.getNodes().get(0).getURI() + ")");
+                List<Node> headNodes = List.of(toNode);
+                List<Node> tailNodes = List.of(fromNode);
+                if (!lists.contains(toNode) && arrayExpansionMap.containsKey(to)) {
+                    headNodes = arrayExpansionMap.get(to);
                 }
-                tailPointer = tmpPointer;
-                tmpPointer = tmpPointer.head();
-            }
-
-            JsonNode arrayNode = datum.at(arrayPointer);
-            if (!arrayNode.isArray()) {
-                throw new ConversionException("Node " + arrayPointer + " is not an array!");
-            }
-
-            RDFList list = buildRDFListForArrayContext(indexNode, arrayContext);
-            uuidtoResource.put(indexNode.getUuid(), list);
-        }
-
-        // process the remaining nodes and edges
-        for (SemanticModelNode node : unprocessedNodes) {
-            convertNodeToRDF(node, false);
-        }
-        for (Relation r : unprocessedEdges) {
-            SemanticModelNode from = semanticModel.getNode(r.getFrom());
-            SemanticModelNode to = semanticModel.getNode(r.getTo());
-            RDFNode fromNode = uuidtoResource.get(from.getUuid());
-            RDFNode toNode = uuidtoResource.get(to.getUuid());
-            List<RDFNode> headNodes = List.of(toNode);
-            List<RDFNode> tailNodes = List.of(fromNode);
-            if (!(toNode instanceof RDFList) && arrayExpansionMap.containsKey(to)) {
-                headNodes = arrayExpansionMap.get(to);
-            }
-            if (arrayExpansionMap.containsKey(from)) {
-                tailNodes = arrayExpansionMap.get(from);
-            }
-            for (RDFNode tailNode : tailNodes) {
-                for (RDFNode headNode : headNodes) {
-                    tailNode.asResource().addProperty(m.createProperty(m.expandPrefix(r.getURI())), headNode);
+                if (arrayExpansionMap.containsKey(from)) {
+                    tailNodes = arrayExpansionMap.get(from);
+                }
+                Node property = uri(r.getURI());
+                for (Node tailNode : tailNodes) {
+                    for (Node headNode : headNodes) {
+                        emit(tailNode, property, headNode);
+                    }
                 }
             }
         }
-        return m;
-    }
 
-    private RDFNode convertNodeToRDF(SemanticModelNode node, boolean force) throws ConversionException {
-        if (uuidtoResource.containsKey(node.getUuid()) && !force) {
-            return null;
-        }
-        RDFNode rdfNode = null;
-        if (node instanceof Class) {
-            Class clazz = (Class) node;
-            if (clazz.isMapped()) {
-                String syntaxNodeUuid = clazz.getMappedSyntaxNodeUuid();
-                RDFNode resultNode;
-
-                SchemaNode schemaNode = combinedModel.getSyntaxModel().getNode(syntaxNodeUuid);
-                List<String> nodePath = schemaNode.getPath();
-                if (ARRAY_PATH_TOKEN.equals(nodePath.get(nodePath.size() - 1))) {
-                    // this is a child node of an array, refer back to parent node to build list
-                    JsonNode arrayNode = datum.at(JsonPointer.compile(schemaNode.getPathAsJSONPointer()).head());
-                    if (!(arrayNode instanceof ArrayNode)) {
-                        throw new ConversionException("Node " + JsonPointer.compile(schemaNode.getPathAsJSONPointer()).head() + " is not an array node!");
-                    }
-                    RDFList list = buildRDFListFromArray(arrayNode, clazz, JsonPointer.compile(schemaNode.getPathAsJSONPointer()).head().toString());
-                    arrayExpansionMap.put(clazz, list.asJavaList());
-                    resultNode = list;
-                } else if (schemaNode instanceof SetNode) {
-                    JsonNode arrayNode = datum.at(JsonPointer.compile(schemaNode.getPathAsJSONPointer()));
-                    if (!(arrayNode instanceof ArrayNode)) {
-                        throw new ConversionException("Node " + JsonPointer.compile(schemaNode.getPathAsJSONPointer()) + " is not an array node!");
+        private Node convertNodeToRDF(SemanticModelNode node, boolean force) throws ConversionException {
+            if (uuidtoResource.containsKey(node.getUuid()) && !force) {
+                return null;
+            }
+            Node rdfNode = null;
+            if (node instanceof Class) {
+                Class clazz = (Class) node;
+                if (clazz.isMapped()) {
+                    String syntaxNodeUuid = clazz.getMappedSyntaxNodeUuid();
+                    Node resultNode;
+
+                    SchemaNode schemaNode = plan.getSchemaNode(syntaxNodeUuid);
+                    JsonPointer pointer = plan.getPointer(syntaxNodeUuid);
+                    List<String> nodePath = schemaNode.getPath();
+                    if (ARRAY_PATH_TOKEN.equals(nodePath.get(nodePath.size() - 1))) {
+                        // this is a child node of an array, refer back to parent node to build list
+                        JsonNode arrayNode = datum.at(pointer.head());
+                        if (!(arrayNode instanceof ArrayNode)) {
+                            throw new ConversionException("Node " + pointer.head() + " is not an array node!");
+                        }
+                        resultNode = buildRDFListFromArray(arrayNode, clazz);
+                    } else if (schemaNode instanceof SetNode) {
+                        JsonNode arrayNode = datum.at(pointer);
+                        if (!(arrayNode instanceof ArrayNode)) {
+                            throw new ConversionException("Node " + pointer + " is not an array node!");
+                        }
+                        String value = readJSONArray((ArrayNode) arrayNode);
+                        resultNode = NodeFactory.createLiteral(value);
+                    } else {
+                        //String value = uuidValueMap.get(syntaxNodeUuid);
+                        resultNode = convertClassNodeToRDF(clazz);
                     }
-                    String value = readJSONArray((ArrayNode) arrayNode);
-                    resultNode = m.createLiteral(value);
+                    rdfNode = resultNode;
                 } else {
-                    //String value = uuidValueMap.get(syntaxNodeUuid);
-                    resultNode = convertClassNodeToRDF(clazz);
+                    // not mapped
+                    rdfNode = convertClassNodeToRDF(clazz);
                 }
-                rdfNode = resultNode;
-            } else {
-                // not mapped
-                Resource resource = convertClassNodeToRDF(clazz);
+            } else if (node instanceof Literal) {
+                Literal l = (Literal) node;
+                rdfNode = convertLiteralNodeToRDF(l);
+            } else if (node instanceof NamedEntity) {
+                NamedEntity ne = (NamedEntity) node;
+                // create a resource which describes the named entity
+                // this will later be elevated to the ontology
+                Node neResource = uri(ne.getURI());
+                emit(neResource, TYPE, NAMED_ENTITY);
+
+                Node resource = NodeFactory.createBlankNode();
+                emit(resource, TYPE, neResource);
+                // use the b-node as reference
                 rdfNode = resource;
             }
-        } else if (node instanceof Literal) {
-            Literal l = (Literal) node;
-            rdfNode = convertLiteralNodeToRDF(l);
-        } else if (node instanceof NamedEntity) {
-            NamedEntity ne = (NamedEntity) node;
-            // create a resource which describes the named entity
-            // this will later be elevated to the ontology
-            Resource neResource = m.createResource(m.expandPrefix(ne.getURI()));
-            neResource.addProperty(RDF.type, PLCM.NamedEntity);
-
-            Resource resource = m.createResource();
-            resource.addProperty(RDF.type, neResource);
-            // use the b-node as reference
-            rdfNode = resource;
-        }
-        uuidtoResource.put(node.getUuid(), rdfNode);
-        return rdfNode;
-    }
-
-    private RDFList buildRDFListForArrayContext(MappableSemanticModelNode indexNode, SemanticModel arrayContext) throws ConversionException {
-        MappableSyntaxNode syntaxNode = findMappedSyntaxNode(indexNode);
-        ArrayList<String> mappedSyntaxNodePath = new ArrayList<>(syntaxNode.getPath());
-
-        PointerFactory pf = new PointerFactory(mappedSyntaxNodePath);
-        processed = new HashSet<>();
-
-        // for each data point in the array node, a new set of rdf entities has to be generated
-        List<RDFList> list = new ArrayList<>();
-        JsonPointer peekPointer = JsonPointer.compile(pf.composePath());
-        JsonNode peekNode = datum.at(peekPointer);
-        while (!peekNode.isMissingNode()) {
-            list.add(iterateArray(pf, 0, indexNode, arrayContext));
-            pf.increaseIndex(0);
-            peekPointer = JsonPointer.compile(pf.composePath());
-            peekNode = datum.at(peekPointer);
+            uuidtoResource.put(node.getUuid(), rdfNode);
+            return rdfNode;
         }
-        unprocessedEdges.removeAll(processed);
-        return list.get(0);
-    }
 
-    private RDFList iterateArray(PointerFactory pf, int level, MappableSemanticModelNode indexNode, SemanticModel arrayContext) throws ConversionException {
-        if (level >= pf.getDepth()) {
-            // process
-            String originPointer = pf.composePath();
-            JsonPointer peekPointer = JsonPointer.compile(pf.composePath());
-            JsonNode peekNode = datum.at(peekPointer);
-            List<RDFNode> nodes = new ArrayList<>();
-
-            while (!peekNode.isMissingNode()) {
-                JsonNode entry = datum.at(JsonPointer.compile(pf.composePath()));
-                RDFNode rdfIndexNode = processArrayContext(arrayContext, indexNode, pf.getOriginalPath(), pf.composePath(), entry);
-                nodes.add(rdfIndexNode);
-                pf.increaseIndex(level);
-                peekPointer = JsonPointer.compile(pf.composePath());
-                peekNode = datum.at(peekPointer);
+        private Node buildRDFListForArrayContext(ConversionPlan.ArrayContextPlan arrayContextPlan) throws ConversionException {
+            if (arrayContextPlan.getLevels() == 0) {
+                throw new ConversionException("Index node " + arrayContextPlan.getIndexNode().getUuid() + " is not located below an array");
             }
-            RDFList list = m.createList(nodes.iterator());
-            deepListMap.put(originPointer, list);
-            return list;
-        } else {
-            return iterateArray(pf, level + 1, indexNode, arrayContext);
+            // for each data point in the array node, a new set of rdf entities has to be generated
+            List<Node> contextLists = new ArrayList<>();
+            iterateArray(arrayContextPlan, datum, 0, new int[arrayContextPlan.getLevels()], contextLists);
+            processed.addAll(processedInContext);
+            processedInContext.clear();
+            arrayExpansionObserver.accept(expanded);
+            expanded = 0;
+            if (contextLists.isEmpty()) {
+                return createList(List.of());
+            }
+            return contextLists.get(0);
         }
-    }
 
-
-    private MappableSyntaxNode findMappedSyntaxNode(MappableSemanticModelNode node) {
-        return combinedModel.getSyntaxModel().getNodes().stream()
-                .filter(n -> n.getUuid().equals(node.getMappedSyntaxNodeUuid()))
-                .map(n -> (MappableSyntaxNode) n)
-                .findFirst().orElseThrow();
-    }
-
-    private RDFNode processArrayContext(SemanticModel arrayContext, MappableSemanticModelNode indexNode,
-                                        String basePath, String currentPath, JsonNode entry) throws ConversionException {
-        RDFNode rdfIndexNode = null;
-        for (SemanticModelNode node : arrayContext.getNodes()) {
-            RDFNode rdfNode = convertNodeInArrayContextToRDF(node, entry, basePath);
-            if (node.equals(indexNode)) {
-                rdfIndexNode = rdfNode;
+        /**
+         * Iterates the elements of the array on the given level and descends into the nested arrays until the innermost level is reached.
+         * Iteration of a level stops at the first element that does not contain the mapped entry.
+         *
+         * @return true if at least one entry was found
+         */
+        private boolean iterateArray(ConversionPlan.ArrayContextPlan arrayContextPlan, JsonNode parent, int level, int[] indices,
+                                     List<Node> contextLists) throws ConversionException {
+            JsonNode arrayNode = parent.at(arrayContextPlan.getArrayPointer(level));
+            if (!arrayNode.isArray()) {
+                return false;
             }
-            if (!arrayExpansionMap.containsKey(node)) {
-                arrayExpansionMap.put(node, new ArrayList<>());
+            boolean innermost = level == arrayContextPlan.getLevels() - 1;
+            List<Node> nodes = new ArrayList<>();
+            boolean found = false;
+            int index = 0;
+            for (JsonNode element : arrayNode) {
+                indices[level] = index++;
+                if (innermost) {
+                    JsonNode entry = element.at(arrayContextPlan.getEntryPointer());
+                    if (entry.isMissingNode()) {
+                        break;
+                    }
+                    nodes.add(processArrayContext(arrayContextPlan, indices, entry));
+                } else if (iterateArray(arrayContextPlan, element, level + 1, indices, contextLists)) {
+                    found = true;
+                } else {
+                    break;
+                }
             }
-            arrayExpansionMap.get(node).add(rdfNode);
-            unprocessedNodes.remove(node);
-        }
-        for (Relation r : arrayContext.getEdges()) {
-            SemanticModelNode from = arrayContext.getNode(r.getFrom());
-            SemanticModelNode to = arrayContext.getNode(r.getTo());
-            RDFNode fromNode = uuidtoResource.get(from.getUuid());
-            RDFNode toNode = uuidtoResource.get(to.getUuid());
-            List<RDFNode> headNodes = List.of(toNode);
-            List<RDFNode> tailNodes = List.of(fromNode);
-
-            if (!arrayContext.getNodes().contains(to) && arrayExpansionMap.containsKey(to)) {
-                headNodes = arrayExpansionMap.get(to);
+            if (!innermost) {
+                return found;
             }
-            if (!arrayContext.getNodes().contains(from) && arrayExpansionMap.containsKey(from)) {
-                tailNodes = arrayExpansionMap.get(from);
+            if (nodes.isEmpty()) {
+                return false;
             }
-            for (RDFNode tailNode : tailNodes) {
-                for (RDFNode headNode : headNodes) {
-                    tailNode.asResource().addProperty(m.createProperty(m.expandPrefix(r.getURI())), headNode);
+            expanded += nodes.size();
+            Node list = createList(nodes);
+            indices[level] = 0;
+            deepListMap.put(arrayContextPlan.composePath(indices), list);
+            contextLists.add(list);
+            return true;
+        }
+
+
+        private Node processArrayContext(ConversionPlan.ArrayContextPlan arrayContextPlan, int[] indices, JsonNode entry) throws ConversionException {
+            SemanticModel arrayContext = arrayContextPlan.getArrayContext();
+            MappableSemanticModelNode indexNode = arrayContextPlan.getIndexNode();
+            Node rdfIndexNode = null;
+            for (SemanticModelNode node : arrayContext.getNodes()) {
+                Node rdfNode = convertNodeInArrayContextToRDF(node, entry, arrayContextPlan.getPointers());
+                if (node.equals(indexNode)) {
+                    rdfIndexNode = rdfNode;
                 }
+                arrayExpansionMap.computeIfAbsent(node, k -> new ArrayList<>()).add(rdfNode);
             }
-            unprocessedEdges.remove(r);
-        }
-        // search outside of array context
-
-        for (Relation r : unprocessedEdges) {
-            SemanticModelNode from = combinedModel.getSemanticModel().getNode(r.getFrom());
-            SemanticModelNode to = combinedModel.getSemanticModel().getNode(r.getTo());
-            RDFNode fromNode = uuidtoResource.get(from.getUuid());
-            RDFNode toNode = uuidtoResource.get(to.getUuid());
-            if (fromNode == null || toNode == null) {
-                continue;
+            for (Relation r : arrayContext.getEdges()) {
+                SemanticModelNode from = arrayContext.getNode(r.getFrom());
+                SemanticModelNode to = arrayContext.getNode(r.getTo());
+                Node fromNode = uuidtoResource.get(from.getUuid());
+                Node toNode = uuidtoResource.get(to.getUuid());
+                List<Node> headNodes = List.of(toNode);
+                List<Node> tailNodes = List.of(fromNode);
+
+                if (!arrayContext.getNodes().contains(to) && arrayExpansionMap.containsKey(to)) {
+                    headNodes = arrayExpansionMap.get(to);
+                }
+                if (!arrayContext.getNodes().contains(from) && arrayExpansionMap.containsKey(from)) {
+                    tailNodes = arrayExpansionMap.get(from);
+                }
+                Node property = uri(r.getURI());
+                for (Node tailNode : tailNodes) {
+                    for (Node headNode : headNodes) {
+                        emit(tailNode, property, headNode);
+                    }
+                }
             }
-            for (Map.Entry<String, RDFNode> listmapEntry : deepListMap.entrySet()) {
-                if (listmapEntry.getKey().startsWith(currentPath)) {
-                    RDFNode headNode = listmapEntry.getValue();
-                    fromNode.asResource().addProperty(m.createProperty(m.expandPrefix(r.getURI())), headNode);
-                    processed.add(r);
+            // search outside of array context
+            String currentPath = null;
+            for (Relation r : arrayContextPlan.getOuterEdges()) {
+                if (processed.contains(r)) {
+                    continue;
+                }
+                SemanticModelNode from = plan.getSemanticNode(r.getFrom());
+                SemanticModelNode to = plan.getSemanticNode(r.getTo());
+                Node fromNode = uuidtoResource.get(from.getUuid());
+                Node toNode = uuidtoResource.get(to.getUuid());
+                if (fromNode == null || toNode == null || deepListMap.isEmpty()) {
+                    continue;
+                }
+                if (currentPath == null) {
+                    currentPath = arrayContextPlan.composePath(indices);
+                }
+                for (Map.Entry<String, Node> listmapEntry : deepListMap.entrySet()) {
+                    if (listmapEntry.getKey().startsWith(currentPath)) {
+                        emit(fromNode, uri(r.getURI()), listmapEntry.getValue());
+                        processedInContext.add(r);
+                    }
                 }
             }
-        }
 
-        return rdfIndexNode;
-    }
+            return rdfIndexNode;
+        }
 
-    private RDFNode convertNodeInArrayContextToRDF(SemanticModelNode node, JsonNode datum, String relativePath) throws ConversionException {
-        RDFNode rdfNode = null;
-        if (node instanceof Class) {
-            Class clazz = (Class) node;
-            if (clazz.isMapped()) {
-                String syntaxNodeUuid = clazz.getMappedSyntaxNodeUuid();
-                RDFNode resultNode;
-                SchemaNode schemaNode = combinedModel.getSyntaxModel().getNode(syntaxNodeUuid);
-
-
-                /*
-                 List<String> nodePath = schemaNode.getPath();
-                if (ARRAY_ELEMENT_NAME.equals(nodePath.get(nodePath.size() - 1))) {
-                    // this is a child node of an array, refer back to parent node to build list
-                    JsonNode arrayNode = datum.at(JsonPointer.compile(schemaNode.getPathAsJSONPointer()).head());
-                    if (!(arrayNode instanceof ArrayNode)) {
-                        throw new ConversionException("Node " + JsonPointer.compile(schemaNode.getPathAsJSONPointer()).head() + " is not an array node!");
-                    }
-                    RDFList list = buildRDFListFromArray(arrayNode, clazz, JsonPointer.compile(schemaNode.getPathAsJSONPointer()).head().toString());
-                    arrayExpansionMap.put(clazz, list.asJavaList());
-                    resultNode = list;
-                } else
-                 */
-                if (schemaNode instanceof SetNode) {
-                    String jsonPointerPath = schemaNode.getPathAsJSONPointer();
-                    jsonPointerPath = jsonPointerPath.replaceFirst(relativePath, "");
-                    JsonNode arrayNode = datum.at(JsonPointer.compile(jsonPointerPath));
-                    if (!(arrayNode instanceof ArrayNode)) {
-                        throw new ConversionException("Node " + JsonPointer.compile(schemaNode.getPathAsJSONPointer()) + " is not an array node!");
+        private Node convertNodeInArrayContextToRDF(SemanticModelNode node, JsonNode datum, Map<String, JsonPointer> pointers) throws ConversionException {
+            Node rdfNode = null;
+            if (node instanceof Class) {
+                Class clazz = (Class) node;
+                if (clazz.isMapped()) {
+                    String syntaxNodeUuid = clazz.getMappedSyntaxNodeUuid();
+                    Node resultNode;
+                    SchemaNode schemaNode = plan.getSchemaNode(syntaxNodeUuid);
+
+
+                    /*
+                     List<String> nodePath = schemaNode.getPath();
+                    if (ARRAY_ELEMENT_NAME.equals(nodePath.get(nodePath.size() - 1))) {
+                        // this is a child node of an array, refer back to parent node to build list
+                        JsonNode arrayNode = datum.at(JsonPointer.compile(schemaNode.getPathAsJSONPointer()).head());
+                        if (!(arrayNode instanceof ArrayNode)) {
+                            throw new ConversionException("Node " + JsonPointer.compile(schemaNode.getPathAsJSONPointer()).head() + " is not an array node!");
+                        }
+                        RDFList list = buildRDFListFromArray(arrayNode, clazz, JsonPointer.compile(schemaNode.getPathAsJSONPointer()).head().toString());
+                        arrayExpansionMap.put(clazz, list.asJavaList());
+                        resultNode = list;
+                    } else
+                     */
+                    if (schemaNode instanceof SetNode) {
+                        JsonNode arrayNode = datum.at(pointers.get(syntaxNodeUuid));
+                        if (!(arrayNode instanceof ArrayNode)) {
+                            throw new ConversionException("Node " + plan.getPointer(syntaxNodeUuid) + " is not an array node!");
+                        }
+                        String value = readJSONArray((ArrayNode) arrayNode);
+                        resultNode = NodeFactory.createLiteral(value);
+                    } else if (schemaNode instanceof ObjectNode) {
+                        resultNode = convertClassNodeToRDF(clazz, datum, pointers);
+                    } else if (schemaNode instanceof PrimitiveNode) {
+                        resultNode = convertClassNodeToRDF(clazz, datum, pointers);
+                    } else {
+                        log.warn("Encountered unknown node type for processing:" + schemaNode);
+                        return null;
                     }
-                    String value = readJSONArray((ArrayNode) arrayNode);
-                    resultNode = m.createLiteral(value);
-                } else if (schemaNode instanceof ObjectNode) {
-                    resultNode = convertClassNodeToRDF(clazz, datum, relativePath);
-                } else if (schemaNode instanceof PrimitiveNode) {
-                    resultNode = convertClassNodeToRDF(clazz, datum, relativePath);
+                    rdfNode = resultNode;
                 } else {
-                    log.warn("Encountered unknown node type for processing:" + schemaNode);
-                    return null;
+                    // not mapped
+                    rdfNode = convertClassNodeToRDF(clazz, datum, pointers);
                 }
-                rdfNode = resultNode;
-            } else {
-                // not mapped
-                Resource resource = convertClassNodeToRDF(clazz, datum, relativePath);
-                rdfNode = resource;
-            }
-        } else if (node instanceof Literal) {
-            Literal l = (Literal) node;
-            rdfNode = convertLiteralNodeToRDF(l, datum, relativePath);
+            } else if (node instanceof Literal) {
+                Literal l = (Literal) node;
+                rdfNode = convertLiteralNodeToRDF(l, datum, pointers);
 
-        } else if (node instanceof NamedEntity) {
-            throw new ConversionException("Named Entity " + node.getURI() + " should not be part of an iteration context!");
+            } else if (node instanceof NamedEntity) {
+                throw new ConversionException("Named Entity " + node.getURI() + " should not be part of an iteration context!");
+            }
+            uuidtoResource.put(node.getUuid(), rdfNode);
+            return rdfNode;
         }
-        uuidtoResource.put(node.getUuid(), rdfNode);
-        return rdfNode;
-    }
 
 
-    @NotNull
-    private Resource convertClassNodeToRDF(Class clazz) throws ConversionException {
-        return convertClassNodeToRDF(clazz, datum, "");
-    }
-
-    public static String convertToInstanceId(String label) {
-        String formatted = label.trim().toLowerCase().replace(" ", "_");
-        formatted = HtmlUtils.htmlEscape(formatted);
-        formatted = formatted.replaceAll("##", "_");
-        formatted = formatted.replaceAll("#", "_");
-        formatted = formatted.replaceAll("\\[", "_");
-        formatted = formatted.replaceAll("\\]", "_");
-        formatted = formatted.replaceAll("\\)", "_");
-        formatted = formatted.replaceAll("\\(", "_");
-        formatted = formatted.replaceAll("__", "_");
-        return formatted;
-    }
+        @NotNull
+        private Node convertClassNodeToRDF(Class clazz) throws ConversionException {
+            return convertClassNodeToRDF(clazz, datum, plan.getPointers());
+        }
 
-    private RDFNode convertLiteralNodeToRDF(Literal l) throws ConversionException {
-        return convertLiteralNodeToRDF(l, datum, "");
-    }
+        private Node convertLiteralNodeToRDF(Literal l) throws ConversionException {
+            return convertLiteralNodeToRDF(l, datum, plan.getPointers());
+        }
 
-    private RDFNode convertLiteralNodeToRDF(Literal l, JsonNode datum, String relativePath) throws ConversionException {
-        if (l.isMapped()) {
-            String syntaxNodeUuid = l.getMappedSyntaxNodeUuid();
-            SchemaNode schemaNode = combinedModel.getSyntaxModel().getNode(syntaxNodeUuid);
-            String jsonPointerPath = schemaNode.getPathAsJSONPointer();
-            jsonPointerPath = jsonPointerPath.replaceFirst(relativePath, "");
-            JsonNode valueNode = datum.at(JsonPointer.compile(jsonPointerPath));
-            if (!valueNode.isValueNode()) {
-                throw new ConversionException("Node " + JsonPointer.compile(schemaNode.getPathAsJSONPointer()) + " is not a value node!");
-            }
-            if (valueNode.isMissingNode()) {
-                // throw new ConversionException("Could not find value for syntaxId " + syntaxNodeUuid + " on model " + combinedModel.getId());
-                return m.createLiteral(MISSING_DATA_LITERAL);
+        private Node convertLiteralNodeToRDF(Literal l, JsonNode datum, Map<String, JsonPointer> pointers) throws ConversionException {
+            if (l.isMapped()) {
+                String syntaxNodeUuid = l.getMappedSyntaxNodeUuid();
+                JsonNode valueNode = datum.at(pointers.get(syntaxNodeUuid));
+                if (!valueNode.isValueNode()) {
+                    throw new ConversionException("Node " + plan.getPointer(syntaxNodeUuid) + " is not a value node!");
+                }
+                return valueLiteral(valueNode);
             } else {
-                String value = valueNode.asText();
-                return m.createLiteral(value);
+                return NodeFactory.createLiteral(l.getValue());
             }
-        } else {
-            return m.createLiteral(l.getValue());
         }
-    }
 
-    /**
-     * Parses the values of an array and converts them to an {@link RDFList}.
-     *
-     * @param arrayNode The JSON node containing the array data
-     * @return The root element of the list
-     */
-    private RDFList buildRDFListFromArray(JsonNode arrayNode, Class clazz, String relativePath) throws ConversionException {
-        /*
-        SchemaNode schemaNode = combinedModel.getSyntaxModel().getNode(syntaxNodeUuid);
-        if(!(schemaNode instanceof SetNode)){
-            throw new ConversionException("Node " + syntaxNodeUuid + " is no SetNode");
-        }
-        SetNode node = (SetNode) schemaNode;
+        /**
+         * Parses the values of an array and converts them to an RDF list.
+         *
+         * @param arrayNode The JSON node containing the array data
+         * @return The root element of the list
          */
-        List<RDFNode> nodes = new ArrayList<>();
-        for (JsonNode node : arrayNode) {
-            if (node.isValueNode()) {
-                if (clazz != null) {
-                    Resource classResource = convertClassNodeToRDF(clazz);
-                    org.apache.jena.rdf.model.Literal valueLiteral = m.createLiteral(node.asText());
-                    classResource.addProperty(hasValueProperty, valueLiteral);
-                    nodes.add(classResource);
+        private Node buildRDFListFromArray(JsonNode arrayNode, Class clazz) throws ConversionException {
+            /*
+            SchemaNode schemaNode = combinedModel.getSyntaxModel().getNode(syntaxNodeUuid);
+            if(!(schemaNode instanceof SetNode)){
+                throw new ConversionException("Node " + syntaxNodeUuid + " is no SetNode");
+            }
+            SetNode node = (SetNode) schemaNode;
+             */
+            List<Node> nodes = new ArrayList<>();
+            for (JsonNode node : arrayNode) {
+                if (node.isValueNode()) {
+                    if (clazz != null) {
+                        Node classResource = convertClassNodeToRDF(clazz);
+                        emit(classResource, hasValue, NodeFactory.createLiteral(node.asText()));
+                        nodes.add(classResource);
+                    } else {
+                        nodes.add(NodeFactory.createLiteral(node.asText()));
+                    }
                 } else {
-                    nodes.add(m.createLiteral(node.asText()));
+                    // should not happen
+                    throw new ConversionException("There are no unprocessed complex arrays");
                 }
-            } else {
-                // should not happen
-                throw new ConversionException("There are no unprocessed complex arrays");
             }
+            if (clazz != null) {
+                arrayExpansionMap.put(clazz, nodes);
+            }
+            return createList(nodes);
         }
-        return m.createList(nodes.iterator());
-    }
-
-    @NotNull
-    private Resource convertClassNodeToRDF(Class clazz, JsonNode datum, String relativePath) throws ConversionException {
-        Instance i = clazz.getInstance();
-        Resource resource;
-        String baseURI = smURI + semanticModelId + "-" + getCounter();
 
-        resource = m.createResource(baseURI);
-        if (i != null) {
-            if (!PREDEFINED_LABELS.contains(i.getLabel())) {
-                resource.addProperty(PLCM.label, m.createLiteral(i.getLabel()));
+        @NotNull
+        private Node convertClassNodeToRDF(Class clazz, JsonNode datum, Map<String, JsonPointer> pointers) throws ConversionException {
+            Instance i = clazz.getInstance();
+            Node resource = NodeFactory.createURI(smURI + semanticModelId + "-" + getCounter());
+            if (i != null) {
+                if (!PREDEFINED_LABELS.contains(i.getLabel())) {
+                    emit(resource, LABEL, NodeFactory.createLiteral(i.getLabel()));
+                }
+                if (i.getDescription() != null && !i.getDescription().isBlank()) {
+                    emit(resource, DESCRIPTION, NodeFactory.createLiteral(i.getDescription()));
+                }
             }
-            if (i.getDescription() != null && !i.getDescription().isBlank()) {
-                resource.addProperty(PLCM.description, m.createLiteral(i.getDescription()));
+            emit(resource, TYPE, uri(clazz.getURI()));
+            if (clazz.isMapped()) {
+                SchemaNode schemaNode = plan.getSchemaNode(clazz.getMappedSyntaxNodeUuid());
+                if (schemaNode instanceof ObjectNode) {
+                    // ignore the mapping, this is just for clarification
+                    return resource;
+                }
+                JsonNode valueNode = datum.at(pointers.get(schemaNode.getUuid()));
+                if (!valueNode.isValueNode()) {
+                    throw new ConversionException("Node " + plan.getPointer(schemaNode.getUuid()) + " is not a value node!");
+                }
+                emit(resource, hasValue, valueLiteral(valueNode));
             }
+            return resource;
         }
-        resource.addProperty(RDF.type, m.createResource(m.expandPrefix(clazz.getURI())));
-        if (clazz.isMapped()) {
-            SchemaNode schemaNode = combinedModel.getSyntaxModel().getNode(clazz.getMappedSyntaxNodeUuid());
-            if (schemaNode instanceof ObjectNode) {
-                // ignore the mapping, this is just for clarification
-                return resource;
-            }
-            String jsonPointerPath = schemaNode.getPathAsJSONPointer();
-            jsonPointerPath = jsonPointerPath.replaceFirst(relativePath, "");
-            JsonNode valueNode = datum.at(JsonPointer.compile(jsonPointerPath));
-            if (!valueNode.isValueNode()) {
-                throw new ConversionException("Node " + JsonPointer.compile(schemaNode.getPathAsJSONPointer()) + " is not a value node!");
-            }
-            org.apache.jena.rdf.model.Literal valueLiteral;
+
+        private Node valueLiteral(JsonNode valueNode) {
             if (valueNode.isMissingNode()) {
                 // throw new ConversionException("Could not find value for syntaxId " + syntaxNodeUuid + " on model " + combinedModel.getId());
-                valueLiteral = m.createLiteral(MISSING_DATA_LITERAL);
-            } else {
-                String value = valueNode.asText();
-                valueLiteral = m.createLiteral(value);
+                return MISSING_DATA_NODE;
+            }
+            return NodeFactory.createLiteral(valueNode.asText());
+        }
+
+        /**
+         * Emits the triples of an RDF collection containing the given nodes.
+         *
+         * @return the head of the list, rdf:nil if the list is empty
+         */
+        private Node createList(List<Node> members) throws ConversionException {
+            Node head = members.isEmpty() ? NIL : NodeFactory.createBlankNode();
+            Node cell = head;
+            for (int i = 0; i < members.size(); i++) {
+                Node next = i == members.size() - 1 ? NIL : NodeFactory.createBlankNode();
+                emit(cell, FIRST, members.get(i));
+                emit(cell, REST, next);
+                cell = next;
+            }
+            lists.add(head);
+            return head;
+        }
+
+        private void emit(Node subject, Node predicate, Node object) throws ConversionException {
+            if (subject.isLiteral()) {
+                throw new ConversionException("Literal " + subject + " cannot be the subject of " + predicate);
             }
-            m.add(resource, hasValueProperty, valueLiteral);
+            sink.triple(Triple.create(subject, predicate, object));
         }
-        return resource;
     }
 
     /**
@@ -0,0 +1,98 @@
+package de.buw.tmdt.plasma.services.dps.conversion.rdf;
+
+import org.apache.jena.riot.RDFFormat;
+import org.jetbrains.annotations.Nullable;
+
+import java.util.Arrays;
+import java.util.List;
+import java.util.Locale;
+import java.util.Optional;
+
+/**
+ * The serializations offered for converted data.
+ * Formats with a streaming variant are written triple by triple while the conversion is running,
+ * all others need the complete graph in memory before they can be written.
+ */
+public enum RDFOutputFormat {
+
+    TURTLE(RDFFormat.TURTLE_PRETTY, RDFFormat.TURTLE_BLOCKS, "text/turtle", false, "turtle", "ttl"),
+    NTRIPLES(RDFFormat.NTRIPLES, RDFFormat.NTRIPLES, "application/n-triples", false, "ntriples", "n-triples", "nt"),
+    NQUADS(RDFFormat.NQUADS, RDFFormat.NQUADS, "application/n-quads", false, "nquads", "n-quads", "nq"),
+    JSONLD(RDFFormat.JSONLD, null, "application/ld+json", false, "jsonld", "json-ld"),
+    THRIFT(RDFFormat.RDF_THRIFT, RDFFormat.RDF_THRIFT, "application/rdf+thrift", true, "thrift", "rdf-thrift", "rt");
+
+    private final RDFFormat format;
+    private final RDFFormat streamingFormat;
+    private final String mediaType;
+    private final boolean binary;
+    private final List<String> names;
+
+    RDFOutputFormat(RDFFormat format, @Nullable RDFFormat streamingFormat, String mediaType, boolean binary, String... names) {
+        this.format = format;
+        this.streamingFormat = streamingFormat;
+        this.mediaType = mediaType;
+        this.binary = binary;
+        this.names = Arrays.asList(names);
+    }
+
+    /**
+     * Looks up a format by one of its names, ignoring the case.
+     *
+     * @param name the name of the format, e.g. "turtle" or "ntriples"
+     * @return the format or an empty optional if the name is unknown
+     */
+    public static Optional<RDFOutputFormat> fromName(String name) {
+        if (name == null) {
+            return Optional.empty();
+        }
+        String normalized = name.trim().toLowerCase(Locale.ROOT);
+        return Arrays.stream(values())
+                .filter(f -> f.names.contains(normalized))
+                .findFirst();
+    }
+
+    /**
+     * The format used to write a complete graph.
+     *
+     * @return the Jena format
+     */
+    public RDFFormat getFormat() {
+        return format;
+    }
+
+    /**
+     * The format used to write triples as they are produced.
+     *
+     * @return the Jena streaming format or null if this format cannot be streamed
+     */
+    @Nullable
+    public RDFFormat getStreamingFormat() {
+        return streamingFormat;
+    }
+
+    public boolean isStreamable() {
+        return streamingFormat != null;
+    }
+
+    public String getMediaType() {
+        return mediaType;
+    }
+
+    /**
+     * The usual file extension of this format.
+     *
+     * @return the extension without leading dot
+     */
+    public String getFileExtension() {
+        return format.getLang().getFileExtensions().get(0);
+    }
+
+    /**
+     * Binary formats cannot be returned as a {@link String}.
+     *
+     * @return true if this is a binary format
+     */
+    public boolean isBinary() {
+        return binary;
+    }
+}
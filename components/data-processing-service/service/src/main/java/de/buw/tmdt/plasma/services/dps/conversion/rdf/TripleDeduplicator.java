@@ -0,0 +1,116 @@
+package de.buw.tmdt.plasma.services.dps.conversion.rdf;
+
+import org.apache.jena.graph.Node;
+import org.apache.jena.graph.Triple;
+import org.apache.jena.riot.system.StreamRDF;
+import org.apache.jena.riot.system.StreamRDFWrapper;
+import org.jetbrains.annotations.Nullable;
+
+import java.util.HashSet;
+import java.util.Set;
+
+/**
+ * Drops triples that have already been sent to the wrapped sink during the same conversion.
+ * Only model level triples are checked, i.e. triples whose subject is a URI which was not minted for an instance by the {@link RDFConverter}.
+ * Instance and blank node triples are unique per record by construction and are passed through without being remembered.
+ * <p>
+ * Seen triples are kept in an exact set until it reaches the configured size. After that the set is replaced by a Bloom filter of fixed
+ * size, so memory stays bounded for arbitrarily large conversions. A false positive of the filter drops a triple which has not been
+ * emitted before, the probability of this depends on the size of the filter and the number of distinct model level triples.
+ */
+public class TripleDeduplicator extends StreamRDFWrapper {
+
+    private static final int HASH_FUNCTIONS = 5;
+
+    private final String instanceNamespace;
+    private final int exactLimit;
+    private final long bloomBits;
+
+    private Set<Triple> seen = new HashSet<>();
+    private long[] bloom;
+    private long dropped = 0;
+
+    /**
+     * Creates the stage.
+     *
+     * @param sink              the sink receiving the distinct triples
+     * @param instanceNamespace the namespace of the instances minted by the converter, all URI subjects are checked if null
+     * @param exactLimit        the number of distinct triples to remember exactly before switching to the Bloom filter
+     * @param bloomBits         the size of the Bloom filter in bits
+     */
+    public TripleDeduplicator(StreamRDF sink, @Nullable String instanceNamespace, int exactLimit, long bloomBits) {
+        super(sink);
+        if (bloomBits < Long.SIZE) {
+            throw new IllegalArgumentException("Bloom filter must have at least " + Long.SIZE + " bits");
+        }
+        this.instanceNamespace = instanceNamespace;
+        this.exactLimit = exactLimit;
+        this.bloomBits = bloomBits / Long.SIZE * Long.SIZE;
+    }
+
+    @Override
+    public void triple(Triple triple) {
+        if (isModelLevel(triple.getSubject()) && !firstOccurrence(triple)) {
+            dropped++;
+            return;
+        }
+        super.triple(triple);
+    }
+
+    /**
+     * The number of triples dropped so far.
+     */
+    public long getDropped() {
+        return dropped;
+    }
+
+    private boolean isModelLevel(Node subject) {
+        return subject.isURI() && (instanceNamespace == null || !subject.getURI().startsWith(instanceNamespace));
+    }
+
+    private boolean firstOccurrence(Triple triple) {
+        if (seen != null) {
+            if (!seen.add(triple)) {
+                return false;
+            }
+            if (seen.size() > exactLimit) {
+                bloom = new long[Math.toIntExact(bloomBits / Long.SIZE)];
+                seen.forEach(this::mightContainOrAdd);
+                seen = null;
+            }
+            return true;
+        }
+        return !mightContainOrAdd(triple);
+    }
+
+    /**
+     * Adds the triple to the Bloom filter.
+     *
+     * @return true if all bits of the triple were already set
+     */
+    private boolean mightContainOrAdd(Triple triple) {
+        long h1 = mix(((long) triple.getSubject().hashCode() << 32) ^ (triple.getPredicate().hashCode() & 0xffffffffL));
+        long h2 = mix(h1 ^ triple.getObject().hashCode() * 0x9E3779B97F4A7C15L);
+        boolean present = true;
+        for (int i = 0; i < HASH_FUNCTIONS; i++) {
+            long bit = Math.floorMod(h1 + i * h2, bloomBits);
+            int word = (int) (bit >>> 6);
+            long mask = 1L << bit;
+            if ((bloom[word] & mask) == 0) {
+                present = false;
+                bloom[word] |= mask;
+            }
+        }
+        return present;
+    }
+
+    private static long mix(long h) {
+        // finalizer of MurmurHash3
+        h ^= h >>> 33;
+        h *= 0xff51afd7ed558ccdL;
+        h ^= h >>> 33;
+        h *= 0xc4ceb9fe1a85ec53L;
+        h ^= h >>> 33;
+        return h;
+    }
+}
@@ -0,0 +1,135 @@
+package de.buw.tmdt.plasma.services.dps.core;
+
+import com.fasterxml.jackson.databind.JsonNode;
+import de.buw.tmdt.plasma.services.dps.conversion.ConversionException;
+import de.buw.tmdt.plasma.services.dps.conversion.json.JsonRecordReader;
+import de.buw.tmdt.plasma.services.dps.conversion.rdf.ConversionPlan;
+import de.buw.tmdt.plasma.services.dps.conversion.rdf.ParallelRDFConverter;
+import org.apache.jena.riot.system.StreamRDF;
+import org.jetbrains.annotations.Nullable;
+
+import java.io.ByteArrayOutputStream;
+import java.io.Closeable;
+import java.io.IOException;
+import java.nio.charset.StandardCharsets;
+import java.util.Iterator;
+import java.util.NoSuchElementException;
+
+/**
+ * A conversion that is advanced step by step by its consumer.
+ * Each step converts the next records of the file and returns the output the writer has produced so far,
+ * so no more records are converted than the consumer has asked for.
+ */
+class ChunkedConversion implements Closeable {
+
+    private final JsonRecordReader reader;
+    private final ConversionPlan plan;
+    private final ParallelRDFConverter converter;
+    private final StreamRDF sink;
+    private final StreamRDF writer;
+    private final ChunkBuffer buffer;
+    private final int recordsPerStep;
+    private final ConversionMetrics metrics;
+    private long bytesRead = 0;
+    private boolean finished = false;
+
+    /**
+     * Creates the conversion, the writer must already be started and write to the given buffer.
+     *
+     * @param sink   the sink the converter sends the triples to, which forwards them to the writer
+     * @param writer the writer to finish after the last record
+     */
+    ChunkedConversion(JsonRecordReader reader, ConversionPlan plan, ParallelRDFConverter converter, StreamRDF sink, StreamRDF writer,
+                      ChunkBuffer buffer, int recordsPerStep, ConversionMetrics metrics) {
+        this.reader = reader;
+        this.plan = plan;
+        this.converter = converter;
+        this.sink = sink;
+        this.writer = writer;
+        this.buffer = buffer;
+        this.recordsPerStep = recordsPerStep;
+        this.metrics = metrics;
+    }
+
+    /**
+     * Converts records until the writer has produced output or the file is exhausted.
+     *
+     * @return the next part of the output or null if the conversion is complete
+     * @throws IOException         if the file cannot be read
+     * @throws ConversionException if a record cannot be converted
+     */
+    @Nullable
+    String next() throws IOException, ConversionException {
+        while (!buffer.hasChunk() && !finished) {
+            if (reader.hasNext()) {
+                converter.convert(plan, nextRecords(), sink);
+            } else {
+                writer.finish();
+                finished = true;
+            }
+        }
+        return buffer.hasChunk() ? buffer.take() : null;
+    }
+
+    private Iterator<JsonNode> nextRecords() {
+        return new Iterator<>() {
+            private int remaining = recordsPerStep;
+
+            @Override
+            public boolean hasNext() {
+                return remaining > 0 && reader.hasNext();
+            }
+
+            @Override
+            public JsonNode next() {
+                if (!hasNext()) {
+                    throw new NoSuchElementException();
+                }
+                remaining--;
+                JsonNode record = reader.next();
+                long read = reader.getBytesRead();
+                metrics.bytesRead(read - bytesRead);
+                bytesRead = read;
+                return record;
+            }
+        };
+    }
+
+    @Override
+    public void close() throws IOException {
+        reader.close();
+    }
+
+    /**
+     * Collects the output of the writer and hands it out as text.
+     * A character whose bytes have not been written completely is kept until the next chunk.
+     */
+    static final class ChunkBuffer extends ByteArrayOutputStream {
+
+        boolean hasChunk() {
+            return completeLength() > 0;
+        }
+
+        String take() {
+            int length = completeLength();
+            String chunk = new String(buf, 0, length, StandardCharsets.UTF_8);
+            System.arraycopy(buf, length, buf, 0, count - length);
+            count -= length;
+            return chunk;
+        }
+
+        private int completeLength() {
+            // find the lead byte of the last character
+            int lead = count - 1;
+            while (lead > 0 && lead > count - 4 && (buf[lead] & 0xC0) == 0x80) {
+                lead--;
+            }
+            if (lead < 0) {
+                return 0;
+            }
+            int first = buf[lead] & 0xFF;
+            int length = first >= 0xF0 ? 4 : first >= 0xE0 ? 3 : first >= 0xC0 ? 2 : 1;
+            return lead + length <= count ? count : lead;
+        }
+    }
+}
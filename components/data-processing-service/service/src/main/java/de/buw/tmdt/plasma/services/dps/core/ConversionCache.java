@@ -0,0 +1,294 @@
+package de.buw.tmdt.plasma.services.dps.core;
+
+import com.fasterxml.jackson.core.JsonProcessingException;
+import com.fasterxml.jackson.databind.MapperFeature;
+import com.fasterxml.jackson.databind.ObjectMapper;
+import com.fasterxml.jackson.databind.SerializationFeature;
+import com.fasterxml.jackson.databind.node.ObjectNode;
+import de.buw.tmdt.plasma.datamodel.CombinedModel;
+import de.buw.tmdt.plasma.datamodel.semanticmodel.SemanticModel;
+import edu.umd.cs.findbugs.annotations.SuppressFBWarnings;
+import org.apache.jena.riot.RDFFormat;
+import org.apache.jena.shared.PrefixMapping;
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
+import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.stereotype.Component;
+
+import javax.annotation.PostConstruct;
+import java.io.BufferedOutputStream;
+import java.io.File;
+import java.io.FilterOutputStream;
+import java.io.IOException;
+import java.io.OutputStream;
+import java.nio.charset.StandardCharsets;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.nio.file.Paths;
+import java.nio.file.StandardCopyOption;
+import java.nio.file.attribute.FileTime;
+import java.security.MessageDigest;
+import java.security.NoSuchAlgorithmException;
+import java.util.Comparator;
+import java.util.List;
+import java.util.Optional;
+import java.util.TreeMap;
+import java.util.UUID;
+import java.util.concurrent.atomic.AtomicLong;
+import java.util.stream.Collectors;
+import java.util.stream.Stream;
+
+/**
+ * Stores conversion results on the storage volume so that converting the same file with the same model again only copies the previous result.
+ * Results are addressed by a hash of the file, the model, the prefixes and the output format.
+ * The total size of the cache is bounded, the least recently used results are evicted first.
+ * The modification time of a result file is used as its last access time, so the order survives restarts.
+ */
+@Component
+@SuppressFBWarnings("PATH_TRAVERSAL_IN")
+public class ConversionCache {
+
+    private static final Logger log = LoggerFactory.getLogger(ConversionCache.class);
+
+    static final String CACHE_DIRECTORY = "cache";
+    private static final String PARTIAL_SUFFIX = ".part";
+
+    private final ObjectMapper fingerprintMapper = new ObjectMapper()
+            .configure(MapperFeature.SORT_PROPERTIES_ALPHABETICALLY, true)
+            .configure(SerializationFeature.ORDER_MAP_ENTRIES_BY_KEYS, true);
+
+    private final boolean enabled;
+    private final long maxSize;
+    private final Path cacheDirectory;
+    private final AtomicLong size = new AtomicLong();
+
+    @Autowired
+    public ConversionCache(@Value("${plasma.dps.storage.directory:./storage}") String storageDirectory,
+                           @Value("${plasma.dps.cache.enabled:true}") boolean enabled,
+                           @Value("${plasma.dps.cache.maxsize:1024}") long maxSizeMegabytes) {
+        this.enabled = enabled;
+        this.maxSize = maxSizeMegabytes * 1024 * 1024;
+        this.cacheDirectory = Paths.get(storageDirectory, CACHE_DIRECTORY);
+    }
+
+    @PostConstruct
+    public void initCache() {
+        if (!enabled) {
+            return;
+        }
+        try {
+            Files.createDirectories(cacheDirectory);
+            try (Stream<Path> files = Files.list(cacheDirectory)) {
+                for (Path file : files.collect(Collectors.toList())) {
+                    if (file.getFileName().toString().endsWith(PARTIAL_SUFFIX)) {
+                        Files.deleteIfExists(file);
+                    } else {
+                        size.addAndGet(Files.size(file));
+                    }
+                }
+            }
+            log.info("Conversion cache contains {} bytes", size.get());
+        } catch (IOException e) {
+            throw new RuntimeException("Could not init conversion cache", e);
+        }
+    }
+
+    public boolean isEnabled() {
+        return enabled;
+    }
+
+    /**
+     * Computes the cache key of a conversion.
+     * The id of the semantic model is ignored as it is replaced for every conversion anyway.
+     *
+     * @param template the model used for the conversion
+     * @param dataId   the data id the file belongs to
+     * @param file     the converted file
+     * @param prefixes the prefixes used for the conversion
+     * @param format   the output format
+     * @return the key
+     */
+    public String key(CombinedModel template, String dataId, File file, PrefixMapping prefixes, RDFFormat format) {
+        try {
+            ObjectNode semanticModel = fingerprintMapper.valueToTree(template.getSemanticModel());
+            semanticModel.remove(SemanticModel.ID_PROPERTY);
+            MessageDigest digest = MessageDigest.getInstance("SHA-256");
+            digest.update(fingerprintMapper.writeValueAsBytes(template.getSyntaxModel()));
+            digest.update(fingerprintMapper.writeValueAsBytes(semanticModel));
+            digest.update(fingerprintMapper.writeValueAsBytes(new TreeMap<>(prefixes.getNsPrefixMap())));
+            String fileIdentity = String.join("|", dataId, file.getName(), String.valueOf(file.length()), String.valueOf(file.lastModified()),
+                    format.toString());
+            digest.update(fileIdentity.getBytes(StandardCharsets.UTF_8));
+            StringBuilder key = new StringBuilder();
+            for (byte b : digest.digest()) {
+                key.append(String.format("%02x", b));
+            }
+            return key.append('.').append(format.getLang().getFileExtensions().get(0)).toString();
+        } catch (JsonProcessingException | NoSuchAlgorithmException e) {
+            throw new IllegalStateException("Could not compute fingerprint of model", e);
+        }
+    }
+
+    /**
+     * Looks up a cached result and marks it as recently used.
+     *
+     * @param key the key of the conversion
+     * @return the result file if it is cached
+     */
+    public Optional<Path> lookup(String key) {
+        if (!enabled) {
+            return Optional.empty();
+        }
+        Path result = cacheDirectory.resolve(key);
+        try {
+            Files.setLastModifiedTime(result, FileTime.fromMillis(System.currentTimeMillis()));
+            return Optional.of(result);
+        } catch (IOException e) {
+            // not cached or evicted concurrently
+            return Optional.empty();
+        }
+    }
+
+    /**
+     * Wraps the given stream so that everything written to it is also written to the cache.
+     * The result is only added to the cache if {@link Entry#commit()} is called after the conversion succeeded.
+     *
+     * @param key the key of the conversion
+     * @param out the stream to copy
+     * @return the stream writing to both
+     * @throws IOException if the cache file cannot be created
+     */
+    public Entry store(String key, OutputStream out) throws IOException {
+        Path partial = cacheDirectory.resolve(key + "." + UUID.randomUUID() + PARTIAL_SUFFIX);
+        return new Entry(key, partial, out);
+    }
+
+    private void add(Path partial, String key) throws IOException {
+        long fileSize = Files.size(partial);
+        if (fileSize > maxSize) {
+            Files.deleteIfExists(partial);
+            return;
+        }
+        Path target = cacheDirectory.resolve(key);
+        long replaced = Files.exists(target) ? Files.size(target) : 0;
+        Files.move(partial, target, StandardCopyOption.REPLACE_EXISTING, StandardCopyOption.ATOMIC_MOVE);
+        if (size.addAndGet(fileSize - replaced) > maxSize) {
+            evict();
+        }
+    }
+
+    private synchronized void evict() {
+        if (size.get() <= maxSize) {
+            return;
+        }
+        List<Path> files;
+        try (Stream<Path> stream = Files.list(cacheDirectory)) {
+            files = stream
+                    .filter(f -> !f.getFileName().toString().endsWith(PARTIAL_SUFFIX))
+                    .sorted(Comparator.comparingLong(f -> f.toFile().lastModified()))
+                    .collect(Collectors.toList());
+        } catch (IOException e) {
+            log.warn("Could not list conversion cache", e);
+            return;
+        }
+        for (Path file : files) {
+            if (size.get() <= maxSize) {
+                break;
+            }
+            try {
+                long fileSize = Files.size(file);
+                if (Files.deleteIfExists(file)) {
+                    size.addAndGet(-fileSize);
+                    log.debug("Evicted {} from conversion cache", file.getFileName());
+                }
+            } catch (IOException e) {
+                log.warn("Could not evict {} from conversion cache", file, e);
+            }
+        }
+    }
+
+    /**
+     * A result that is being written to the cache.
+     */
+    public final class Entry extends FilterOutputStream {
+
+        private final String key;
+        private final Path partial;
+        private final OutputStream cacheOut;
+        private boolean failed = false;
+        private boolean committed = false;
+
+        private Entry(String key, Path partial, OutputStream out) throws IOException {
+            super(out);
+            this.key = key;
+            this.partial = partial;
+            this.cacheOut = new BufferedOutputStream(Files.newOutputStream(partial));
+        }
+
+        @Override
+        public void write(int b) throws IOException {
+            out.write(b);
+            if (!failed) {
+                try {
+                    cacheOut.write(b);
+                } catch (IOException e) {
+                    fail(e);
+                }
+            }
+        }
+
+        @Override
+        public void write(byte[] b, int off, int len) throws IOException {
+            out.write(b, off, len);
+            if (!failed) {
+                try {
+                    cacheOut.write(b, off, len);
+                } catch (IOException e) {
+                    fail(e);
+                }
+            }
+        }
+
+        @Override
+        public void flush() throws IOException {
+            out.flush();
+        }
+
+        private void fail(IOException e) {
+            // a failing cache must not break the conversion itself
+            log.warn("Could not write {} to conversion cache", key, e);
+            failed = true;
+        }
+
+        /**
+         * Adds the written result to the cache.
+         */
+        public void commit() {
+            try {
+                cacheOut.close();
+                if (!failed) {
+                    add(partial, key);
+                    committed = true;
+                }
+            } catch (IOException e) {
+                fail(e);
+            }
+        }
+
+        /**
+         * Closes the cache file and discards it unless it has been committed. The wrapped stream is not closed.
+         */
+        @Override
+        public void close() {
+            try {
+                cacheOut.close();
+                if (!committed) {
+                    Files.deleteIfExists(partial);
+                }
+            } catch (IOException e) {
+                log.warn("Could not discard partial cache entry {}", partial, e);
+            }
+        }
+    }
+}
@@ -0,0 +1,155 @@
+package de.buw.tmdt.plasma.services.dps.core;
+
+import de.buw.tmdt.plasma.services.dps.api.ConversionJobDTO;
+import de.buw.tmdt.plasma.services.dps.conversion.rdf.RDFOutputFormat;
+
+import java.nio.file.Path;
+import java.time.Duration;
+import java.time.Instant;
+import java.util.concurrent.Future;
+
+/**
+ * A conversion that is executed in the background by the {@link ConversionJobHandler}.
+ */
+public class ConversionJob {
+
+    public enum Status {
+        QUEUED, RUNNING, FINISHED, FAILED, CANCELLED;
+
+        public boolean isDone() {
+            return this == FINISHED || this == FAILED || this == CANCELLED;
+        }
+    }
+
+    private final String id;
+    private final String dataId;
+    private final String fileId;
+    private final RDFOutputFormat format;
+    private final Path resultFile;
+    private final ConversionProgress progress = new ConversionProgress();
+
+    private volatile Status status = Status.QUEUED;
+    private volatile String error;
+    private volatile Future<?> future;
+    private volatile Instant doneAt;
+
+    ConversionJob(String id, String dataId, String fileId, RDFOutputFormat format, Path resultFile) {
+        this.id = id;
+        this.dataId = dataId;
+        this.fileId = fileId;
+        this.format = format;
+        this.resultFile = resultFile;
+    }
+
+    public String getId() {
+        return id;
+    }
+
+    public String getDataId() {
+        return dataId;
+    }
+
+    public String getFileId() {
+        return fileId;
+    }
+
+    public RDFOutputFormat getFormat() {
+        return format;
+    }
+
+    /**
+     * The file the result is written to. It only exists once the job is {@link Status#FINISHED}.
+     *
+     * @return the path of the result
+     */
+    public Path getResultFile() {
+        return resultFile;
+    }
+
+    public ConversionProgress getProgress() {
+        return progress;
+    }
+
+    public Status getStatus() {
+        return status;
+    }
+
+    public String getError() {
+        return error;
+    }
+
+    /**
+     * The time the job finished, failed or was cancelled.
+     *
+     * @return the time or null if the job is not done yet
+     */
+    public Instant getDoneAt() {
+        return doneAt;
+    }
+
+    void setFuture(Future<?> future) {
+        this.future = future;
+    }
+
+    /**
+     * Marks a queued job as running.
+     *
+     * @return false if the job has been cancelled in the meantime
+     */
+    synchronized boolean start() {
+        if (status != Status.QUEUED) {
+            return false;
+        }
+        status = Status.RUNNING;
+        return true;
+    }
+
+    /**
+     * Marks a running job as done. Has no effect if the job has been cancelled.
+     *
+     * @return false if the job has been cancelled in the meantime
+     */
+    synchronized boolean finish(Status result, String message) {
+        if (status != Status.RUNNING) {
+            return false;
+        }
+        status = result;
+        error = message;
+        doneAt = Instant.now();
+        return true;
+    }
+
+    /**
+     * Cancels the job and interrupts its worker if it is already running.
+     *
+     * @return false if the job was already done
+     */
+    synchronized boolean cancel() {
+        if (status.isDone()) {
+            return false;
+        }
+        status = Status.CANCELLED;
+        doneAt = Instant.now();
+        if (future != null) {
+            future.cancel(true);
+        }
+        return true;
+    }
+
+    public ConversionJobDTO toDTO() {
+        Status current = status;
+        Duration remaining = current == Status.RUNNING ? progress.getEstimatedRemaining() : null;
+        return new ConversionJobDTO(
+                id,
+                dataId,
+                fileId,
+                format.name().toLowerCase(),
+                current.name(),
+                progress.getRecords(),
+                progress.getTriples(),
+                current == Status.FINISHED ? 1.0 : progress.getFraction(),
+                remaining == null ? null : remaining.getSeconds(),
+                error
+        );
+    }
+}
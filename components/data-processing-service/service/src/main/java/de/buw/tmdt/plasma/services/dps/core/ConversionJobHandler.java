@@ -0,0 +1,216 @@
+package de.buw.tmdt.plasma.services.dps.core;
+
+import de.buw.tmdt.plasma.datamodel.CombinedModel;
+import de.buw.tmdt.plasma.services.dps.conversion.rdf.RDFOutputFormat;
+import edu.umd.cs.findbugs.annotations.SuppressFBWarnings;
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
+import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.http.HttpStatus;
+import org.springframework.stereotype.Service;
+import org.springframework.web.server.ResponseStatusException;
+
+import javax.annotation.PreDestroy;
+import java.io.BufferedOutputStream;
+import java.io.File;
+import java.io.IOException;
+import java.io.OutputStream;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.nio.file.Paths;
+import java.nio.file.StandardCopyOption;
+import java.time.Duration;
+import java.time.Instant;
+import java.util.Map;
+import java.util.UUID;
+import java.util.concurrent.ArrayBlockingQueue;
+import java.util.concurrent.CancellationException;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.Executors;
+import java.util.concurrent.RejectedExecutionException;
+import java.util.concurrent.ScheduledExecutorService;
+import java.util.concurrent.ThreadPoolExecutor;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.AtomicInteger;
+
+/**
+ * Runs conversions in the background, independent of the request that started them.
+ * Jobs are queued on a bounded pool and write their result into the storage directory, from where it can be downloaded once the job is finished.
+ * Jobs that are done are removed together with their result once {@code plasma.dps.jobs.retention} seconds have passed.
+ */
+@Service
+@SuppressFBWarnings("PATH_TRAVERSAL_IN")
+public class ConversionJobHandler {
+
+    private static final Logger log = LoggerFactory.getLogger(ConversionJobHandler.class);
+
+    static final String RESULT_DIRECTORY = "results";
+
+    private final DataProcessingHandler dataProcessingHandler;
+    private final Path resultDirectory;
+    private final ThreadPoolExecutor executor;
+    private final ScheduledExecutorService cleanup;
+    private final Duration retention;
+    private final Map<String, ConversionJob> jobs = new ConcurrentHashMap<>();
+
+    @Autowired
+    public ConversionJobHandler(DataProcessingHandler dataProcessingHandler,
+                                @Value("${plasma.dps.storage.directory:./storage}") String storageDirectory,
+                                @Value("${plasma.dps.jobs.threads:2}") int threads,
+                                @Value("${plasma.dps.jobs.queuesize:16}") int queueSize,
+                                @Value("${plasma.dps.jobs.retention:3600}") long retentionSeconds) {
+        this.dataProcessingHandler = dataProcessingHandler;
+        this.resultDirectory = Paths.get(storageDirectory, RESULT_DIRECTORY);
+        this.retention = Duration.ofSeconds(retentionSeconds);
+        AtomicInteger threadCounter = new AtomicInteger();
+        this.executor = new ThreadPoolExecutor(threads, threads, 0L, TimeUnit.MILLISECONDS,
+                new ArrayBlockingQueue<>(queueSize),
+                runnable -> {
+                    Thread thread = new Thread(runnable, "dps-job-" + threadCounter.incrementAndGet());
+                    thread.setDaemon(true);
+                    return thread;
+                });
+        this.cleanup = Executors.newSingleThreadScheduledExecutor(runnable -> {
+            Thread thread = new Thread(runnable, "dps-job-cleanup");
+            thread.setDaemon(true);
+            return thread;
+        });
+        if (retentionSeconds > 0) {
+            long period = Math.min(retentionSeconds, 60);
+            cleanup.scheduleWithFixedDelay(() -> removeExpiredJobs(Instant.now()), period, period, TimeUnit.SECONDS);
+        }
+    }
+
+    /**
+     * Queues the conversion of a file.
+     *
+     * @param template the finalized combined model
+     * @param dataId   the data id the file belongs to
+     * @param fileId   the file to convert, the latest file is used if null
+     * @param format   the format of the result
+     * @return the queued job
+     */
+    public ConversionJob submit(CombinedModel template, String dataId, String fileId, RDFOutputFormat format) {
+        // fail early if the file does not exist and pin the job to the current latest file
+        File file = dataProcessingHandler.resolveFile(dataId, fileId);
+        try {
+            Files.createDirectories(resultDirectory);
+        } catch (IOException e) {
+            log.error("Could not create result directory {}", resultDirectory, e);
+            throw new ResponseStatusException(HttpStatus.INTERNAL_SERVER_ERROR, "Could not create result directory");
+        }
+        String jobId = UUID.randomUUID().toString();
+        ConversionJob job = new ConversionJob(jobId, dataId, file.getName(), format,
+                resultDirectory.resolve(jobId + "." + format.getFileExtension()));
+        jobs.put(jobId, job);
+        try {
+            job.setFuture(executor.submit(() -> run(job, template)));
+        } catch (RejectedExecutionException e) {
+            jobs.remove(jobId);
+            throw new ResponseStatusException(HttpStatus.SERVICE_UNAVAILABLE, "Too many conversion jobs queued, try again later.");
+        }
+        log.info("Queued conversion job {} for file {} of dataId {}", jobId, file.getName(), dataId);
+        return job;
+    }
+
+    private void run(ConversionJob job, CombinedModel template) {
+        if (!job.start()) {
+            return;
+        }
+        Path partialFile = job.getResultFile().resolveSibling(job.getResultFile().getFileName() + ".part");
+        try {
+            try (OutputStream out = new BufferedOutputStream(Files.newOutputStream(partialFile))) {
+                dataProcessingHandler.processFile(template, job.getDataId(), job.getFileId(), job.getFormat(), out, job.getProgress());
+            }
+            Files.move(partialFile, job.getResultFile(), StandardCopyOption.REPLACE_EXISTING);
+            if (!job.finish(ConversionJob.Status.FINISHED, null)) {
+                Files.deleteIfExists(job.getResultFile());
+            }
+            log.info("Finished conversion job {}", job.getId());
+        } catch (CancellationException e) {
+            log.info("Cancelled conversion job {}", job.getId());
+        } catch (ResponseStatusException e) {
+            log.warn("Conversion job {} failed", job.getId(), e);
+            job.finish(ConversionJob.Status.FAILED, e.getReason());
+        } catch (IOException | RuntimeException e) {
+            log.warn("Conversion job {} failed", job.getId(), e);
+            job.finish(ConversionJob.Status.FAILED, "Could not write result: " + e.getMessage());
+        } finally {
+            try {
+                Files.deleteIfExists(partialFile);
+            } catch (IOException e) {
+                log.warn("Could not delete partial result {}", partialFile, e);
+            }
+        }
+    }
+
+    public ConversionJob getJob(String jobId) {
+        ConversionJob job = jobs.get(jobId);
+        if (job == null) {
+            throw new ResponseStatusException(HttpStatus.NOT_FOUND, "No conversion job with id " + jobId);
+        }
+        return job;
+    }
+
+    /**
+     * Cancels a queued or running job. A job that is already done is removed together with its result.
+     *
+     * @param jobId the id of the job
+     * @return the job in its final state
+     */
+    public ConversionJob cancel(String jobId) {
+        ConversionJob job = getJob(jobId);
+        if (job.cancel()) {
+            log.info("Cancelling conversion job {}", jobId);
+            return job;
+        }
+        remove(job);
+        return job;
+    }
+
+    /**
+     * Removes all jobs that have been done for longer than the retention period together with their results.
+     *
+     * @param now the current time
+     */
+    void removeExpiredJobs(Instant now) {
+        Instant expiry = now.minus(retention);
+        for (ConversionJob job : jobs.values()) {
+            Instant doneAt = job.getDoneAt();
+            if (doneAt != null && doneAt.isBefore(expiry)) {
+                log.debug("Removing expired conversion job {}", job.getId());
+                remove(job);
+            }
+        }
+    }
+
+    private void remove(ConversionJob job) {
+        jobs.remove(job.getId());
+        try {
+            Files.deleteIfExists(job.getResultFile());
+        } catch (IOException e) {
+            log.warn("Could not delete result of conversion job {}", job.getId(), e);
+        }
+    }
+
+    /**
+     * Returns the result file of a finished job.
+     *
+     * @param jobId the id of the job
+     * @return the path of the result
+     */
+    public Path getResult(String jobId) {
+        ConversionJob job = getJob(jobId);
+        if (job.getStatus() != ConversionJob.Status.FINISHED) {
+            throw new ResponseStatusException(HttpStatus.CONFLICT, "Conversion job " + jobId + " is " + job.getStatus());
+        }
+        return job.getResultFile();
+    }
+
+    @PreDestroy
+    public void shutdown() {
+        cleanup.shutdownNow();
+        executor.shutdownNow();
+    }
+}
@@ -0,0 +1,142 @@
+package de.buw.tmdt.plasma.services.dps.core;
+
+import de.buw.tmdt.plasma.services.dps.conversion.ConversionException;
+import de.buw.tmdt.plasma.services.dps.conversion.rdf.ParallelRDFConverter;
+import io.micrometer.core.instrument.Counter;
+import io.micrometer.core.instrument.DistributionSummary;
+import io.micrometer.core.instrument.MeterRegistry;
+import io.micrometer.core.instrument.Timer;
+import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.stereotype.Component;
+
+import java.io.IOException;
+import java.util.Locale;
+import java.util.concurrent.TimeUnit;
+import java.util.function.Supplier;
+
+/**
+ * The meters of the conversion pipeline, published through the actuator metrics and Prometheus endpoints.
+ * Throughput is exposed as counters of bytes, records and triples, the rates are derived by the monitoring system.
+ * The phases are timed per batch or shard: reading and parsing the input, converting the records and serializing the triples,
+ * in addition to the lookup of the namespace prefixes which precedes each conversion.
+ */
+@Component
+public class ConversionMetrics implements ParallelRDFConverter.Listener {
+
+    static final String PREFIX = "plasma.dps.conversion";
+
+    /**
+     * The reasons conversions fail for, used as tag of the failure counter.
+     */
+    enum Failure {
+        /** the input could not be read or parsed */
+        READ,
+        /** the model could not be applied to a record */
+        CONVERT,
+        /** the conversion was cancelled */
+        CANCELLED;
+
+        static Failure of(ConversionException e) {
+            if (e.getCause() instanceof IOException) {
+                return READ;
+            }
+            return e.getCause() instanceof InterruptedException ? CANCELLED : CONVERT;
+        }
+    }
+
+    private final MeterRegistry registry;
+    private final Counter bytes;
+    private final Counter records;
+    private final Counter triples;
+    private final Timer prefixes;
+    private final Timer parse;
+    private final Timer convert;
+    private final Timer serialize;
+    private final DistributionSummary arrayExpansion;
+
+    @Autowired
+    public ConversionMetrics(MeterRegistry registry) {
+        this.registry = registry;
+        this.bytes = Counter.builder(PREFIX + ".bytes")
+                .description("Bytes of input read by conversions")
+                .baseUnit("bytes")
+                .register(registry);
+        this.records = Counter.builder(PREFIX + ".records")
+                .description("Records converted")
+                .register(registry);
+        this.triples = Counter.builder(PREFIX + ".triples")
+                .description("Triples created by conversions, including repeated model level triples")
+                .register(registry);
+        this.prefixes = phase("prefixes");
+        this.parse = phase("parse");
+        this.convert = phase("convert");
+        this.serialize = phase("serialize");
+        this.arrayExpansion = DistributionSummary.builder(PREFIX + ".array.expansion")
+                .description("Entity sets created per expanded array context of a record")
+                .publishPercentileHistogram()
+                .register(registry);
+    }
+
+    private Timer phase(String phase) {
+        return Timer.builder(PREFIX + ".phase")
+                .description("Duration of a phase of a conversion per batch or shard")
+                .tag("phase", phase)
+                .publishPercentileHistogram()
+                .register(registry);
+    }
+
+    <T> T timePrefixes(Supplier<T> lookup) {
+        return prefixes.record(lookup);
+    }
+
+    void bytesRead(long count) {
+        bytes.increment(count);
+    }
+
+    void arrayExpanded(int entitySets) {
+        arrayExpansion.record(entitySets);
+    }
+
+    void serialized(long nanos) {
+        serialize.record(nanos, TimeUnit.NANOSECONDS);
+    }
+
+    void failed(Failure failure) {
+        Counter.builder(PREFIX + ".failures")
+                .description("Failed conversions")
+                .tag("reason", failure.name().toLowerCase(Locale.ROOT))
+                .register(registry)
+                .increment();
+    }
+
+    /**
+     * Starts timing a complete conversion, the sample is passed to {@link #stop(Timer.Sample, String)} once the conversion is done.
+     */
+    Timer.Sample start() {
+        return Timer.start(registry);
+    }
+
+    void stop(Timer.Sample sample, String format) {
+        sample.stop(Timer.builder(PREFIX)
+                .description("Duration of complete conversions")
+                .tag("format", format)
+                .register(registry));
+    }
+
+    @Override
+    public void parsed(int records, long nanos) {
+        parse.record(nanos, TimeUnit.NANOSECONDS);
+    }
+
+    @Override
+    public void converted(int records, long nanos) {
+        convert.record(nanos, TimeUnit.NANOSECONDS);
+        this.records.increment(records);
+    }
+
+    @Override
+    public void serialized(int triples, long nanos) {
+        serialized(nanos);
+        this.triples.increment(triples);
+    }
+}
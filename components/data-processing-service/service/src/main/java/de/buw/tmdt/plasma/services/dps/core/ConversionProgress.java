@@ -0,0 +1,73 @@
+package de.buw.tmdt.plasma.services.dps.core;
+
+import java.time.Duration;
+import java.time.Instant;
+import java.util.concurrent.atomic.AtomicLong;
+
+/**
+ * Tracks the progress of a running conversion.
+ * The progress is measured by the bytes of the input file that have been consumed.
+ */
+public class ConversionProgress {
+
+    private final AtomicLong records = new AtomicLong();
+    private final AtomicLong triples = new AtomicLong();
+    private volatile long bytesRead;
+    private volatile long totalBytes;
+    private volatile Instant startedAt;
+
+    void start(long totalBytes) {
+        this.totalBytes = totalBytes;
+        this.startedAt = Instant.now();
+    }
+
+    void recordRead(long bytesRead) {
+        records.incrementAndGet();
+        this.bytesRead = bytesRead;
+    }
+
+    void recordsRead(long count, long bytesRead) {
+        records.addAndGet(count);
+        this.bytesRead = bytesRead;
+    }
+
+    void tripleEmitted() {
+        triples.incrementAndGet();
+    }
+
+    public long getRecords() {
+        return records.get();
+    }
+
+    public long getTriples() {
+        return triples.get();
+    }
+
+    /**
+     * The share of the input that has been read.
+     *
+     * @return a value between 0 and 1
+     */
+    public double getFraction() {
+        long total = totalBytes;
+        if (total <= 0) {
+            return 0;
+        }
+        return Math.min(1.0, (double) bytesRead / total);
+    }
+
+    /**
+     * Estimates the remaining time by extrapolating the throughput so far.
+     *
+     * @return the remaining time or null if the conversion has not progressed far enough for an estimate
+     */
+    public Duration getEstimatedRemaining() {
+        Instant start = startedAt;
+        double fraction = getFraction();
+        if (start == null || fraction <= 0) {
+            return null;
+        }
+        long elapsed = Duration.between(start, Instant.now()).toMillis();
+        return Duration.ofMillis((long) (elapsed * (1 - fraction) / fraction));
+    }
+}
@@ -0,0 +1,77 @@
+package de.buw.tmdt.plasma.services.dps.core;
+
+import de.buw.tmdt.plasma.services.dps.conversion.rdf.ParallelRDFConverter;
+import de.buw.tmdt.plasma.services.dps.conversion.rdf.RDFConverter;
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
+import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.stereotype.Component;
+
+import javax.annotation.PreDestroy;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import java.util.concurrent.ThreadFactory;
+import java.util.concurrent.atomic.AtomicInteger;
+
+/**
+ * The worker threads shared by all RDF conversions of this service.
+ */
+@Component
+public class ConversionWorkerPool {
+
+    private static final Logger log = LoggerFactory.getLogger(ConversionWorkerPool.class);
+
+    private final ExecutorService executor;
+    private final int threads;
+    private final int batchSize;
+
+    /**
+     * Creates the pool.
+     *
+     * @param threads   the number of worker threads, uses the number of available processors if not positive
+     * @param batchSize the number of records converted by a worker in one go
+     */
+    @Autowired
+    public ConversionWorkerPool(@Value("${plasma.dps.conversion.threads:0}") int threads,
+                                @Value("${plasma.dps.conversion.batchsize:64}") int batchSize) {
+        this.threads = threads > 0 ? threads : Runtime.getRuntime().availableProcessors();
+        this.batchSize = batchSize;
+        AtomicInteger threadCounter = new AtomicInteger();
+        ThreadFactory threadFactory = runnable -> {
+            Thread thread = new Thread(runnable, "dps-conversion-" + threadCounter.incrementAndGet());
+            thread.setDaemon(true);
+            return thread;
+        };
+        this.executor = Executors.newFixedThreadPool(this.threads, threadFactory);
+        log.info("Using {} threads for RDF conversion", this.threads);
+    }
+
+    /**
+     * Creates a converter that distributes its records over the workers of this pool.
+     *
+     * @param converter the converter to use for the single records
+     * @return the parallel converter
+     */
+    public ParallelRDFConverter parallel(RDFConverter converter) {
+        return parallel(converter, new ParallelRDFConverter.Listener() {
+        });
+    }
+
+    /**
+     * Creates a converter that distributes its records over the workers of this pool and reports the duration of each phase.
+     * Each worker holds the triples of the shard it converts, and only one converted shard waits to be sent to the sink.
+     *
+     * @param converter the converter to use for the single records
+     * @param listener  the listener to report to
+     * @return the parallel converter
+     */
+    public ParallelRDFConverter parallel(RDFConverter converter, ParallelRDFConverter.Listener listener) {
+        return new ParallelRDFConverter(converter, executor, batchSize, 2 * threads, threads + 1, listener);
+    }
+
+    @PreDestroy
+    public void shutdown() {
+        executor.shutdownNow();
+    }
+}
@@ -1,95 +1,415 @@
 package de.buw.tmdt.plasma.services.dps.core;
 
 import com.fasterxml.jackson.databind.JsonNode;
-import com.fasterxml.jackson.databind.ObjectMapper;
 import de.buw.tmdt.plasma.datamodel.CombinedModel;
 import de.buw.tmdt.plasma.services.dps.conversion.ConversionException;
+import de.buw.tmdt.plasma.services.dps.conversion.json.JsonRecordReader;
+import de.buw.tmdt.plasma.services.dps.conversion.json.RecordIndex;
+import de.buw.tmdt.plasma.services.dps.conversion.rdf.ConversionPlan;
+import de.buw.tmdt.plasma.services.dps.conversion.rdf.ParallelRDFConverter;
 import de.buw.tmdt.plasma.services.dps.conversion.rdf.RDFConverter;
-import de.buw.tmdt.plasma.services.kgs.shared.feignclient.OntologyApiClient;
-import feign.FeignException;
+import de.buw.tmdt.plasma.services.dps.conversion.rdf.RDFOutputFormat;
+import de.buw.tmdt.plasma.services.dps.conversion.rdf.TripleDeduplicator;
+import io.micrometer.core.instrument.Timer;
 import org.apache.jena.rdf.model.Model;
 import org.apache.jena.rdf.model.ModelFactory;
+import org.apache.jena.graph.Triple;
+import org.apache.jena.riot.RDFDataMgr;
+import org.apache.jena.riot.RDFFormat;
+import org.apache.jena.riot.system.StreamRDF;
+import org.apache.jena.riot.system.StreamRDFLib;
+import org.apache.jena.riot.system.StreamRDFWrapper;
+import org.apache.jena.riot.system.StreamRDFWriter;
 import org.apache.jena.shared.PrefixMapping;
-import org.apache.jena.shared.impl.PrefixMappingImpl;
 import org.slf4j.Logger;
 import org.slf4j.LoggerFactory;
 import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.beans.factory.annotation.Value;
 import org.springframework.http.HttpStatus;
 import org.springframework.stereotype.Service;
 import org.springframework.web.server.ResponseStatusException;
+import reactor.core.publisher.Flux;
+import reactor.core.scheduler.Schedulers;
 
+import java.io.ByteArrayOutputStream;
 import java.io.File;
 import java.io.IOException;
+import java.io.OutputStream;
 import java.io.StringWriter;
-import java.util.ArrayList;
-import java.util.List;
-import java.util.Map;
+import java.io.UncheckedIOException;
+import java.nio.channels.FileChannel;
+import java.nio.charset.StandardCharsets;
+import java.nio.file.Files;
+import java.nio.file.NoSuchFileException;
+import java.nio.file.Path;
+import java.nio.file.StandardOpenOption;
+import java.util.Iterator;
+import java.util.Optional;
 import java.util.UUID;
+import java.util.concurrent.CancellationException;
 
 @Service
 public class DataProcessingHandler {
 
-    private final OntologyApiClient ontologyApiClient;
+    private final PrefixCache prefixCache;
     private final DataStorageHandler dataStorageHandler;
+    private final ConversionWorkerPool conversionWorkerPool;
+    private final ConversionCache conversionCache;
+    private final ConversionMetrics metrics;
+
+    /**
+     * The number of distinct model level triples remembered exactly per conversion before switching to a Bloom filter.
+     */
+    @Value("${plasma.dps.conversion.dedup.exactlimit:100000}")
+    int dedupExactLimit = 100000;
+
+    /**
+     * The size of the Bloom filter in megabytes.
+     */
+    @Value("${plasma.dps.conversion.dedup.bloomsize:8}")
+    long dedupBloomSize = 8;
+
+    /**
+     * The size of the shards in kilobytes files are split into for conversion, files smaller than two shards are not split.
+     */
+    @Value("${plasma.dps.conversion.shardsize:4096}")
+    long shardSize = 4096;
+
+    /**
+     * The number of records converted per requested chunk of a reactive conversion.
+     */
+    @Value("${plasma.dps.conversion.chunksize:1024}")
+    int chunkSize = 1024;
+
+    private volatile RDFConverter converter;
 
     private static final Logger log = LoggerFactory.getLogger(DataProcessingHandler.class);
 
     @Autowired
-    public DataProcessingHandler(@SuppressWarnings("SpringJavaInjectionPointsAutowiringInspection")
-                                             OntologyApiClient ontologyApiClient,
-                                 DataStorageHandler dataStorageHandler) {
-        this.ontologyApiClient = ontologyApiClient;
+    public DataProcessingHandler(PrefixCache prefixCache,
+                                 DataStorageHandler dataStorageHandler,
+                                 ConversionWorkerPool conversionWorkerPool,
+                                 ConversionCache conversionCache,
+                                 ConversionMetrics metrics) {
+        this.prefixCache = prefixCache;
         this.dataStorageHandler = dataStorageHandler;
+        this.conversionWorkerPool = conversionWorkerPool;
+        this.conversionCache = conversionCache;
+        this.metrics = metrics;
     }
 
+    /**
+     * Converts the contents of a stored file into RDF using the given model as template.
+     * The complete result is rendered as Turtle, hence this should only be used for small files.
+     *
+     * @param template the finalized combined model
+     * @param dataId   the data id the file belongs to
+     * @param fileId   the file to convert, the latest file is used if null
+     * @return the converted file as Turtle
+     */
     public String processFile(CombinedModel template, String dataId, String fileId) {
-        List<File> files = dataStorageHandler.listFiles(dataId);
-        File file;
-        if (fileId == null) {
-            file = files.get(files.size() - 1);
-        } else {
-            file = files.stream()
-                    .filter(x -> fileId.equals(x.getName()))
-                    .findFirst()
-                    .orElseThrow(() -> new ResponseStatusException(HttpStatus.NOT_FOUND, "Requested fileId could not be found"));
+        return processFile(template, dataId, fileId, RDFOutputFormat.TURTLE);
+    }
+
+    /**
+     * Converts the contents of a stored file into RDF and renders the complete result in the given format.
+     * This should only be used for small files, larger files should be streamed.
+     *
+     * @param template the finalized combined model
+     * @param dataId   the data id the file belongs to
+     * @param fileId   the file to convert, the latest file is used if null
+     * @param format   the textual format to render the result in
+     * @return the converted file
+     */
+    public String processFile(CombinedModel template, String dataId, String fileId, RDFOutputFormat format) {
+        if (format.isBinary()) {
+            throw new ResponseStatusException(HttpStatus.BAD_REQUEST, "Binary format " + format + " is only available as stream.");
         }
-        ObjectMapper mapper = new ObjectMapper();
-        JsonNode root = null;
-        try {
-            root = mapper.readTree(file);
+        ByteArrayOutputStream out = new ByteArrayOutputStream();
+        process(template, dataId, fileId, format.getFormat(), out, new ConversionProgress());
+        return out.toString(StandardCharsets.UTF_8);
+    }
+
+    /**
+     * Converts the contents of a stored file into RDF and writes the result to the given stream.
+     * Records are read one at a time and converted in batches by the {@link ConversionWorkerPool}.
+     * For streamable formats the triples are forwarded to the output in the order of the records as soon as a batch is done,
+     * so the memory consumption only depends on the size of the batches in flight.
+     * Formats that cannot be streamed (JSON-LD) are written once the complete graph has been built.
+     *
+     * @param template the finalized combined model
+     * @param dataId   the data id the file belongs to
+     * @param fileId   the file to convert, the latest file is used if null
+     * @param format   the format to write
+     * @param out      the stream to write the output to
+     */
+    public void processFile(CombinedModel template, String dataId, String fileId, RDFOutputFormat format, OutputStream out) {
+        processFile(template, dataId, fileId, format, out, new ConversionProgress());
+    }
+
+    /**
+     * Converts the contents of a stored file into RDF and writes the result to the given stream while reporting the progress.
+     * The conversion is aborted with a {@link CancellationException} if the calling thread is interrupted.
+     * If the same file has been converted with the same model and format before, the result is copied from the {@link ConversionCache}.
+     *
+     * @param template the finalized combined model
+     * @param dataId   the data id the file belongs to
+     * @param fileId   the file to convert, the latest file is used if null
+     * @param format   the format to write
+     * @param out      the stream to write the output to
+     * @param progress the progress to update
+     */
+    public void processFile(CombinedModel template, String dataId, String fileId, RDFOutputFormat format, OutputStream out,
+                            ConversionProgress progress) {
+        process(template, dataId, fileId, format.isStreamable() ? format.getStreamingFormat() : format.getFormat(), out, progress);
+    }
+
+    private void process(CombinedModel template, String dataId, String fileId, RDFFormat format, OutputStream out, ConversionProgress progress) {
+        File file = resolveFile(dataId, fileId);
+        PrefixMapping prefixMapping = metrics.timePrefixes(prefixCache::getPrefixes);
+        if (!conversionCache.isEnabled()) {
+            write(template, dataId, file, prefixMapping, format, out, progress);
+            return;
+        }
+        String key = conversionCache.key(template, dataId, file, prefixMapping, format);
+        Optional<Path> cached = conversionCache.lookup(key);
+        if (cached.isPresent()) {
+            try {
+                Files.copy(cached.get(), out);
+                log.debug("Served conversion of file {} from cache", file.getName());
+                return;
+            } catch (NoSuchFileException e) {
+                log.debug("Cached conversion of file {} was evicted", file.getName());
+            } catch (IOException e) {
+                throw new UncheckedIOException("Could not write cached result", e);
+            }
+        }
+        try (ConversionCache.Entry entry = conversionCache.store(key, out)) {
+            write(template, dataId, file, prefixMapping, format, entry, progress);
+            entry.flush();
+            entry.commit();
         } catch (IOException e) {
-            log.info("Could not read contents of file {}", file.getName(), e);
-            throw new ResponseStatusException(HttpStatus.INTERNAL_SERVER_ERROR, "Unable to read file.");
+            throw new UncheckedIOException("Could not write result", e);
+        }
+    }
+
+    private void write(CombinedModel template, String dataId, File file, PrefixMapping prefixMapping, RDFFormat format, OutputStream out,
+                       ConversionProgress progress) {
+        if (!StreamRDFWriter.registered(format)) {
+            Model combined = ModelFactory.createDefaultModel();
+            convert(template, dataId, file, prefixMapping, StreamRDFLib.graph(combined.getGraph()), format, progress);
+            long start = System.nanoTime();
+            RDFDataMgr.write(out, combined, format);
+            metrics.serialized(System.nanoTime() - start);
+            return;
         }
-        List<JsonNode> nodes = new ArrayList<>();
-        if (root.isArray()) {
-            root.elements().forEachRemaining(nodes::add);
-        } else {
-            nodes.add(root);
+        StreamRDF writer = StreamRDFWriter.getWriterStream(out, format);
+        writer.start();
+        try {
+            convert(template, dataId, file, prefixMapping, writer, format, progress);
+        } finally {
+            writer.finish();
         }
+    }
+
+    File resolveFile(String dataId, String fileId) {
+        return dataStorageHandler.resolveFile(dataId, fileId);
+    }
+
+    private void convert(CombinedModel template, String dataId, File file, PrefixMapping prefixMapping, StreamRDF sink, RDFFormat format,
+                         ConversionProgress progress) {
+        prefixMapping.getNsPrefixMap().forEach(sink::prefix);
+        RDFConverter converter = getConverter(prefixMapping);
+        template.getSemanticModel().setId(UUID.randomUUID().toString());
 
+        StreamRDF countingSink = new StreamRDFWrapper(sink) {
+            @Override
+            public void triple(Triple triple) {
+                super.triple(triple);
+                progress.tripleEmitted();
+            }
+        };
+        TripleDeduplicator deduplicator = deduplicate(converter, countingSink);
+        progress.start(file.length());
+        Timer.Sample sample = metrics.start();
         try {
-            Map<String, String> prefixes = ontologyApiClient.getNamespaces();
-            PrefixMapping prefixMapping = new PrefixMappingImpl();
-            prefixMapping.setNsPrefixes(prefixes);
-            RDFConverter converter = new RDFConverter(prefixMapping);
-            Model combined = ModelFactory.createDefaultModel();
-            combined.setNsPrefixes(prefixes);
-            template.getSemanticModel().setId(UUID.randomUUID().toString());
-            for (JsonNode node : nodes) {
-                Model model = converter.convertToRDF(template, node);
-                combined.add(model);
+            ConversionPlan plan = ConversionPlan.compile(template);
+            ParallelRDFConverter parallel = conversionWorkerPool.parallel(converter, metrics);
+            long shardBytes = shardSize * 1024;
+            if (shardBytes > 0 && file.length() >= 2 * shardBytes) {
+                convertShards(dataId, file, plan, parallel, shardBytes, deduplicator, progress);
+            } else {
+                convertRecords(file, plan, parallel, deduplicator, progress);
             }
-            return asTurtle(combined);
+            log.debug("Dropped {} repeated triples converting file {}", deduplicator.getDropped(), file.getName());
+            metrics.stop(sample, format.getLang().getName());
+        } catch (IOException | UncheckedIOException e) {
+            log.info("Could not read contents of file {}", file.getName(), e);
+            metrics.failed(ConversionMetrics.Failure.READ);
+            throw new ResponseStatusException(HttpStatus.INTERNAL_SERVER_ERROR, "Unable to read file.");
+        } catch (CancellationException e) {
+            metrics.failed(ConversionMetrics.Failure.CANCELLED);
+            throw e;
         } catch (ConversionException e) {
-            e.printStackTrace();
+            log.warn("Could not convert contents of file {}", file.getName(), e);
+            metrics.failed(ConversionMetrics.Failure.of(e));
             throw new ResponseStatusException(HttpStatus.INTERNAL_SERVER_ERROR, "Could not convert file content(s): " + e.getMessage());
-        } catch (FeignException e) {
-            e.printStackTrace();
-            throw new ResponseStatusException(HttpStatus.INTERNAL_SERVER_ERROR, "Could not obtain prefixes from KGS.");
         }
     }
 
+    /**
+     * Reads the records on the calling thread and converts them in batches.
+     */
+    private void convertRecords(File file, ConversionPlan plan, ParallelRDFConverter parallel, StreamRDF sink, ConversionProgress progress)
+            throws IOException, ConversionException {
+        try (JsonRecordReader reader = JsonRecordReader.of(file)) {
+            Iterator<JsonNode> records = new Iterator<>() {
+                @Override
+                public boolean hasNext() {
+                    checkCancelled(file);
+                    return reader.hasNext();
+                }
+
+                private long bytesRead = 0;
+
+                @Override
+                public JsonNode next() {
+                    JsonNode record = reader.next();
+                    long read = reader.getBytesRead();
+                    metrics.bytesRead(read - bytesRead);
+                    bytesRead = read;
+                    progress.recordRead(read);
+                    return record;
+                }
+            };
+            parallel.convert(plan, records, sink);
+        }
+    }
+
+    /**
+     * Splits the file into shards along the record index, each shard is read and converted by a worker of its own.
+     */
+    private void convertShards(String dataId, File file, ConversionPlan plan, ParallelRDFConverter parallel, long shardBytes, StreamRDF sink,
+                               ConversionProgress progress) throws IOException, ConversionException {
+        RecordIndex index = dataStorageHandler.getRecordIndex(dataId, file);
+        long[] bounds = index.split(shardBytes);
+        log.debug("Converting file {} in {} shards", file.getName(), bounds.length - 1);
+        try (FileChannel channel = FileChannel.open(file.toPath(), StandardOpenOption.READ)) {
+            Iterator<ParallelRDFConverter.Shard> shards = new Iterator<>() {
+                private int next = 0;
+
+                @Override
+                public boolean hasNext() {
+                    checkCancelled(file);
+                    return next < bounds.length - 1;
+                }
+
+                @Override
+                public ParallelRDFConverter.Shard next() {
+                    long from = bounds[next];
+                    long to = bounds[++next];
+                    return new ParallelRDFConverter.Shard() {
+                        @Override
+                        public Iterable<JsonNode> read() throws IOException {
+                            return index.parseRecords(channel, from, to);
+                        }
+
+                        @Override
+                        public void emitted() {
+                            metrics.bytesRead(index.getEnd(to - 1) - index.getStart(from));
+                            progress.recordsRead(to - from, index.getEnd(to - 1));
+                        }
+                    };
+                }
+            };
+            parallel.convertShards(plan, shards, sink);
+        }
+    }
+
+    private static void checkCancelled(File file) {
+        if (Thread.currentThread().isInterrupted()) {
+            throw new CancellationException("Conversion of file " + file.getName() + " was cancelled");
+        }
+    }
+
+    private TripleDeduplicator deduplicate(RDFConverter converter, StreamRDF sink) {
+        return new TripleDeduplicator(sink, converter.getInstanceNamespace(), dedupExactLimit, dedupBloomSize * 8 * 1024 * 1024);
+    }
+
+    /**
+     * Converts the contents of a stored file into RDF and publishes the output as text chunks.
+     * The conversion is driven by the demand of the subscriber: every requested chunk converts the next records of the file,
+     * so a slow consumer slows down the conversion instead of the output being buffered.
+     * Cancelling the subscription stops the conversion. Results are not cached.
+     *
+     * @param template the finalized combined model
+     * @param dataId   the data id the file belongs to
+     * @param fileId   the file to convert, the latest file is used if null
+     * @param format   the format to write, must be a streamable text format
+     * @return the chunks of the serialized result
+     */
+    public Flux<String> processFileReactive(CombinedModel template, String dataId, String fileId, RDFOutputFormat format) {
+        if (format.isBinary() || !format.isStreamable()) {
+            throw new ResponseStatusException(HttpStatus.BAD_REQUEST, "Format " + format + " cannot be streamed as text.");
+        }
+        File file = resolveFile(dataId, fileId);
+        PrefixMapping prefixMapping = metrics.timePrefixes(prefixCache::getPrefixes);
+        return Flux.<String, ChunkedConversion>generate(
+                () -> openChunked(template, file, prefixMapping, format.getStreamingFormat()),
+                (conversion, sink) -> {
+                    try {
+                        String chunk = conversion.next();
+                        if (chunk == null) {
+                            sink.complete();
+                        } else {
+                            sink.next(chunk);
+                        }
+                    } catch (IOException | UncheckedIOException e) {
+                        log.info("Could not read contents of file {}", file.getName(), e);
+                        metrics.failed(ConversionMetrics.Failure.READ);
+                        sink.error(new ResponseStatusException(HttpStatus.INTERNAL_SERVER_ERROR, "Unable to read file."));
+                    } catch (ConversionException e) {
+                        log.warn("Could not convert contents of file {}", file.getName(), e);
+                        metrics.failed(ConversionMetrics.Failure.of(e));
+                        sink.error(new ResponseStatusException(HttpStatus.INTERNAL_SERVER_ERROR, "Could not convert file content(s): " + e.getMessage()));
+                    }
+                    return conversion;
+                },
+                conversion -> {
+                    try {
+                        conversion.close();
+                    } catch (IOException e) {
+                        log.debug("Could not close file {}", file.getName(), e);
+                    }
+                })
+                .subscribeOn(Schedulers.boundedElastic());
+    }
+
+    private ChunkedConversion openChunked(CombinedModel template, File file, PrefixMapping prefixMapping, RDFFormat format)
+            throws IOException, ConversionException {
+        RDFConverter converter = getConverter(prefixMapping);
+        template.getSemanticModel().setId(UUID.randomUUID().toString());
+        ConversionPlan plan = ConversionPlan.compile(template);
+        ChunkedConversion.ChunkBuffer buffer = new ChunkedConversion.ChunkBuffer();
+        StreamRDF writer = StreamRDFWriter.getWriterStream(buffer, format);
+        writer.start();
+        prefixMapping.getNsPrefixMap().forEach(writer::prefix);
+        return new ChunkedConversion(JsonRecordReader.of(file), plan, conversionWorkerPool.parallel(converter, metrics),
+                deduplicate(converter, writer), writer, buffer, chunkSize, metrics);
+    }
+
+    /**
+     * The converter is stateless apart from its prefixes, so it is shared until the cached prefixes change.
+     */
+    private RDFConverter getConverter(PrefixMapping prefixMapping) {
+        RDFConverter current = converter;
+        if (current == null || current.getPrefixes() != prefixMapping) {
+            current = new RDFConverter(prefixMapping, metrics::arrayExpanded);
+            converter = current;
+        }
+        return current;
+    }
+
     public static String asTurtle(Model model) {
         StringWriter out = new StringWriter();
         model.write(out, "TURTLE");
@@ -1,12 +1,17 @@
 package de.buw.tmdt.plasma.services.dps.core;
 
+import com.fasterxml.jackson.core.JsonGenerator;
+import com.fasterxml.jackson.core.JsonParser;
 import com.fasterxml.jackson.core.JsonProcessingException;
-import com.fasterxml.jackson.databind.JsonNode;
 import com.fasterxml.jackson.databind.ObjectMapper;
 import de.buw.tmdt.plasma.converter.csv.CSVConverter;
 import de.buw.tmdt.plasma.converter.esri.ESRIConverter;
 import de.buw.tmdt.plasma.converter.geojson.GeoJSONConverter;
+import de.buw.tmdt.plasma.services.dps.api.RecordPageDTO;
 import de.buw.tmdt.plasma.services.dps.api.SampleDTO;
+import de.buw.tmdt.plasma.services.dps.conversion.json.JsonRecordCopier;
+import de.buw.tmdt.plasma.services.dps.conversion.json.JsonRecordReader;
+import de.buw.tmdt.plasma.services.dps.conversion.json.RecordIndex;
 import edu.umd.cs.findbugs.annotations.SuppressFBWarnings;
 import org.apache.commons.lang3.StringUtils;
 import org.jetbrains.annotations.NotNull;
@@ -20,9 +25,16 @@ import org.springframework.web.multipart.MultipartFile;
 import org.springframework.web.server.ResponseStatusException;
 
 import javax.annotation.PostConstruct;
+import javax.annotation.PreDestroy;
+import java.io.BufferedOutputStream;
 import java.io.File;
 import java.io.FileOutputStream;
+import java.io.FilterInputStream;
 import java.io.IOException;
+import java.io.InputStream;
+import java.io.OutputStream;
+import java.io.PipedInputStream;
+import java.io.PipedOutputStream;
 import java.nio.charset.StandardCharsets;
 import java.nio.file.Files;
 import java.nio.file.Path;
@@ -30,6 +42,11 @@ import java.nio.file.Paths;
 import java.time.ZonedDateTime;
 import java.time.format.DateTimeFormatter;
 import java.util.*;
+import java.util.concurrent.ExecutionException;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import java.util.concurrent.Future;
+import java.util.concurrent.atomic.AtomicInteger;
 import java.util.stream.Collectors;
 
 @Service
@@ -39,10 +56,27 @@ public class DataStorageHandler {
     @Value("${plasma.dps.storage.directory:./storage}")
     String storageDirectoryString;
 
+    @Value("${plasma.dps.upload.csv.infertypes:true}")
+    boolean inferCsvTypes = true;
+
     ObjectMapper objectMapper = new ObjectMapper();
 
     private static final Logger log = LoggerFactory.getLogger(DataStorageHandler.class);
 
+    private static final int SAMPLE_SIZE = 10;
+    private static final int MAX_PAGE_SIZE = 1000;
+
+    static final String INDEX_DIRECTORY = "index";
+    private static final String INDEX_SUFFIX = ".idx";
+    private static final int PIPE_SIZE = 64 * 1024;
+
+    private final AtomicInteger converterCounter = new AtomicInteger();
+    private final ExecutorService converterExecutor = Executors.newCachedThreadPool(runnable -> {
+        Thread thread = new Thread(runnable, "dps-upload-" + converterCounter.incrementAndGet());
+        thread.setDaemon(true);
+        return thread;
+    });
+
     @PostConstruct
     public void initStorage() {
         log.info("Storage directory: {}", storageDirectoryString);
@@ -54,6 +88,11 @@ public class DataStorageHandler {
         }
     }
 
+    @PreDestroy
+    public void shutdown() {
+        converterExecutor.shutdownNow();
+    }
+
     /**
      * Processes a file and returns the converted data.
      *
@@ -84,68 +123,42 @@ public class DataStorageHandler {
         // Check how many files are already existing to increase version
         int numberOfFiles = folder.list() == null ? 0 : Objects.requireNonNull(folder.list()).length;
 
-        Path newFilePath = Paths.get(storageDirectoryString, dataId, dateString + "_upload_" + (numberOfFiles + 1) + ".json"); // nur json speichern -> volume
-
         String fileEnding = StringUtils.substringAfterLast(file.getOriginalFilename(), ".");
-        String result = "";
+        // JSON Lines are kept as they are, all other formats are stored as a single JSON document
+        boolean lines = JsonRecordReader.isLines(StringUtils.defaultString(file.getOriginalFilename()));
+        String storedEnding = lines ? JsonRecordReader.LINES_EXTENSIONS.get(0) : "json";
 
+        Path newFilePath = Paths.get(storageDirectoryString, dataId, dateString + "_upload_" + (numberOfFiles + 1) + "." + storedEnding); // nur json speichern -> volume
 
+        InputStream upload;
         try {
-            String content = new String(file.getBytes(), StandardCharsets.UTF_8);
-            if ("geojson".equals(fileEnding)) {
-                result = GeoJSONConverter.convert(content);
-            } else if ("zip".equalsIgnoreCase(fileEnding)) {
-                // Convert ESRI to JSON
-                byte[] bytes = file.getBytes();
-                // Create temp file
-                Path newFilePathTemp = Paths.get(storageDirectoryString, dataId, dateString + "_upload_" + (numberOfFiles + 1) + "_temp"); //
-                Files.write(newFilePathTemp, bytes);
-                // extract contents from temp file
-                String geoJSON = ESRIConverter.convertToGeoJSON(newFilePathTemp);
-                result = GeoJSONConverter.convert(geoJSON);
-                Files.deleteIfExists(newFilePathTemp);
-
-            } else if ("csv".equalsIgnoreCase(fileEnding)) {
-                // Convert CSV to JSON
-                result = CSVConverter.convert(content, 1);
-            } else if ("json".equalsIgnoreCase(fileEnding)) {
-                result = content;
-            }
-        } catch (IOException | de.buw.tmdt.plasma.converter.ConversionException e) {
+            upload = openUpload(file, fileEnding);
+        } catch (IOException e) {
             throw new ResponseStatusException(
                     HttpStatus.INTERNAL_SERVER_ERROR,
                     "Could not convert file"
             );
         }
 
-        try {
-            FileOutputStream outputStream = new FileOutputStream(newFilePath.toFile());
-            byte[] strToBytes = result.getBytes(StandardCharsets.UTF_8);
-            outputStream.write(strToBytes);
-            outputStream.close();
-        } catch (IOException e) {
+        // the converted data is written to disk while the samples are taken from the same token stream
+        List<String> jsonSampleList;
+        Path indexPath = indexPath(dataId, newFilePath.getFileName().toString());
+        try (upload;
+             JsonParser parser = objectMapper.getFactory().createParser(upload);
+             OutputStream outputStream = new BufferedOutputStream(new FileOutputStream(newFilePath.toFile()));
+             RecordIndex.Writer index = new RecordIndex.Writer(Files.createDirectories(indexPath.getParent()).resolve(indexPath.getFileName()))) {
+            jsonSampleList = JsonRecordCopier.copy(parser, outputStream, SAMPLE_SIZE, index, lines);
+            // a conversion is only known to have succeeded once the end of its output has been read
+            upload.transferTo(OutputStream.nullOutputStream());
+        } catch (ConversionFailedException e) {
+            log.warn("Could not convert file {}", file.getOriginalFilename(), e.getCause());
+            if (!newFilePath.toFile().delete()) {
+                log.error("Could not properly delete file");
+            }
             throw new ResponseStatusException(
                     HttpStatus.INTERNAL_SERVER_ERROR,
-                    "Could not store file"
+                    "Could not convert file"
             );
-        }
-
-        List<String> jsonSampleList = new ArrayList<>();
-        try {
-            JsonNode obj = objectMapper.readTree(result);
-            if (obj.isArray()) {
-                int counter = 0;
-
-                for (JsonNode element : obj) {
-                    counter++;
-                    jsonSampleList.add(element.toString());
-                    if (counter >= 10) {
-                        break;
-                    }
-                }
-            } else {
-                jsonSampleList.add(obj.toString());
-            }
         } catch (JsonProcessingException e) {
             if (!newFilePath.toFile().delete()) {
                 log.error("Could not properly delete file");
@@ -154,11 +167,191 @@ public class DataStorageHandler {
                     HttpStatus.INTERNAL_SERVER_ERROR,
                     "Formatting error in JSON file"
             );
+        } catch (IOException e) {
+            if (!newFilePath.toFile().delete()) {
+                log.error("Could not properly delete file");
+            }
+            throw new ResponseStatusException(
+                    HttpStatus.INTERNAL_SERVER_ERROR,
+                    "Could not store file"
+            );
         }
 
         return new SampleDTO(dataId, newFilePath.getFileName().toString(), jsonSampleList);
     }
 
+    /**
+     * Opens the JSON representation of an uploaded file.
+     * JSON and JSON Lines uploads are read directly from the request stream, all other formats are converted to JSON on a
+     * separate thread while the converted JSON is read, so the converted document is not written to disk before it is stored.
+     * A failed conversion is reported as a {@link ConversionFailedException} at the end of the stream.
+     *
+     * @param file       the uploaded file
+     * @param fileEnding the extension of the uploaded file
+     * @return stream of the JSON representation
+     */
+    private InputStream openUpload(MultipartFile file, String fileEnding) throws IOException {
+        if ("json".equalsIgnoreCase(fileEnding) || JsonRecordReader.isLines("." + fileEnding)) {
+            return file.getInputStream();
+        }
+        boolean geoJson = "geojson".equals(fileEnding);
+        boolean esri = "zip".equalsIgnoreCase(fileEnding);
+        boolean csv = "csv".equalsIgnoreCase(fileEnding);
+        if (!geoJson && !esri && !csv) {
+            return InputStream.nullInputStream();
+        }
+        // the converters write one feature or row at a time, which is parsed like a JSON upload as soon as it is written
+        PipedInputStream pipe = new PipedInputStream(PIPE_SIZE);
+        OutputStream out = new PipedOutputStream(pipe);
+        Future<?> conversion = converterExecutor.submit(() -> {
+            try (JsonGenerator generator = objectMapper.getFactory().createGenerator(out); InputStream in = file.getInputStream()) {
+                if (geoJson) {
+                    GeoJSONConverter.convert(in, generator);
+                } else if (esri) {
+                    // the shapefile is read from the archive in memory
+                    ESRIConverter.convert(in, StandardCharsets.ISO_8859_1, generator);
+                } else {
+                    CSVConverter.convert(in, ',', 1, inferCsvTypes, generator);
+                }
+            } finally {
+                out.close();
+            }
+            return null;
+        });
+        return new ConvertedInputStream(pipe, conversion);
+    }
+
+    /**
+     * Reads the JSON written by a conversion running on another thread.
+     * The end of the stream is only reported once the conversion has completed successfully, closing the stream aborts the conversion.
+     */
+    private static final class ConvertedInputStream extends FilterInputStream {
+
+        private final Future<?> conversion;
+
+        private ConvertedInputStream(PipedInputStream in, Future<?> conversion) {
+            super(in);
+            this.conversion = conversion;
+        }
+
+        @Override
+        public int read() throws IOException {
+            int b = super.read();
+            if (b < 0) {
+                awaitConversion();
+            }
+            return b;
+        }
+
+        @Override
+        public int read(byte[] b, int off, int len) throws IOException {
+            int read = super.read(b, off, len);
+            if (read < 0) {
+                awaitConversion();
+            }
+            return read;
+        }
+
+        private void awaitConversion() throws IOException {
+            try {
+                conversion.get();
+            } catch (InterruptedException e) {
+                Thread.currentThread().interrupt();
+                throw new IOException("Interrupted while waiting for the conversion", e);
+            } catch (ExecutionException e) {
+                throw new ConversionFailedException(e.getCause());
+            }
+        }
+
+        @Override
+        public void close() throws IOException {
+            conversion.cancel(true);
+            super.close();
+        }
+    }
+
+    /**
+     * Signals that an upload could not be converted to JSON.
+     */
+    private static final class ConversionFailedException extends IOException {
+
+        private static final long serialVersionUID = 1L;
+
+        private ConversionFailedException(Throwable cause) {
+            super("Could not convert file", cause);
+        }
+    }
+
+    /**
+     * Reads a page of records of a stored file.
+     *
+     * @param dataId data id the file belongs to
+     * @param fileId name of the file, the latest file if null
+     * @param offset index of the first record
+     * @param limit  maximum number of records
+     * @return the requested records together with the total number of records
+     */
+    public RecordPageDTO readRecords(String dataId, @Nullable String fileId, long offset, int limit) {
+        if (offset < 0 || limit < 1 || limit > MAX_PAGE_SIZE) {
+            throw new ResponseStatusException(HttpStatus.BAD_REQUEST, "Offset must not be negative and limit must be between 1 and " + MAX_PAGE_SIZE);
+        }
+        File file = resolveFile(dataId, fileId);
+        try {
+            RecordIndex index = getRecordIndex(dataId, file);
+            return new RecordPageDTO(dataId, file.getName(), offset, index.getRecordCount(), index.readRecords(file.toPath(), offset, limit));
+        } catch (IOException e) {
+            log.error("Could not read records of file {}", file, e);
+            throw new ResponseStatusException(HttpStatus.INTERNAL_SERVER_ERROR, "Could not read records");
+        }
+    }
+
+    /**
+     * Returns the record index of a stored file.
+     * Files stored before record indexes were introduced or whose index is outdated are indexed again.
+     *
+     * @param dataId data id the file belongs to
+     * @param file   the stored file
+     * @return the index
+     * @throws IOException if the file cannot be indexed
+     */
+    public RecordIndex getRecordIndex(String dataId, File file) throws IOException {
+        Path indexPath = indexPath(dataId, file.getName());
+        if (Files.exists(indexPath)) {
+            RecordIndex index = RecordIndex.read(indexPath);
+            if (index.getFileSize() == file.length()) {
+                return index;
+            }
+        }
+        log.info("Building record index for file {}", file);
+        Files.createDirectories(indexPath.getParent());
+        return RecordIndex.build(file.toPath(), indexPath, JsonRecordReader.isLines(file.getName()));
+    }
+
+    private Path indexPath(String dataId, String fileName) {
+        return Paths.get(storageDirectoryString, INDEX_DIRECTORY, dataId, fileName + INDEX_SUFFIX);
+    }
+
+    /**
+     * Finds a stored file.
+     *
+     * @param dataId data id the file belongs to
+     * @param fileId name of the file, the latest file if null
+     * @return the file
+     */
+    public File resolveFile(String dataId, @Nullable String fileId) {
+        List<File> files = listFiles(dataId);
+        if (files.isEmpty()) {
+            throw new ResponseStatusException(HttpStatus.NOT_FOUND, "No files found for dataId " + dataId);
+        }
+        if (fileId == null) {
+            return files.get(files.size() - 1);
+        }
+        return files.stream()
+                .filter(x -> fileId.equals(x.getName()))
+                .findFirst()
+                .orElseThrow(() -> new ResponseStatusException(HttpStatus.NOT_FOUND, "Requested fileId could not be found"));
+    }
+
     /**
      * Get all files for a given dataId.
      *
@@ -0,0 +1,137 @@
+package de.buw.tmdt.plasma.services.dps.core;
+
+import de.buw.tmdt.plasma.services.kgs.shared.feignclient.OntologyApiClient;
+import feign.FeignException;
+import org.apache.jena.shared.PrefixMapping;
+import org.apache.jena.shared.impl.PrefixMappingImpl;
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
+import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.boot.context.event.ApplicationReadyEvent;
+import org.springframework.context.event.EventListener;
+import org.springframework.http.HttpStatus;
+import org.springframework.stereotype.Component;
+import org.springframework.web.server.ResponseStatusException;
+
+import javax.annotation.PreDestroy;
+import java.time.Duration;
+import java.time.Instant;
+import java.util.Map;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import java.util.concurrent.atomic.AtomicBoolean;
+import java.util.concurrent.atomic.AtomicLong;
+
+/**
+ * Local copy of the namespace prefixes known to the KGS.
+ * Once loaded, the prefixes are served from memory. Expired prefixes are still returned while a refresh runs in the background,
+ * so conversions only wait for the KGS if no prefixes have been loaded yet or after an explicit {@link #invalidate()}.
+ */
+@Component
+public class PrefixCache {
+
+    private static final Logger log = LoggerFactory.getLogger(PrefixCache.class);
+
+    private final OntologyApiClient ontologyApiClient;
+    private final Duration ttl;
+    private final ExecutorService refresher = Executors.newSingleThreadExecutor(runnable -> {
+        Thread thread = new Thread(runnable, "dps-prefix-refresh");
+        thread.setDaemon(true);
+        return thread;
+    });
+    private final AtomicBoolean refreshing = new AtomicBoolean(false);
+    private final AtomicLong generation = new AtomicLong();
+
+    private volatile Entry entry;
+
+    @Autowired
+    public PrefixCache(@SuppressWarnings("SpringJavaInjectionPointsAutowiringInspection")
+                               OntologyApiClient ontologyApiClient,
+                       @Value("${plasma.dps.prefixes.ttl:300}") long ttlSeconds) {
+        this.ontologyApiClient = ontologyApiClient;
+        this.ttl = Duration.ofSeconds(ttlSeconds);
+    }
+
+    /**
+     * Returns the current prefixes, loading them from the KGS only if none are cached.
+     *
+     * @return the prefix mapping, which must not be modified
+     */
+    public PrefixMapping getPrefixes() {
+        Entry current = entry;
+        if (current == null) {
+            return load().prefixes;
+        }
+        if (current.isExpired(ttl)) {
+            refreshAsync();
+        }
+        return current.prefixes;
+    }
+
+    /**
+     * Drops the cached prefixes, e.g. after an ontology has been added to the KGS.
+     * The next conversion loads the prefixes again.
+     */
+    public void invalidate() {
+        log.info("Invalidating cached prefixes");
+        generation.incrementAndGet();
+        entry = null;
+    }
+
+    @EventListener(ApplicationReadyEvent.class)
+    public void refreshAsync() {
+        if (refreshing.compareAndSet(false, true)) {
+            refresher.execute(() -> {
+                try {
+                    load();
+                } catch (ResponseStatusException e) {
+                    log.debug("Keeping previous prefixes");
+                } finally {
+                    refreshing.set(false);
+                }
+            });
+        }
+    }
+
+    private Entry load() {
+        long loadGeneration = generation.get();
+        Map<String, String> namespaces;
+        try {
+            namespaces = ontologyApiClient.getNamespaces();
+        } catch (FeignException e) {
+            log.warn("Could not obtain prefixes from KGS", e);
+            throw new ResponseStatusException(HttpStatus.INTERNAL_SERVER_ERROR, "Could not obtain prefixes from KGS.");
+        }
+        PrefixMapping prefixes = new PrefixMappingImpl();
+        prefixes.setNsPrefixes(namespaces);
+        prefixes.lock();
+        Entry loaded = new Entry(prefixes, Instant.now());
+        // do not overwrite an invalidation that happened while loading
+        if (generation.get() == loadGeneration) {
+            entry = loaded;
+        }
+        log.debug("Loaded {} prefixes from KGS", namespaces.size());
+        return loaded;
+    }
+
+    @PreDestroy
+    public void shutdown() {
+        refresher.shutdownNow();
+    }
+
+    private static final class Entry {
+
+        private final PrefixMapping prefixes;
+        private final Instant loadedAt;
+
+        private Entry(PrefixMapping prefixes, Instant loadedAt) {
+            this.prefixes = prefixes;
+            this.loadedAt = loadedAt;
+        }
+
+        private boolean isExpired(Duration ttl) {
+            return loadedAt.plus(ttl).isBefore(Instant.now());
+        }
+    }
+}
@@ -1,32 +1,69 @@
 package de.buw.tmdt.plasma.services.dps.rest.controller;
 
 import de.buw.tmdt.plasma.datamodel.CombinedModel;
+import de.buw.tmdt.plasma.services.dps.api.ConversionJobDTO;
 import de.buw.tmdt.plasma.services.dps.api.DataProcessingApi;
+import de.buw.tmdt.plasma.services.dps.api.RecordPageDTO;
 import de.buw.tmdt.plasma.services.dps.api.SampleDTO;
+import de.buw.tmdt.plasma.services.dps.conversion.rdf.RDFOutputFormat;
+import de.buw.tmdt.plasma.services.dps.core.ConversionJob;
+import de.buw.tmdt.plasma.services.dps.core.ConversionJobHandler;
 import de.buw.tmdt.plasma.services.dps.core.DataProcessingHandler;
 import de.buw.tmdt.plasma.services.dps.core.DataStorageHandler;
+import de.buw.tmdt.plasma.services.dps.core.PrefixCache;
 import io.swagger.v3.oas.annotations.Operation;
 import org.jetbrains.annotations.NotNull;
 import org.jetbrains.annotations.Nullable;
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.core.io.FileSystemResource;
+import org.springframework.http.HttpHeaders;
 import org.springframework.http.HttpStatus;
+import org.springframework.http.MediaType;
 import org.springframework.http.ResponseEntity;
+import org.springframework.web.bind.annotation.GetMapping;
+import org.springframework.web.bind.annotation.PathVariable;
+import org.springframework.web.bind.annotation.PostMapping;
+import org.springframework.web.bind.annotation.RequestBody;
+import org.springframework.web.bind.annotation.RequestParam;
 import org.springframework.web.bind.annotation.RestController;
+import org.springframework.web.context.request.async.WebAsyncTask;
 import org.springframework.web.multipart.MultipartFile;
+import org.springframework.web.server.ResponseStatusException;
+import reactor.core.publisher.Flux;
+import reactor.core.publisher.Mono;
 
+import javax.servlet.http.HttpServletResponse;
 import java.io.File;
+import java.io.OutputStream;
+import java.nio.file.Path;
+import java.time.Duration;
 import java.util.List;
+import java.util.concurrent.TimeUnit;
 import java.util.stream.Collectors;
 
 @RestController("Data Processing Controller")
 public class DataProcessingController implements DataProcessingApi {
 
+	/**
+	 * Seconds a streamed or reactive conversion may take before its request is aborted, 0 for no limit.
+	 */
+	@Value("${plasma.dps.conversion.timeout:3600}")
+	private long conversionTimeout;
+
 	private final DataProcessingHandler dataProcessingHandler;
 	private final DataStorageHandler dataStorageHandler;
+	private final ConversionJobHandler conversionJobHandler;
+	private final PrefixCache prefixCache;
 
 
-	public DataProcessingController(DataProcessingHandler dataProcessingHandler, DataStorageHandler dataStorageHandler) {
+	public DataProcessingController(DataProcessingHandler dataProcessingHandler,
+	                                DataStorageHandler dataStorageHandler,
+	                                ConversionJobHandler conversionJobHandler,
+	                                PrefixCache prefixCache) {
 		this.dataProcessingHandler = dataProcessingHandler;
 		this.dataStorageHandler = dataStorageHandler;
+		this.conversionJobHandler = conversionJobHandler;
+		this.prefixCache = prefixCache;
 	}
 
 	@Override
@@ -41,6 +78,12 @@ public class DataProcessingController implements DataProcessingApi {
 		return dataStorageHandler.listFiles(dataId).stream().map(File::getName).sorted().collect(Collectors.toList());
 	}
 
+	@Override
+	@Operation(description = "Returns a page of records of a file without reading the complete file.")
+	public RecordPageDTO getRecords(@NotNull String dataId, String fileId, long offset, int limit) {
+		return dataStorageHandler.readRecords(dataId, fileId, offset, limit);
+	}
+
 	@Override
 	@Operation(description = "Check if service available.")
 	public ResponseEntity<String> isAvailable() {
@@ -48,8 +91,86 @@ public class DataProcessingController implements DataProcessingApi {
 	}
 
 	@Override
+	@Operation(description = "Converts a file and returns the complete result. Intended for previews, use the streaming endpoint for large files.")
 	public String convertFile(CombinedModel template, String dataId, String fileId, String format) {
-		// ignore format parameter for now
-		return dataProcessingHandler.processFile(template,dataId, fileId);
+		return dataProcessingHandler.processFile(template, dataId, fileId, parseFormat(format));
+	}
+
+	@PostMapping(value = "/convert/stream")
+	@Operation(description = "Converts a file and streams the resulting RDF while the conversion is in progress. "
+			+ "Supported formats are turtle, ntriples, nquads, jsonld and thrift.")
+	public WebAsyncTask<Void> convertFileStreaming(@RequestBody CombinedModel template,
+	                                               @RequestParam(value = "dataId") String dataId,
+	                                               @RequestParam(value = "fileId", required = false) String fileId,
+	                                               @RequestParam(value = "format", defaultValue = "turtle") String format,
+	                                               HttpServletResponse response) {
+		RDFOutputFormat outputFormat = parseFormat(format);
+		response.setContentType(outputFormat.getMediaType());
+		// the conversion runs as asynchronous request with its own timeout instead of the default one of the container
+		return new WebAsyncTask<>(TimeUnit.SECONDS.toMillis(conversionTimeout), () -> {
+			OutputStream out = response.getOutputStream();
+			dataProcessingHandler.processFile(template, dataId, fileId, outputFormat, out);
+			out.flush();
+			return null;
+		});
+	}
+
+	@PostMapping(value = "/convert/reactive")
+	@Operation(description = "Converts a file and streams the resulting RDF in chunks as requested by the client connection, "
+			+ "a slow client slows down the conversion. Supported formats are turtle, ntriples and nquads.")
+	public ResponseEntity<Flux<String>> convertFileReactive(@RequestBody CombinedModel template,
+	                                                        @RequestParam(value = "dataId") String dataId,
+	                                                        @RequestParam(value = "fileId", required = false) String fileId,
+	                                                        @RequestParam(value = "format", defaultValue = "turtle") String format) {
+		RDFOutputFormat outputFormat = parseFormat(format);
+		Flux<String> chunks = dataProcessingHandler.processFileReactive(template, dataId, fileId, outputFormat);
+		if (conversionTimeout > 0) {
+			// Spring streams the chunks without a timeout, the deadline covers the conversion and the time waiting for the client
+			Mono<Long> deadline = Mono.delay(Duration.ofSeconds(conversionTimeout)).cache();
+			chunks = chunks.timeout(deadline, chunk -> deadline);
+		}
+		return ResponseEntity.ok()
+				.contentType(MediaType.parseMediaType(outputFormat.getMediaType()))
+				.body(chunks);
+	}
+
+	@Override
+	@Operation(description = "Queues the conversion of a file as background job.")
+	public ConversionJobDTO submitConversionJob(CombinedModel template, String dataId, String fileId, String format) {
+		return conversionJobHandler.submit(template, dataId, fileId, parseFormat(format)).toDTO();
+	}
+
+	@Override
+	@Operation(description = "Returns the status and progress of a conversion job.")
+	public ConversionJobDTO getConversionJob(@NotNull String jobId) {
+		return conversionJobHandler.getJob(jobId).toDTO();
+	}
+
+	@Override
+	@Operation(description = "Cancels a running conversion job or removes a finished one together with its result.")
+	public ConversionJobDTO cancelConversionJob(@NotNull String jobId) {
+		return conversionJobHandler.cancel(jobId).toDTO();
+	}
+
+	@GetMapping(value = "/jobs/{jobId}/result")
+	@Operation(description = "Downloads the result of a finished conversion job.")
+	public ResponseEntity<FileSystemResource> getConversionJobResult(@PathVariable("jobId") String jobId) {
+		ConversionJob job = conversionJobHandler.getJob(jobId);
+		Path result = conversionJobHandler.getResult(jobId);
+		return ResponseEntity.ok()
+				.contentType(MediaType.parseMediaType(job.getFormat().getMediaType()))
+				.header(HttpHeaders.CONTENT_DISPOSITION, "attachment; filename=\"" + result.getFileName() + "\"")
+				.body(new FileSystemResource(result));
+	}
+
+	@Override
+	@Operation(description = "Drops the cached namespace prefixes, e.g. after an ontology has been added to the KGS.")
+	public void invalidatePrefixes() {
+		prefixCache.invalidate();
+	}
+
+	private static RDFOutputFormat parseFormat(String format) {
+		return RDFOutputFormat.fromName(format)
+				.orElseThrow(() -> new ResponseStatusException(HttpStatus.BAD_REQUEST, "Unsupported format: " + format));
 	}
 }
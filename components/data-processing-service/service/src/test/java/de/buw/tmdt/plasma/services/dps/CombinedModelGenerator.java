@@ -24,6 +24,7 @@ public class CombinedModelGenerator {
     private boolean mapStaffInstance = false;
     private boolean mapVesselInformation = true;
     private boolean mapTagInstance = false;
+    private boolean mapTagKeyInstance = false;
 
 
     private static void mapSemanticNode(MappableSemanticModelNode semanticNode, MappableSyntaxNode schemaNode) {
@@ -193,6 +194,12 @@ public class CombinedModelGenerator {
                 Relation staffTagsRelation = new ObjectProperty(staffClass.getUuid(), tagsClass.getUuid(), namespace + "tags");
                 elements.addAll(List.of(tagsClass, tagKeyLiteral, tagValueLiteral));
                 relations.addAll(List.of(staffTagsRelation, tagKeyRelation, tagValueRelation));
+            } else if (this.mapTagKeyInstance) {
+                Class tagKeyClass = new Class(namespace + "tag_key", "tag key", "The key of a special term.");
+                mapSemanticNode(tagKeyClass, tagsKeyNode);
+                Relation staffTagKeyRelation = new ObjectProperty(staffClass.getUuid(), tagKeyClass.getUuid(), namespace + "tagged");
+                elements.add(tagKeyClass);
+                relations.add(staffTagKeyRelation);
             }
         }
 
@@ -254,4 +261,12 @@ public class CombinedModelGenerator {
     public void setMapTagInstance(boolean mapTagInstance) {
         this.mapTagInstance = mapTagInstance;
     }
+
+    public boolean isMapTagKeyInstance() {
+        return mapTagKeyInstance;
+    }
+
+    public void setMapTagKeyInstance(boolean mapTagKeyInstance) {
+        this.mapTagKeyInstance = mapTagKeyInstance;
+    }
 }
@@ -0,0 +1,64 @@
+package de.buw.tmdt.plasma.services.dps.conversion.json;
+
+import com.fasterxml.jackson.databind.JsonNode;
+import org.junit.jupiter.api.Test;
+
+import java.io.ByteArrayInputStream;
+import java.io.IOException;
+import java.io.InputStream;
+import java.nio.charset.StandardCharsets;
+import java.util.ArrayList;
+import java.util.List;
+
+import static org.junit.jupiter.api.Assertions.*;
+
+class JsonRecordReaderTest {
+
+    @Test
+    void readArrayElementsAsRecords() throws IOException {
+        InputStream is = JsonRecordReaderTest.class.getResourceAsStream("/flight.json");
+        assertNotNull(is);
+        List<JsonNode> records = readAll(is);
+        assertEquals(2, records.size());
+        assertEquals("AL0025-20201123-1456-1634", records.get(0).get("id").asText());
+    }
+
+    @Test
+    void readObjectAsSingleRecord() throws IOException {
+        List<JsonNode> records = readAll(asStream("{\"a\": 1, \"b\": [1, 2]}"));
+        assertEquals(1, records.size());
+        assertEquals(1, records.get(0).get("a").asInt());
+    }
+
+    @Test
+    void readEmptyArray() throws IOException {
+        assertTrue(readAll(asStream("[]")).isEmpty());
+        assertTrue(readAll(asStream("")).isEmpty());
+    }
+
+    @Test
+    void readLinesAsRecords() throws IOException {
+        List<JsonNode> records = new ArrayList<>();
+        try (JsonRecordReader reader = JsonRecordReader.ofLines(asStream("{\"a\": 1}\n[1, 2]\n\n{\"a\": 3}\n"))) {
+            reader.forEachRemaining(records::add);
+        }
+        assertEquals(3, records.size());
+        assertTrue(records.get(1).isArray());
+        assertEquals(3, records.get(2).get("a").asInt());
+        assertTrue(JsonRecordReader.isLines("20220101-1200_upload_1.ndjson"));
+        assertTrue(JsonRecordReader.isLines("feed.JSONL"));
+        assertFalse(JsonRecordReader.isLines("flight.json"));
+    }
+
+    private static List<JsonNode> readAll(InputStream is) throws IOException {
+        List<JsonNode> records = new ArrayList<>();
+        try (JsonRecordReader reader = JsonRecordReader.of(is)) {
+            reader.forEachRemaining(records::add);
+        }
+        return records;
+    }
+
+    private static InputStream asStream(String content) {
+        return new ByteArrayInputStream(content.getBytes(StandardCharsets.UTF_8));
+    }
+}
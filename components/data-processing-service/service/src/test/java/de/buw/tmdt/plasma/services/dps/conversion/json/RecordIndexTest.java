@@ -0,0 +1,120 @@
+package de.buw.tmdt.plasma.services.dps.conversion.json;
+
+import com.fasterxml.jackson.databind.ObjectMapper;
+import org.junit.jupiter.api.Test;
+import org.junit.jupiter.api.io.TempDir;
+
+import java.io.IOException;
+import java.io.OutputStream;
+import java.nio.channels.FileChannel;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.nio.file.StandardOpenOption;
+import java.util.ArrayList;
+import java.util.List;
+
+import static org.junit.jupiter.api.Assertions.*;
+
+class RecordIndexTest {
+
+    private static final String DOCUMENT = "[{\"id\": 1, \"tags\": [\"a\"]}, \"text\", 42, [1, 2], {\"id\": 5}, null]";
+
+    @TempDir
+    Path directory;
+
+    @Test
+    void indexWhileCopying() throws IOException {
+        Path json = directory.resolve("data.json");
+        Path indexFile = directory.resolve("data.json.idx");
+        List<String> samples;
+        try (OutputStream out = Files.newOutputStream(json);
+             RecordIndex.Writer writer = new RecordIndex.Writer(indexFile)) {
+            samples = JsonRecordCopier.copy(new ObjectMapper().getFactory().createParser(DOCUMENT), out, 2, writer, false);
+        }
+        assertEquals(2, samples.size());
+
+        RecordIndex index = RecordIndex.read(indexFile);
+        assertEquals(6, index.getRecordCount());
+        assertEquals(Files.size(json), index.getFileSize());
+        assertEquals(List.of("{\"id\":1,\"tags\":[\"a\"]}", "\"text\"", "42", "[1,2]", "{\"id\":5}", "null"),
+                index.readRecords(json, 0, 10));
+        assertEquals(List.of("[1,2]", "{\"id\":5}"), index.readRecords(json, 3, 2));
+        assertTrue(index.readRecords(json, 6, 2).isEmpty());
+    }
+
+    @Test
+    void buildIndexOfExistingFile() throws IOException {
+        Path json = Files.writeString(directory.resolve("data.json"), DOCUMENT);
+        RecordIndex index = RecordIndex.build(json, directory.resolve("data.json.idx"), false);
+        assertEquals(6, index.getRecordCount());
+        assertEquals(List.of("{\"id\": 1, \"tags\": [\"a\"]}", "\"text\"", "42", "[1, 2]", "{\"id\": 5}", "null"),
+                index.readRecords(json, 0, 6));
+
+        Path object = Files.writeString(directory.resolve("object.json"), " {\"a\": \"b\"} ");
+        index = RecordIndex.build(object, directory.resolve("object.json.idx"), false);
+        assertEquals(List.of("{\"a\": \"b\"}"), index.readRecords(object, 0, 10));
+    }
+
+    @Test
+    void indexJsonLines() throws IOException {
+        Path json = directory.resolve("data.ndjson");
+        Path indexFile = directory.resolve("data.ndjson.idx");
+        try (OutputStream out = Files.newOutputStream(json);
+             RecordIndex.Writer writer = new RecordIndex.Writer(indexFile)) {
+            JsonRecordCopier.copy(new ObjectMapper().getFactory().createParser("{\"id\": 1}\n[1, 2]\n\n{\"id\": 3}"), out, 10, writer, true);
+        }
+        assertEquals("{\"id\":1}\n[1,2]\n{\"id\":3}\n", Files.readString(json));
+        RecordIndex index = RecordIndex.read(indexFile);
+        assertEquals(List.of("{\"id\":1}", "[1,2]", "{\"id\":3}"), index.readRecords(json, 0, 10));
+
+        index = RecordIndex.build(json, directory.resolve("rebuilt.idx"), true);
+        assertEquals(List.of("[1,2]", "{\"id\":3}"), index.readRecords(json, 1, 10));
+    }
+
+    @Test
+    void splitIntoShards() throws IOException {
+        Path json = Files.writeString(directory.resolve("data.json"), DOCUMENT);
+        RecordIndex index = RecordIndex.build(json, directory.resolve("data.json.idx"), false);
+        assertArrayEquals(new long[]{0, 6}, index.split(1000));
+        assertArrayEquals(new long[]{0, 1, 2, 3, 4, 5, 6}, index.split(1));
+        long[] bounds = index.split(20);
+        assertEquals(0, bounds[0]);
+        assertEquals(6, bounds[bounds.length - 1]);
+
+        List<String> records = new ArrayList<>();
+        try (FileChannel channel = FileChannel.open(json, StandardOpenOption.READ)) {
+            for (int i = 0; i < bounds.length - 1; i++) {
+                assertTrue(bounds[i] < bounds[i + 1]);
+                index.parseRecords(channel, bounds[i], bounds[i + 1]).forEach(record -> records.add(record.toString()));
+            }
+        }
+        assertEquals(List.of("{\"id\":1,\"tags\":[\"a\"]}", "\"text\"", "42", "[1,2]", "{\"id\":5}", "null"), records);
+    }
+
+    @Test
+    void readIndexInWindows() throws IOException {
+        Path json = Files.writeString(directory.resolve("data.json"), DOCUMENT);
+        Path indexFile = directory.resolve("data.json.idx");
+        RecordIndex.build(json, indexFile, false);
+
+        // 14 longs in windows of 4, so the offsets of records and the trailer span several windows
+        RecordIndex index = RecordIndex.read(indexFile, 4);
+        assertEquals(6, index.getRecordCount());
+        assertEquals(Files.size(json), index.getFileSize());
+        assertEquals(List.of("{\"id\": 1, \"tags\": [\"a\"]}", "\"text\"", "42", "[1, 2]", "{\"id\": 5}", "null"),
+                index.readRecords(json, 0, 6));
+        assertArrayEquals(RecordIndex.read(indexFile).split(20), index.split(20));
+    }
+
+    @Test
+    void discardUnfinishedIndex() throws IOException {
+        Path indexFile = directory.resolve("data.json.idx");
+        try (RecordIndex.Writer writer = new RecordIndex.Writer(indexFile)) {
+            writer.add(1, 2);
+        }
+        assertFalse(Files.exists(indexFile));
+        try (var files = Files.list(directory)) {
+            assertEquals(0, files.count());
+        }
+    }
+}
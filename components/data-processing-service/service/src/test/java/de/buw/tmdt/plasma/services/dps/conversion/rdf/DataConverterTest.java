@@ -6,20 +6,36 @@ import com.fasterxml.jackson.databind.ObjectMapper;
 import de.buw.tmdt.plasma.datamodel.CombinedModel;
 import de.buw.tmdt.plasma.services.dps.CombinedModelGenerator;
 import de.buw.tmdt.plasma.services.dps.conversion.ConversionException;
+import org.apache.jena.graph.Graph;
+import org.apache.jena.graph.Node;
+import org.apache.jena.graph.NodeFactory;
+import org.apache.jena.graph.Triple;
 import org.apache.jena.rdf.model.Model;
 import org.apache.jena.rdf.model.ModelFactory;
+import org.apache.jena.rdf.model.RDFNode;
 import org.apache.jena.rdf.model.Statement;
 import org.apache.jena.rdf.model.StmtIterator;
+import org.apache.jena.riot.Lang;
+import org.apache.jena.riot.RDFDataMgr;
+import org.apache.jena.riot.system.StreamRDF;
+import org.apache.jena.riot.system.StreamRDFLib;
 import org.apache.jena.shared.PrefixMapping;
 import org.apache.jena.shared.impl.PrefixMappingImpl;
+import org.apache.jena.sparql.graph.GraphFactory;
 import org.junit.jupiter.api.BeforeEach;
 import org.junit.jupiter.api.Disabled;
 import org.junit.jupiter.api.Test;
 
 import java.io.IOException;
 import java.io.InputStream;
+import java.util.HashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.function.Function;
 
 import static de.buw.tmdt.plasma.services.dps.CombinedModelGenerator.asTurtle;
+import static org.junit.jupiter.api.Assertions.assertEquals;
+import static org.junit.jupiter.api.Assertions.assertTrue;
 
 public class DataConverterTest {
 
@@ -164,6 +180,106 @@ public class DataConverterTest {
         System.out.println(output);
     }
 
+    @Test
+    public void testConversionLinksNestedArrayContextForEachElement() throws IOException, ConversionException {
+        combinedModelGenerator.setMapVesselInformation(false);
+        combinedModelGenerator.setMapStaffInstance(true);
+        combinedModelGenerator.setMapTagKeyInstance(true);
+
+        CombinedModel combinedModel = combinedModelGenerator.getFlightModel();
+
+        ObjectMapper mapper = new ObjectMapper();
+        InputStream is = DataConverterTest.class.getResourceAsStream("/flight.json");
+        JsonNode jsonNode = mapper.readTree(is).get(0);
+
+        PrefixMapping prefixMapping = new PrefixMappingImpl().withDefaultMappings(PrefixMapping.Standard);
+        prefixMapping.setNsPrefix("local", CombinedModelGenerator.namespace);
+        prefixMapping.setNsPrefix("plcm", PLCM.getURI());
+        prefixMapping.setNsPrefix("plsm", "http://plasma.uni-wuppertal.de/sm/");
+        prefixMapping.setNsPrefix("plasma", "http://plasma.uni-wuppertal.de/ontology#");
+
+        RDFConverter converter = new RDFConverter(prefixMapping);
+        Model converted = converter.convertToRDF(combinedModel, jsonNode);
+
+        // every staff member is linked to the list of its own tag keys
+        List<Statement> tagged = converted.listStatements(null, converted.createProperty(CombinedModelGenerator.namespace + "tagged"), (RDFNode) null)
+                .toList();
+        assertEquals(jsonNode.get("staff").size(), tagged.size());
+        assertEquals(tagged.size(), tagged.stream().map(Statement::getSubject).distinct().count());
+        assertEquals(tagged.size(), tagged.stream().map(Statement::getObject).distinct().count());
+    }
+
+    @Test
+    public void testStreamedConversionMatchesBaseline() throws IOException, ConversionException {
+        assertConvertsLikeBaseline(combinedModelGenerator.getFlightModel(), "/converted/flight.ttl");
+    }
+
+    @Test
+    public void testStreamedConversionOfPrimitiveListMatchesBaseline() throws IOException, ConversionException {
+        combinedModelGenerator.setMapIdentificationNumbers(true);
+        assertConvertsLikeBaseline(combinedModelGenerator.getFlightModel(), "/converted/flight_identification_numbers.ttl");
+    }
+
+    @Test
+    public void testStreamedConversionOfPrimitiveListInstanceMatchesBaseline() throws IOException, ConversionException {
+        combinedModelGenerator.setMapIdentificationNumberInstance(true);
+        assertConvertsLikeBaseline(combinedModelGenerator.getFlightModel(), "/converted/flight_identification_number_instances.ttl");
+    }
+
+    @Test
+    public void testStreamedConversionOfArrayContextMatchesBaseline() throws IOException, ConversionException {
+        combinedModelGenerator.setMapVesselInformation(false);
+        combinedModelGenerator.setMapStaffInstance(true);
+        assertConvertsLikeBaseline(combinedModelGenerator.getFlightModel(), "/converted/flight_staff.ttl");
+    }
+
+    /**
+     * Converts every record of flight.json and compares the result with the output of the original converter.
+     * Instance URIs contain the semantic model id and a counter, so they are replaced by blank nodes before comparing.
+     */
+    private void assertConvertsLikeBaseline(CombinedModel combinedModel, String expectedResource) throws IOException, ConversionException {
+        ObjectMapper mapper = new ObjectMapper();
+        InputStream is = DataConverterTest.class.getResourceAsStream("/flight.json");
+        JsonNode data = mapper.readTree(is);
+
+        PrefixMapping prefixMapping = new PrefixMappingImpl();
+        prefixMapping.setNsPrefix("local", CombinedModelGenerator.namespace);
+        prefixMapping.setNsPrefix("plcm", PLCM.getURI());
+        prefixMapping.setNsPrefix("plsm", "http://plasma.uni-wuppertal.de/sm/");
+        prefixMapping.setNsPrefix("plasma", "http://plasma.uni-wuppertal.de/ontology#");
+
+        RDFConverter converter = new RDFConverter(prefixMapping);
+        ConversionPlan plan = ConversionPlan.compile(combinedModel);
+        Graph converted = GraphFactory.createDefaultGraph();
+        StreamRDF sink = StreamRDFLib.graph(converted);
+        for (JsonNode datum : data) {
+            converter.convert(plan, datum, sink);
+        }
+
+        Model expected = ModelFactory.createDefaultModel();
+        RDFDataMgr.read(expected, DataConverterTest.class.getResourceAsStream(expectedResource), Lang.TURTLE);
+
+        String instanceNamespace = prefixMapping.getNsPrefixURI("plsm");
+        Graph normalizedExpected = withBlankInstances(expected.getGraph(), instanceNamespace);
+        Graph normalizedConverted = withBlankInstances(converted, instanceNamespace);
+        assertEquals(normalizedExpected.size(), normalizedConverted.size());
+        assertTrue(normalizedExpected.isIsomorphicWith(normalizedConverted), () -> asTurtle(ModelFactory.createModelForGraph(converted)));
+    }
+
+    private static Graph withBlankInstances(Graph graph, String instanceNamespace) {
+        Map<Node, Node> blankNodes = new HashMap<>();
+        Function<Node, Node> normalize = node -> node.isURI() && node.getURI().startsWith(instanceNamespace)
+                ? blankNodes.computeIfAbsent(node, n -> NodeFactory.createBlankNode())
+                : node;
+        Graph normalized = GraphFactory.createDefaultGraph();
+        graph.find().forEachRemaining(triple -> normalized.add(Triple.create(
+                normalize.apply(triple.getSubject()),
+                triple.getPredicate(),
+                normalize.apply(triple.getObject())
+        )));
+        return normalized;
+    }
+
     public Model cleanse(Model model) {
         Model newModel = ModelFactory.createDefaultModel();
         newModel.setNsPrefixes(model.getNsPrefixMap());
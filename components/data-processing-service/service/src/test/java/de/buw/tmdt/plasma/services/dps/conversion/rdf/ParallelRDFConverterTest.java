@@ -0,0 +1,131 @@
+package de.buw.tmdt.plasma.services.dps.conversion.rdf;
+
+import com.fasterxml.jackson.databind.JsonNode;
+import com.fasterxml.jackson.databind.ObjectMapper;
+import com.fasterxml.jackson.databind.node.ObjectNode;
+import de.buw.tmdt.plasma.datamodel.CombinedModel;
+import de.buw.tmdt.plasma.services.dps.CombinedModelGenerator;
+import de.buw.tmdt.plasma.services.dps.conversion.ConversionException;
+import org.apache.jena.graph.Triple;
+import org.apache.jena.riot.system.StreamRDFBase;
+import org.apache.jena.shared.PrefixMapping;
+import org.apache.jena.shared.impl.PrefixMappingImpl;
+import org.junit.jupiter.api.AfterEach;
+import org.junit.jupiter.api.BeforeEach;
+import org.junit.jupiter.api.Test;
+
+import java.io.IOException;
+import java.io.InputStream;
+import java.util.ArrayList;
+import java.util.Iterator;
+import java.util.List;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import java.util.concurrent.atomic.AtomicInteger;
+import java.util.stream.Collectors;
+
+import static org.junit.jupiter.api.Assertions.assertEquals;
+import static org.junit.jupiter.api.Assertions.assertNotNull;
+import static org.junit.jupiter.api.Assertions.assertTrue;
+
+class ParallelRDFConverterTest {
+
+    private static final int RECORDS = 100;
+
+    private ExecutorService executor;
+    private RDFConverter converter;
+    private List<JsonNode> records;
+
+    @BeforeEach
+    void setup() throws IOException {
+        executor = Executors.newFixedThreadPool(4);
+        PrefixMapping prefixMapping = new PrefixMappingImpl();
+        prefixMapping.setNsPrefix("local", CombinedModelGenerator.namespace);
+        prefixMapping.setNsPrefix("plcm", PLCM.getURI());
+        prefixMapping.setNsPrefix("plsm", "http://plasma.uni-wuppertal.de/sm/");
+        prefixMapping.setNsPrefix("plasma", "http://plasma.uni-wuppertal.de/ontology#");
+        converter = new RDFConverter(prefixMapping);
+
+        InputStream is = ParallelRDFConverterTest.class.getResourceAsStream("/flight.json");
+        assertNotNull(is);
+        JsonNode template = new ObjectMapper().readTree(is).get(0);
+        records = new ArrayList<>();
+        for (int i = 0; i < RECORDS; i++) {
+            ObjectNode record = template.deepCopy();
+            record.put("id", "record-" + i);
+            records.add(record);
+        }
+    }
+
+    @AfterEach
+    void tearDown() {
+        executor.shutdownNow();
+    }
+
+    @Test
+    void convertInInputOrder() throws ConversionException {
+        CombinedModel combinedModel = new CombinedModelGenerator().getFlightModel();
+        ConversionPlan plan = ConversionPlan.compile(combinedModel);
+
+        long expectedSize = 0;
+        for (JsonNode record : records) {
+            expectedSize += converter.convertToRDF(plan, record).size();
+        }
+
+        List<Triple> triples = new ArrayList<>();
+        new ParallelRDFConverter(converter, executor, 3, 4).convert(plan, records.iterator(), new StreamRDFBase() {
+            @Override
+            public void triple(Triple triple) {
+                triples.add(triple);
+            }
+        });
+
+        assertEquals(expectedSize, triples.size());
+        List<String> ids = triples.stream()
+                .filter(t -> t.getObject().isLiteral())
+                .map(t -> t.getObject().getLiteralLexicalForm())
+                .filter(value -> value.startsWith("record-"))
+                .collect(Collectors.toList());
+        List<String> expectedIds = records.stream().map(r -> r.get("id").asText()).collect(Collectors.toList());
+        assertEquals(expectedIds, ids);
+    }
+
+    @Test
+    void boundPendingShards() throws ConversionException {
+        CombinedModel combinedModel = new CombinedModelGenerator().getFlightModel();
+        ConversionPlan plan = ConversionPlan.compile(combinedModel);
+
+        AtomicInteger submitted = new AtomicInteger();
+        AtomicInteger emitted = new AtomicInteger();
+        AtomicInteger maxPending = new AtomicInteger();
+        Iterator<ParallelRDFConverter.Shard> shards = new Iterator<>() {
+            @Override
+            public boolean hasNext() {
+                return submitted.get() * 10 < records.size();
+            }
+
+            @Override
+            public ParallelRDFConverter.Shard next() {
+                int first = submitted.getAndIncrement() * 10;
+                maxPending.accumulateAndGet(submitted.get() - emitted.get(), Math::max);
+                return new ParallelRDFConverter.Shard() {
+                    @Override
+                    public Iterable<JsonNode> read() {
+                        return records.subList(first, first + 10);
+                    }
+
+                    @Override
+                    public void emitted() {
+                        emitted.incrementAndGet();
+                    }
+                };
+            }
+        };
+
+        new ParallelRDFConverter(converter, executor, 3, 8, 2, new ParallelRDFConverter.Listener() {
+        }).convertShards(plan, shards, new StreamRDFBase());
+
+        assertEquals(records.size() / 10, emitted.get());
+        assertTrue(maxPending.get() <= 2);
+    }
+}
@@ -0,0 +1,57 @@
+package de.buw.tmdt.plasma.services.dps.conversion.rdf;
+
+import org.apache.jena.graph.Node;
+import org.apache.jena.graph.NodeFactory;
+import org.apache.jena.graph.Triple;
+import org.apache.jena.riot.system.StreamRDFBase;
+import org.apache.jena.vocabulary.RDF;
+import org.junit.jupiter.api.Test;
+
+import java.util.ArrayList;
+import java.util.List;
+
+import static org.junit.jupiter.api.Assertions.assertEquals;
+
+class TripleDeduplicatorTest {
+
+    private static final String INSTANCES = "http://plasma.uni-wuppertal.de/sm/";
+    private static final Node ENTITY = NodeFactory.createURI("http://local.host/ontology#Lufthansa");
+    private static final Node INSTANCE = NodeFactory.createURI(INSTANCES + "model-1");
+
+    @Test
+    void dropRepeatedModelLevelTriples() {
+        List<Triple> emitted = new ArrayList<>();
+        TripleDeduplicator deduplicator = new TripleDeduplicator(collector(emitted), INSTANCES, 100, 1024);
+        for (int record = 0; record < 3; record++) {
+            deduplicator.triple(Triple.create(ENTITY, RDF.type.asNode(), PLCM.NamedEntity.asNode()));
+            deduplicator.triple(Triple.create(INSTANCE, RDF.type.asNode(), ENTITY));
+            Node blank = NodeFactory.createBlankNode();
+            deduplicator.triple(Triple.create(blank, RDF.type.asNode(), ENTITY));
+        }
+        // instance and blank node triples are never dropped
+        assertEquals(7, emitted.size());
+        assertEquals(2, deduplicator.getDropped());
+    }
+
+    @Test
+    void switchToBloomFilter() {
+        List<Triple> emitted = new ArrayList<>();
+        TripleDeduplicator deduplicator = new TripleDeduplicator(collector(emitted), INSTANCES, 10, 1 << 20);
+        for (int round = 0; round < 2; round++) {
+            for (int i = 0; i < 100; i++) {
+                deduplicator.triple(Triple.create(ENTITY, RDF.value.asNode(), NodeFactory.createLiteral(String.valueOf(i))));
+            }
+        }
+        assertEquals(100, emitted.size());
+        assertEquals(100, deduplicator.getDropped());
+    }
+
+    private static StreamRDFBase collector(List<Triple> emitted) {
+        return new StreamRDFBase() {
+            @Override
+            public void triple(Triple triple) {
+                emitted.add(triple);
+            }
+        };
+    }
+}
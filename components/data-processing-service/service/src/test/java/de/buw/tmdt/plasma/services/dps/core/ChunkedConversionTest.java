@@ -0,0 +1,33 @@
+package de.buw.tmdt.plasma.services.dps.core;
+
+import org.junit.jupiter.api.Test;
+
+import java.nio.charset.StandardCharsets;
+
+import static org.junit.jupiter.api.Assertions.assertEquals;
+import static org.junit.jupiter.api.Assertions.assertFalse;
+import static org.junit.jupiter.api.Assertions.assertTrue;
+
+class ChunkedConversionTest {
+
+    @Test
+    void keepIncompleteCharacters() {
+        byte[] bytes = "aä€😀".getBytes(StandardCharsets.UTF_8);
+        ChunkedConversion.ChunkBuffer buffer = new ChunkedConversion.ChunkBuffer();
+        StringBuilder text = new StringBuilder();
+        for (byte b : bytes) {
+            buffer.write(b);
+            if (buffer.hasChunk()) {
+                text.append(buffer.take());
+            }
+        }
+        assertFalse(buffer.hasChunk());
+        assertEquals("aä€😀", text.toString());
+
+        buffer.write(bytes, 0, 2);
+        assertTrue(buffer.hasChunk());
+        assertEquals("a", buffer.take());
+        buffer.write(bytes, 2, bytes.length - 2);
+        assertEquals("ä€😀", buffer.take());
+    }
+}
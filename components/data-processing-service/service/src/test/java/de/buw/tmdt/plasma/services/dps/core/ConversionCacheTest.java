@@ -0,0 +1,71 @@
+package de.buw.tmdt.plasma.services.dps.core;
+
+import org.junit.jupiter.api.BeforeEach;
+import org.junit.jupiter.api.Test;
+import org.junit.jupiter.api.io.TempDir;
+
+import java.io.ByteArrayOutputStream;
+import java.io.IOException;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.nio.file.attribute.FileTime;
+
+import static org.junit.jupiter.api.Assertions.*;
+
+class ConversionCacheTest {
+
+    private static final int ENTRY_SIZE = 400 * 1024;
+
+    @TempDir
+    Path storageDirectory;
+
+    private ConversionCache cache;
+
+    @BeforeEach
+    void setup() {
+        cache = new ConversionCache(storageDirectory.toString(), true, 1);
+        cache.initCache();
+    }
+
+    @Test
+    void storeAndLookup() throws IOException {
+        assertTrue(cache.lookup("a.nt").isEmpty());
+        ByteArrayOutputStream out = new ByteArrayOutputStream();
+        put("a.nt", out);
+        assertEquals(ENTRY_SIZE, out.size());
+        Path cached = cache.lookup("a.nt").orElseThrow();
+        assertEquals(ENTRY_SIZE, Files.size(cached));
+    }
+
+    @Test
+    void discardUncommittedEntries() throws IOException {
+        try (ConversionCache.Entry entry = cache.store("a.nt", new ByteArrayOutputStream())) {
+            entry.write(new byte[16]);
+        }
+        assertTrue(cache.lookup("a.nt").isEmpty());
+        assertEquals(0, Files.list(storageDirectory.resolve(ConversionCache.CACHE_DIRECTORY)).count());
+    }
+
+    @Test
+    void evictLeastRecentlyUsed() throws IOException {
+        put("a.nt", new ByteArrayOutputStream());
+        put("b.nt", new ByteArrayOutputStream());
+        Path cacheDirectory = storageDirectory.resolve(ConversionCache.CACHE_DIRECTORY);
+        long now = System.currentTimeMillis();
+        Files.setLastModifiedTime(cacheDirectory.resolve("a.nt"), FileTime.fromMillis(now - 10_000));
+        Files.setLastModifiedTime(cacheDirectory.resolve("b.nt"), FileTime.fromMillis(now - 20_000));
+
+        put("c.nt", new ByteArrayOutputStream());
+
+        assertTrue(cache.lookup("a.nt").isPresent());
+        assertTrue(cache.lookup("b.nt").isEmpty());
+        assertTrue(cache.lookup("c.nt").isPresent());
+    }
+
+    private void put(String key, ByteArrayOutputStream out) throws IOException {
+        try (ConversionCache.Entry entry = cache.store(key, out)) {
+            entry.write(new byte[ENTRY_SIZE]);
+            entry.commit();
+        }
+    }
+}
@@ -0,0 +1,138 @@
+package de.buw.tmdt.plasma.services.dps.core;
+
+import de.buw.tmdt.plasma.services.dps.CombinedModelGenerator;
+import de.buw.tmdt.plasma.services.dps.api.ConversionJobDTO;
+import de.buw.tmdt.plasma.services.dps.conversion.rdf.RDFOutputFormat;
+import de.buw.tmdt.plasma.services.kgs.shared.feignclient.OntologyApiClient;
+import io.micrometer.core.instrument.simple.SimpleMeterRegistry;
+import org.apache.jena.rdf.model.Model;
+import org.apache.jena.rdf.model.ModelFactory;
+import org.apache.jena.riot.Lang;
+import org.apache.jena.riot.RDFDataMgr;
+import org.junit.jupiter.api.AfterEach;
+import org.junit.jupiter.api.BeforeEach;
+import org.junit.jupiter.api.Test;
+import org.junit.jupiter.api.extension.ExtendWith;
+import org.junit.jupiter.api.io.TempDir;
+import org.mockito.Mock;
+import org.mockito.Mockito;
+import org.mockito.junit.jupiter.MockitoExtension;
+import org.springframework.http.HttpStatus;
+import org.springframework.mock.web.MockMultipartFile;
+import org.springframework.web.server.ResponseStatusException;
+
+import java.io.IOException;
+import java.io.InputStream;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.time.Instant;
+import java.util.HashMap;
+import java.util.Map;
+
+import static org.junit.jupiter.api.Assertions.*;
+
+@ExtendWith(MockitoExtension.class)
+class ConversionJobHandlerTest {
+
+    private DataStorageHandler storageHandler;
+    private ConversionCache conversionCache;
+    private ConversionJobHandler jobHandler;
+
+    @TempDir
+    Path storageDirectory;
+
+    @BeforeEach
+    public void setup(@Mock OntologyApiClient ontologyApiClient) {
+        Map<String, String> prefixes = new HashMap<>();
+        prefixes.put("local", CombinedModelGenerator.namespace);
+        prefixes.put("plsm", "http://plasma.uni-wuppertal.de/sm/");
+        prefixes.put("plcm", "http://plasma.uni-wuppertal.de/cm#");
+        prefixes.put("plasma", "http://plasma.uni-wuppertal.de/ontology#");
+        Mockito.lenient().when(ontologyApiClient.getNamespaces()).thenReturn(prefixes);
+        storageHandler = new DataStorageHandler();
+        storageHandler.storageDirectoryString = storageDirectory.toString();
+        conversionCache = new ConversionCache(storageDirectory.toString(), true, 16);
+        conversionCache.initCache();
+        DataProcessingHandler processingHandler = new DataProcessingHandler(new PrefixCache(ontologyApiClient, 300), storageHandler, new ConversionWorkerPool(2, 1), conversionCache,
+                new ConversionMetrics(new SimpleMeterRegistry()));
+        jobHandler = new ConversionJobHandler(processingHandler, storageDirectory.toString(), 1, 1, 60);
+    }
+
+    @AfterEach
+    public void tearDown() {
+        jobHandler.shutdown();
+    }
+
+    @Test
+    void runJob() throws IOException, InterruptedException {
+        String dataId = storeFlights();
+
+        ConversionJob job = jobHandler.submit(new CombinedModelGenerator().getFlightModel(), dataId, null, RDFOutputFormat.NTRIPLES);
+        ConversionJobDTO status = awaitDone(job.getId());
+
+        assertEquals("FINISHED", status.getStatus());
+        assertEquals(2, status.getRecordsProcessed());
+        assertTrue(status.getTriplesEmitted() > 0);
+        assertEquals(1.0, status.getProgress());
+
+        Path result = jobHandler.getResult(job.getId());
+        assertTrue(Files.exists(result));
+        Model model = ModelFactory.createDefaultModel();
+        RDFDataMgr.read(model, result.toString(), Lang.NTRIPLES);
+        assertEquals(status.getTriplesEmitted(), model.size());
+
+        // removing a finished job deletes its result
+        jobHandler.cancel(job.getId());
+        assertFalse(Files.exists(result));
+        ResponseStatusException e = assertThrows(ResponseStatusException.class, () -> jobHandler.getJob(job.getId()));
+        assertEquals(HttpStatus.NOT_FOUND, e.getStatus());
+    }
+
+    @Test
+    void removeExpiredJobs() throws IOException, InterruptedException {
+        String dataId = storeFlights();
+        ConversionJob finished = jobHandler.submit(new CombinedModelGenerator().getFlightModel(), dataId, null, RDFOutputFormat.NTRIPLES);
+        awaitDone(finished.getId());
+        // array contexts spanning nested arrays cannot be converted
+        CombinedModelGenerator unsupported = new CombinedModelGenerator();
+        unsupported.setMapStaffInstance(true);
+        unsupported.setMapTagInstance(true);
+        ConversionJob failed = jobHandler.submit(unsupported.getFlightModel(), dataId, null, RDFOutputFormat.NTRIPLES);
+        assertEquals("FAILED", awaitDone(failed.getId()).getStatus());
+        Path result = jobHandler.getResult(finished.getId());
+
+        // jobs are kept during the retention period
+        jobHandler.removeExpiredJobs(Instant.now());
+        assertSame(finished, jobHandler.getJob(finished.getId()));
+        assertSame(failed, jobHandler.getJob(failed.getId()));
+
+        jobHandler.removeExpiredJobs(Instant.now().plusSeconds(61));
+        assertFalse(Files.exists(result));
+        assertThrows(ResponseStatusException.class, () -> jobHandler.getJob(finished.getId()));
+        assertThrows(ResponseStatusException.class, () -> jobHandler.getJob(failed.getId()));
+    }
+
+    @Test
+    void rejectUnknownFile() {
+        ResponseStatusException e = assertThrows(ResponseStatusException.class,
+                () -> jobHandler.submit(new CombinedModelGenerator().getFlightModel(), "unknown", null, RDFOutputFormat.TURTLE));
+        assertEquals(HttpStatus.NOT_FOUND, e.getStatus());
+    }
+
+    private String storeFlights() throws IOException {
+        InputStream resourceAsStream = ConversionJobHandlerTest.class.getClassLoader().getResourceAsStream("flight.json");
+        assertNotNull(resourceAsStream);
+        return storageHandler.storeFile(null, new MockMultipartFile("flight.json", "flight.json", "application/json", resourceAsStream)).getDataId();
+    }
+
+    private ConversionJobDTO awaitDone(String jobId) throws InterruptedException {
+        for (int i = 0; i < 200; i++) {
+            ConversionJob job = jobHandler.getJob(jobId);
+            if (job.getStatus().isDone()) {
+                return job.toDTO();
+            }
+            Thread.sleep(50);
+        }
+        return fail("Job " + jobId + " did not finish in time");
+    }
+}
@@ -1,31 +1,47 @@
 package de.buw.tmdt.plasma.services.dps.core;
 
+import com.fasterxml.jackson.databind.JsonNode;
+import com.fasterxml.jackson.databind.ObjectMapper;
+import com.fasterxml.jackson.databind.node.ArrayNode;
 import de.buw.tmdt.plasma.datamodel.CombinedModel;
 import de.buw.tmdt.plasma.services.dps.CombinedModelGenerator;
 import de.buw.tmdt.plasma.services.dps.api.SampleDTO;
+import de.buw.tmdt.plasma.services.dps.conversion.rdf.RDFOutputFormat;
 import de.buw.tmdt.plasma.services.kgs.shared.feignclient.OntologyApiClient;
+import io.micrometer.core.instrument.simple.SimpleMeterRegistry;
 import org.apache.commons.io.IOUtils;
 import org.apache.jena.rdf.model.Model;
 import org.apache.jena.rdf.model.ModelFactory;
+import org.apache.jena.riot.RDFDataMgr;
 import org.junit.jupiter.api.BeforeEach;
 import org.junit.jupiter.api.Disabled;
 import org.junit.jupiter.api.Test;
 import org.junit.jupiter.api.extension.ExtendWith;
+import org.junit.jupiter.api.io.TempDir;
 import org.mockito.Mock;
 import org.mockito.Mockito;
 import org.mockito.junit.jupiter.MockitoExtension;
 import org.slf4j.Logger;
 import org.slf4j.LoggerFactory;
 import org.springframework.mock.web.MockMultipartFile;
-import org.springframework.web.multipart.MultipartFile;
+import org.springframework.web.server.ResponseStatusException;
 
+import java.io.ByteArrayInputStream;
+import java.io.ByteArrayOutputStream;
 import java.io.IOException;
 import java.io.InputStream;
+import java.nio.charset.StandardCharsets;
+import java.nio.file.Files;
+import java.nio.file.Path;
 import java.util.HashMap;
+import java.util.List;
 import java.util.Map;
 
+import static org.junit.jupiter.api.Assertions.assertArrayEquals;
 import static org.junit.jupiter.api.Assertions.assertEquals;
 import static org.junit.jupiter.api.Assertions.assertNotNull;
+import static org.junit.jupiter.api.Assertions.assertThrows;
+import static org.junit.jupiter.api.Assertions.assertTrue;
 
 @ExtendWith(MockitoExtension.class)
 class DataProcessingHandlerTest {
@@ -34,6 +50,11 @@ class DataProcessingHandlerTest {
 
     private DataProcessingHandler processingHandler;
     private DataStorageHandler storageHandler;
+    private ConversionCache conversionCache;
+    private SimpleMeterRegistry meterRegistry;
+
+    @TempDir
+    Path storageDirectory;
 
     @BeforeEach
     public void setup(@Mock OntologyApiClient ontologyApiClient) {
@@ -44,19 +65,18 @@ class DataProcessingHandlerTest {
         prefixes.put("plasma", "http://plasma.uni-wuppertal.de/ontology#");
         Mockito.lenient().when(ontologyApiClient.getNamespaces()).thenReturn(prefixes);
         storageHandler = new DataStorageHandler();
-        processingHandler = new DataProcessingHandler(ontologyApiClient, storageHandler);
+        storageHandler.storageDirectoryString = storageDirectory.toString();
+        conversionCache = new ConversionCache(storageDirectory.toString(), true, 16);
+        conversionCache.initCache();
+        meterRegistry = new SimpleMeterRegistry();
+        processingHandler = new DataProcessingHandler(new PrefixCache(ontologyApiClient, 300), storageHandler, new ConversionWorkerPool(2, 1), conversionCache,
+                new ConversionMetrics(meterRegistry));
     }
 
     @Test
     @Disabled("not curated")
     void processFile() throws IOException {
-        InputStream resourceAsStream = DataProcessingHandlerTest.class.getClassLoader().getResourceAsStream("flight.json");
-        assertNotNull(resourceAsStream);
-        MultipartFile mpf = new MockMultipartFile("flight.json", "flight.json", "application/json", resourceAsStream);
-
-        SampleDTO sample = storageHandler.storeFile(null, mpf);
-        String dataId = sample.getDataId();
-        assertNotNull(dataId);
+        String dataId = storeFlights(1);
         log.info("DataId: {}", dataId);
         CombinedModelGenerator combinedModelGenerator = new CombinedModelGenerator();
         CombinedModel flightModel = combinedModelGenerator.getFlightModel();
@@ -73,4 +93,153 @@ class DataProcessingHandlerTest {
         assertEquals(expected.listNameSpaces().toList().size(), actual.listNameSpaces().toList().size(), "Expected result for dataId " + dataId + " did not match");
 
     }
-}
\ No newline at end of file
+
+    @Test
+    void processFileStreaming() throws IOException {
+        String dataId = storeFlights(1);
+
+        CombinedModel flightModel = new CombinedModelGenerator().getFlightModel();
+        Model expected = ModelFactory.createDefaultModel();
+        expected.read(IOUtils.toInputStream(processingHandler.processFile(flightModel, dataId, null), "UTF-8"), CombinedModelGenerator.namespace, "TTL");
+
+        ByteArrayOutputStream out = new ByteArrayOutputStream();
+        processingHandler.processFile(flightModel, dataId, null, RDFOutputFormat.TURTLE, out);
+        Model actual = ModelFactory.createDefaultModel();
+        actual.read(new ByteArrayInputStream(out.toByteArray()), CombinedModelGenerator.namespace, "TTL");
+
+        assertTrue(actual.size() > 0);
+        assertEquals(expected.size(), actual.size());
+        assertEquals(expected.listSubjects().toList().size(), actual.listSubjects().toList().size());
+    }
+
+    @Test
+    void processFileStreamingFormats() throws IOException {
+        String dataId = storeFlights(1);
+        CombinedModel flightModel = new CombinedModelGenerator().getFlightModel();
+        long expectedSize = ModelFactory.createDefaultModel()
+                .read(IOUtils.toInputStream(processingHandler.processFile(flightModel, dataId, null), "UTF-8"), CombinedModelGenerator.namespace, "TTL")
+                .size();
+
+        for (RDFOutputFormat format : RDFOutputFormat.values()) {
+            ByteArrayOutputStream out = new ByteArrayOutputStream();
+            processingHandler.processFile(flightModel, dataId, null, format, out);
+            Model actual = ModelFactory.createDefaultModel();
+            RDFDataMgr.read(actual, new ByteArrayInputStream(out.toByteArray()), format.getFormat().getLang());
+            assertEquals(expectedSize, actual.size(), "Unexpected result for format " + format);
+        }
+        assertThrows(ResponseStatusException.class, () -> processingHandler.processFile(flightModel, dataId, null, RDFOutputFormat.THRIFT));
+    }
+
+    @Test
+    void processJsonLines() throws IOException {
+        String dataId = storeFlights(1);
+        StringBuilder lines = new StringBuilder();
+        for (JsonNode record : new ObjectMapper().readTree(DataProcessingHandlerTest.class.getClassLoader().getResource("flight.json"))) {
+            lines.append(record.toString()).append('\n');
+        }
+        SampleDTO sample = storageHandler.storeFile(dataId, new MockMultipartFile("flight.ndjson", "flight.ndjson", "application/x-ndjson",
+                lines.toString().getBytes(StandardCharsets.UTF_8)));
+        assertTrue(sample.getFilename().endsWith(".ndjson"));
+        assertEquals(2, sample.getSamples().size());
+
+        CombinedModel flightModel = new CombinedModelGenerator().getFlightModel();
+        Model expected = ModelFactory.createDefaultModel();
+        expected.read(IOUtils.toInputStream(processingHandler.processFile(flightModel, dataId, storageHandler.listFiles(dataId).get(0).getName()), "UTF-8"),
+                CombinedModelGenerator.namespace, "TTL");
+        Model actual = ModelFactory.createDefaultModel();
+        actual.read(IOUtils.toInputStream(processingHandler.processFile(flightModel, dataId, sample.getFilename()), "UTF-8"),
+                CombinedModelGenerator.namespace, "TTL");
+        assertTrue(actual.size() > 0);
+        assertEquals(expected.size(), actual.size());
+    }
+
+    @Test
+    void processFileRecordsMetrics() throws IOException {
+        String dataId = storeFlights(1);
+        processingHandler.processFile(new CombinedModelGenerator().getFlightModel(), dataId, null, RDFOutputFormat.NTRIPLES, new ByteArrayOutputStream());
+
+        double bytes = meterRegistry.get("plasma.dps.conversion.bytes").counter().count();
+        assertTrue(bytes > 0 && bytes <= storageHandler.listFiles(dataId).get(0).length());
+        assertEquals(2, meterRegistry.get("plasma.dps.conversion.records").counter().count());
+        assertTrue(meterRegistry.get("plasma.dps.conversion.triples").counter().count() > 0);
+        for (String phase : new String[]{"prefixes", "parse", "convert", "serialize"}) {
+            assertTrue(meterRegistry.get("plasma.dps.conversion.phase").tag("phase", phase).timer().count() > 0, phase);
+        }
+        assertEquals(1, meterRegistry.get("plasma.dps.conversion").timer().count());
+        assertTrue(meterRegistry.find("plasma.dps.conversion.failures").counters().isEmpty());
+    }
+
+    @Test
+    void processFileInShards() throws IOException {
+        String single = storeFlights(20);
+        String sharded = storeFlights(20);
+
+        CombinedModel flightModel = new CombinedModelGenerator().getFlightModel();
+        Model expected = ModelFactory.createDefaultModel();
+        expected.read(IOUtils.toInputStream(processingHandler.processFile(flightModel, single, null), "UTF-8"), CombinedModelGenerator.namespace, "TTL");
+        processingHandler.shardSize = 1;
+        Model actual = ModelFactory.createDefaultModel();
+        actual.read(IOUtils.toInputStream(processingHandler.processFile(flightModel, sharded, null), "UTF-8"), CombinedModelGenerator.namespace, "TTL");
+        assertTrue(actual.size() > 0);
+        assertEquals(expected.size(), actual.size());
+    }
+
+    @Test
+    void processFileReactive() throws IOException {
+        String dataId = storeFlights(20);
+        long records = storageHandler.getRecordIndex(dataId, storageHandler.resolveFile(dataId, null)).getRecordCount();
+        CombinedModel flightModel = new CombinedModelGenerator().getFlightModel();
+        Model expected = ModelFactory.createDefaultModel();
+        expected.read(IOUtils.toInputStream(processingHandler.processFile(flightModel, dataId, null, RDFOutputFormat.NTRIPLES), "UTF-8"), null, "NT");
+
+        processingHandler.chunkSize = 2;
+        List<String> chunks = processingHandler.processFileReactive(flightModel, dataId, null, RDFOutputFormat.NTRIPLES).collectList().block();
+        assertNotNull(chunks);
+        assertTrue(chunks.size() > 1);
+        Model actual = ModelFactory.createDefaultModel();
+        actual.read(IOUtils.toInputStream(String.join("", chunks), "UTF-8"), null, "NT");
+        assertEquals(expected.size(), actual.size());
+
+        // only the records needed for the requested chunk are converted
+        double converted = meterRegistry.get("plasma.dps.conversion.records").counter().count();
+        processingHandler.processFileReactive(flightModel, dataId, null, RDFOutputFormat.NTRIPLES).take(1, true).blockLast();
+        assertTrue(meterRegistry.get("plasma.dps.conversion.records").counter().count() - converted < records);
+
+        assertThrows(ResponseStatusException.class, () -> processingHandler.processFileReactive(flightModel, dataId, null, RDFOutputFormat.THRIFT));
+    }
+
+    @Test
+    void processFileFromCache() throws IOException {
+        String dataId = storeFlights(1);
+        Path cacheDirectory = storageDirectory.resolve(ConversionCache.CACHE_DIRECTORY);
+
+        CombinedModel flightModel = new CombinedModelGenerator().getFlightModel();
+        ByteArrayOutputStream first = new ByteArrayOutputStream();
+        processingHandler.processFile(flightModel, dataId, null, RDFOutputFormat.NTRIPLES, first);
+        assertEquals(1, Files.list(cacheDirectory).count());
+
+        ByteArrayOutputStream second = new ByteArrayOutputStream();
+        processingHandler.processFile(flightModel, dataId, null, RDFOutputFormat.NTRIPLES, second);
+        assertArrayEquals(first.toByteArray(), second.toByteArray());
+        assertEquals(1, Files.list(cacheDirectory).count());
+
+        // a different model must not hit the cached result
+        CombinedModelGenerator generator = new CombinedModelGenerator();
+        generator.setMapIdentificationNumbers(true);
+        processingHandler.processFile(generator.getFlightModel(), dataId, null, RDFOutputFormat.NTRIPLES, new ByteArrayOutputStream());
+        assertEquals(2, Files.list(cacheDirectory).count());
+    }
+
+    /**
+     * Stores the flights of the test resource, repeated the given number of times, as a file of a new data id.
+     */
+    private String storeFlights(int copies) throws IOException {
+        ArrayNode records = new ObjectMapper().createArrayNode();
+        JsonNode flights = new ObjectMapper().readTree(DataProcessingHandlerTest.class.getClassLoader().getResource("flight.json"));
+        for (int i = 0; i < copies; i++) {
+            records.addAll((ArrayNode) flights);
+        }
+        byte[] content = records.toString().getBytes(StandardCharsets.UTF_8);
+        return storageHandler.storeFile(null, new MockMultipartFile("flight.json", "flight.json", "application/json", content)).getDataId();
+    }
+}
@@ -1,21 +1,27 @@
 package de.buw.tmdt.plasma.services.dps.core;
 
+import de.buw.tmdt.plasma.services.dps.api.RecordPageDTO;
 import de.buw.tmdt.plasma.services.dps.api.SampleDTO;
 import org.junit.jupiter.api.BeforeAll;
 import org.junit.jupiter.api.Order;
 import org.junit.jupiter.api.Test;
 import org.junit.jupiter.api.extension.ExtendWith;
+import org.junit.jupiter.api.io.TempDir;
 import org.mockito.junit.jupiter.MockitoExtension;
+import org.springframework.http.HttpStatus;
 import org.springframework.mock.web.MockMultipartFile;
 import org.springframework.web.multipart.MultipartFile;
+import org.springframework.web.server.ResponseStatusException;
 
 import java.io.File;
 import java.io.IOException;
 import java.io.InputStream;
+import java.nio.charset.StandardCharsets;
+import java.nio.file.Files;
+import java.nio.file.Path;
 import java.util.List;
 
-import static org.junit.jupiter.api.Assertions.assertNotNull;
-import static org.junit.jupiter.api.Assertions.assertTrue;
+import static org.junit.jupiter.api.Assertions.*;
 
 @ExtendWith(MockitoExtension.class)
 class DataStorageHandlerTest {
@@ -52,4 +58,87 @@ class DataStorageHandlerTest {
         List<File> files = storageHandler.listFiles(dataId);
         assertTrue(files.size() > 0);
     }
-}
\ No newline at end of file
+
+    @Test
+    void uploadFileSamples(@TempDir Path storageDirectory) throws IOException {
+        DataStorageHandler handler = new DataStorageHandler();
+        handler.storageDirectoryString = storageDirectory.toString();
+        StringBuilder content = new StringBuilder("[");
+        for (int i = 0; i < 25; i++) {
+            content.append(i == 0 ? "" : ",").append("{\"id\": ").append(i).append(", \"tags\": [\"a\", \"b\"]}");
+        }
+        content.append("]");
+        MultipartFile mpf = new MockMultipartFile("records.json", "records.json", "application/json", content.toString().getBytes(StandardCharsets.UTF_8));
+
+        SampleDTO sample = handler.storeFile(null, mpf);
+
+        assertEquals(10, sample.getSamples().size());
+        assertEquals("{\"id\":0,\"tags\":[\"a\",\"b\"]}", sample.getSamples().get(0));
+        List<File> files = handler.listFiles(sample.getDataId());
+        assertEquals(1, files.size());
+        assertEquals(content.toString().replace(" ", ""), Files.readString(files.get(0).toPath()));
+
+        RecordPageDTO page = handler.readRecords(sample.getDataId(), null, 20, 10);
+        assertEquals(25, page.getTotal());
+        assertEquals(5, page.getRecords().size());
+        assertEquals("{\"id\":20,\"tags\":[\"a\",\"b\"]}", page.getRecords().get(0));
+    }
+
+    @Test
+    void readRecordsOfUnindexedFile(@TempDir Path storageDirectory) throws IOException {
+        DataStorageHandler handler = new DataStorageHandler();
+        handler.storageDirectoryString = storageDirectory.toString();
+        InputStream resourceAsStream = DataStorageHandlerTest.class.getClassLoader().getResourceAsStream("flight.json");
+        assertNotNull(resourceAsStream);
+        Files.createDirectories(storageDirectory.resolve("flights"));
+        Files.copy(resourceAsStream, storageDirectory.resolve("flights").resolve("flight.json"));
+
+        RecordPageDTO page = handler.readRecords("flights", "flight.json", 1, 10);
+        assertEquals(2, page.getTotal());
+        assertEquals(1, page.getRecords().size());
+        assertTrue(page.getRecords().get(0).contains("\"id\""));
+        ResponseStatusException e = assertThrows(ResponseStatusException.class, () -> handler.readRecords("flights", null, -1, 10));
+        assertEquals(HttpStatus.BAD_REQUEST, e.getStatus());
+    }
+
+    @Test
+    void uploadConvertedFile(@TempDir Path storageDirectory) throws IOException {
+        DataStorageHandler handler = new DataStorageHandler();
+        handler.storageDirectoryString = storageDirectory.toString();
+        MultipartFile mpf = new MockMultipartFile("records.csv", "records.csv", "text/csv", "id,name\n1,a\n2,b\n".getBytes(StandardCharsets.UTF_8));
+
+        SampleDTO sample = handler.storeFile(null, mpf);
+
+        assertEquals(2, sample.getSamples().size());
+        assertTrue(sample.getSamples().get(1).contains("\"b\""));
+        // only the converted document is stored in the folder of the data id
+        List<File> files = handler.listFiles(sample.getDataId());
+        assertEquals(1, files.size());
+        assertTrue(files.get(0).getName().endsWith(".json"));
+        assertEquals(2, handler.readRecords(sample.getDataId(), null, 0, 10).getTotal());
+    }
+
+    @Test
+    void rejectUnconvertibleFile(@TempDir Path storageDirectory) {
+        DataStorageHandler handler = new DataStorageHandler();
+        handler.storageDirectoryString = storageDirectory.toString();
+        MultipartFile mpf = new MockMultipartFile("broken.geojson", "broken.geojson", "application/geo+json",
+                "{\"type\": \"FeatureCollection\", \"features\": [{\"type\": \"Feature\", ".getBytes(StandardCharsets.UTF_8));
+
+        ResponseStatusException e = assertThrows(ResponseStatusException.class, () -> handler.storeFile("broken", mpf));
+        assertEquals(HttpStatus.INTERNAL_SERVER_ERROR, e.getStatus());
+        assertEquals("Could not convert file", e.getReason());
+        assertTrue(handler.listFiles("broken").isEmpty());
+    }
+
+    @Test
+    void rejectMalformedFile(@TempDir Path storageDirectory) {
+        DataStorageHandler handler = new DataStorageHandler();
+        handler.storageDirectoryString = storageDirectory.toString();
+        MultipartFile mpf = new MockMultipartFile("broken.json", "broken.json", "application/json", "[{\"id\": 1}, {\"id\":".getBytes(StandardCharsets.UTF_8));
+
+        ResponseStatusException e = assertThrows(ResponseStatusException.class, () -> handler.storeFile("broken", mpf));
+        assertEquals(HttpStatus.INTERNAL_SERVER_ERROR, e.getStatus());
+        assertTrue(handler.listFiles("broken").isEmpty());
+    }
+}
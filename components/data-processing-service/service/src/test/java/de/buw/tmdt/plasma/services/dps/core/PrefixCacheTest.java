@@ -0,0 +1,48 @@
+package de.buw.tmdt.plasma.services.dps.core;
+
+import de.buw.tmdt.plasma.services.kgs.shared.feignclient.OntologyApiClient;
+import org.apache.jena.shared.PrefixMapping;
+import org.junit.jupiter.api.Test;
+import org.junit.jupiter.api.extension.ExtendWith;
+import org.mockito.Mock;
+import org.mockito.Mockito;
+import org.mockito.junit.jupiter.MockitoExtension;
+
+import java.util.Map;
+
+import static org.junit.jupiter.api.Assertions.assertEquals;
+import static org.junit.jupiter.api.Assertions.assertSame;
+import static org.mockito.Mockito.times;
+import static org.mockito.Mockito.verify;
+
+@ExtendWith(MockitoExtension.class)
+class PrefixCacheTest {
+
+    @Test
+    void servePrefixesFromCache(@Mock OntologyApiClient ontologyApiClient) {
+        Mockito.when(ontologyApiClient.getNamespaces()).thenReturn(Map.of("plasma", "http://plasma.uni-wuppertal.de/ontology#"));
+        PrefixCache cache = new PrefixCache(ontologyApiClient, 300);
+
+        PrefixMapping first = cache.getPrefixes();
+        PrefixMapping second = cache.getPrefixes();
+
+        assertSame(first, second);
+        assertEquals("http://plasma.uni-wuppertal.de/ontology#", first.getNsPrefixURI("plasma"));
+        verify(ontologyApiClient, times(1)).getNamespaces();
+        cache.shutdown();
+    }
+
+    @Test
+    void reloadAfterInvalidation(@Mock OntologyApiClient ontologyApiClient) {
+        Mockito.when(ontologyApiClient.getNamespaces())
+                .thenReturn(Map.of("a", "http://a.org/"))
+                .thenReturn(Map.of("a", "http://a.org/", "b", "http://b.org/"));
+        PrefixCache cache = new PrefixCache(ontologyApiClient, 300);
+
+        assertEquals(1, cache.getPrefixes().numPrefixes());
+        cache.invalidate();
+        assertEquals(2, cache.getPrefixes().numPrefixes());
+        verify(ontologyApiClient, times(2)).getNamespaces();
+        cache.shutdown();
+    }
+}
@@ -0,0 +1,108 @@
+package de.buw.tmdt.plasma.services.dps.api;
+
+import com.fasterxml.jackson.annotation.JsonCreator;
+import com.fasterxml.jackson.annotation.JsonProperty;
+import org.jetbrains.annotations.Nullable;
+
+public class ConversionJobDTO {
+
+    private final String jobId;
+
+    private final String dataId;
+
+    private final String fileId;
+
+    private final String format;
+
+    private final String status;
+
+    private final long recordsProcessed;
+
+    private final long triplesEmitted;
+
+    private final double progress;
+
+    private final Long etaSeconds;
+
+    private final String error;
+
+    @JsonCreator
+    public ConversionJobDTO(@JsonProperty("jobId") String jobId,
+                            @JsonProperty("dataId") String dataId,
+                            @JsonProperty("fileId") String fileId,
+                            @JsonProperty("format") String format,
+                            @JsonProperty("status") String status,
+                            @JsonProperty("recordsProcessed") long recordsProcessed,
+                            @JsonProperty("triplesEmitted") long triplesEmitted,
+                            @JsonProperty("progress") double progress,
+                            @JsonProperty("etaSeconds") @Nullable Long etaSeconds,
+                            @JsonProperty("error") @Nullable String error) {
+        this.jobId = jobId;
+        this.dataId = dataId;
+        this.fileId = fileId;
+        this.format = format;
+        this.status = status;
+        this.recordsProcessed = recordsProcessed;
+        this.triplesEmitted = triplesEmitted;
+        this.progress = progress;
+        this.etaSeconds = etaSeconds;
+        this.error = error;
+    }
+
+    public String getJobId() {
+        return jobId;
+    }
+
+    public String getDataId() {
+        return dataId;
+    }
+
+    public String getFileId() {
+        return fileId;
+    }
+
+    public String getFormat() {
+        return format;
+    }
+
+    /**
+     * The state of the job, one of QUEUED, RUNNING, FINISHED, FAILED or CANCELLED.
+     *
+     * @return the state
+     */
+    public String getStatus() {
+        return status;
+    }
+
+    public long getRecordsProcessed() {
+        return recordsProcessed;
+    }
+
+    public long getTriplesEmitted() {
+        return triplesEmitted;
+    }
+
+    /**
+     * The share of the input file that has been read, between 0 and 1.
+     *
+     * @return the progress
+     */
+    public double getProgress() {
+        return progress;
+    }
+
+    /**
+     * The estimated number of seconds until the job is finished.
+     *
+     * @return the estimate or null if no estimate is available
+     */
+    @Nullable
+    public Long getEtaSeconds() {
+        return etaSeconds;
+    }
+
+    @Nullable
+    public String getError() {
+        return error;
+    }
+}
@@ -20,6 +20,12 @@ public interface DataProcessingApi {
     @GetMapping(value = "/files/{dataId}", produces = MediaType.APPLICATION_JSON_VALUE)
     List<String> listFiles(@NotNull @PathVariable("dataId") String dataId);
 
+    @GetMapping(value = "/files/{dataId}/records", produces = MediaType.APPLICATION_JSON_VALUE)
+    RecordPageDTO getRecords(@NotNull @PathVariable("dataId") String dataId,
+                             @RequestParam(value = "fileId", required = false) String fileId,
+                             @RequestParam(value = "offset", defaultValue = "0") long offset,
+                             @RequestParam(value = "limit", defaultValue = "10") int limit);
+
     @GetMapping(value = "/available", produces = MediaType.TEXT_PLAIN_VALUE)
     ResponseEntity<String> isAvailable();
 
@@ -29,4 +35,19 @@ public interface DataProcessingApi {
                        @RequestParam(value = "fileId", required = false) String fileId,
                        @RequestParam(value = "format", defaultValue = "turtle") String format);
 
+    @PostMapping(value = "/jobs", produces = MediaType.APPLICATION_JSON_VALUE)
+    ConversionJobDTO submitConversionJob(@RequestBody CombinedModel template,
+                                         @RequestParam(value = "dataId") String dataId,
+                                         @RequestParam(value = "fileId", required = false) String fileId,
+                                         @RequestParam(value = "format", defaultValue = "ntriples") String format);
+
+    @GetMapping(value = "/jobs/{jobId}", produces = MediaType.APPLICATION_JSON_VALUE)
+    ConversionJobDTO getConversionJob(@NotNull @PathVariable("jobId") String jobId);
+
+    @DeleteMapping(value = "/jobs/{jobId}", produces = MediaType.APPLICATION_JSON_VALUE)
+    ConversionJobDTO cancelConversionJob(@NotNull @PathVariable("jobId") String jobId);
+
+    @PostMapping(value = "/prefixes/invalidate")
+    void invalidatePrefixes();
+
 }
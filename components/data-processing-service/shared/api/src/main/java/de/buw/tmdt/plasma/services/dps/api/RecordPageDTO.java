@@ -0,0 +1,52 @@
+package de.buw.tmdt.plasma.services.dps.api;
+
+import com.fasterxml.jackson.annotation.JsonCreator;
+import com.fasterxml.jackson.annotation.JsonProperty;
+
+import java.util.List;
+
+public class RecordPageDTO {
+
+    private final String dataId;
+
+    private final String fileId;
+
+    private final long offset;
+
+    private final long total;
+
+    private final List<String> records;
+
+    @JsonCreator
+    public RecordPageDTO(@JsonProperty("dataId") String dataId,
+                         @JsonProperty("fileId") String fileId,
+                         @JsonProperty("offset") long offset,
+                         @JsonProperty("total") long total,
+                         @JsonProperty("records") List<String> records) {
+        this.dataId = dataId;
+        this.fileId = fileId;
+        this.offset = offset;
+        this.total = total;
+        this.records = records;
+    }
+
+    public String getDataId() {
+        return dataId;
+    }
+
+    public String getFileId() {
+        return fileId;
+    }
+
+    public long getOffset() {
+        return offset;
+    }
+
+    public long getTotal() {
+        return total;
+    }
+
+    public List<String> getRecords() {
+        return records;
+    }
+}
@@ -0,0 +1,112 @@
+package de.buw.tmdt.plasma.services.sas.benchmark;
+
+import com.fasterxml.jackson.core.JsonProcessingException;
+import de.buw.tmdt.plasma.services.sas.core.basic.SchemaAnalysisAggregateRecognizedSchema;
+import de.buw.tmdt.plasma.services.sas.core.basic.SchemaAnalysisIdentifyJSONStructure;
+import de.buw.tmdt.plasma.services.sas.core.basic.exception.SchemaAnalysisException;
+import de.buw.tmdt.plasma.services.sas.core.model.syntaxmodel.Node;
+import org.openjdk.jmh.annotations.*;
+
+import java.util.ArrayList;
+import java.util.List;
+import java.util.Random;
+import java.util.StringJoiner;
+import java.util.concurrent.TimeUnit;
+
+/**
+ * Time to identify and aggregate the structure of arrays of growing size.
+ * The score divided by {@code size} is the time per array element, which stays constant as long as aggregation is linear.
+ */
+@State(Scope.Thread)
+@BenchmarkMode(Mode.AverageTime)
+@OutputTimeUnit(TimeUnit.MICROSECONDS)
+@Warmup(iterations = 3, time = 2)
+@Measurement(iterations = 5, time = 2)
+@Fork(1)
+public class AggregationBenchmark {
+
+	private static final int DATA_POINTS = 20;
+
+	public enum Shape {
+		/**
+		 * Objects with the same fields and a varying optional field.
+		 */
+		OBJECTS,
+		/**
+		 * Objects, nested arrays, primitives and null values in turn.
+		 */
+		MIXED
+	}
+
+	@Param({"OBJECTS", "MIXED"})
+	public Shape shape;
+
+	@Param({"100", "1000", "10000"})
+	public int size;
+
+	private String document;
+	private List<String> dataPoints;
+
+	@Setup
+	public void setup() {
+		Random random = new Random(42);
+		document = createArray(random);
+		dataPoints = new ArrayList<>(DATA_POINTS);
+		for (int i = 0; i < DATA_POINTS; i++) {
+			dataPoints.add("{\"id\": " + i + ", \"values\": " + createArray(random) + "}");
+		}
+	}
+
+	/**
+	 * Identifies the structure of a single array with {@code size} elements.
+	 */
+	@Benchmark
+	public Node identifyStructure() throws JsonProcessingException, SchemaAnalysisException {
+		return new SchemaAnalysisIdentifyJSONStructure().execute(document);
+	}
+
+	/**
+	 * Identifies and aggregates data points each holding an array with {@code size} elements.
+	 */
+	@Benchmark
+	public Node aggregate() throws JsonProcessingException, SchemaAnalysisException {
+		SchemaAnalysisIdentifyJSONStructure structure = new SchemaAnalysisIdentifyJSONStructure();
+		SchemaAnalysisAggregateRecognizedSchema aggregate = new SchemaAnalysisAggregateRecognizedSchema(DATA_POINTS);
+		for (String dataPoint : dataPoints) {
+			aggregate.addNode(structure.execute(dataPoint));
+		}
+		return aggregate.getMergedRecognizedNode();
+	}
+
+	private String createArray(Random random) {
+		StringJoiner array = new StringJoiner(",", "[", "]");
+		for (int i = 0; i < size; i++) {
+			if (shape == Shape.OBJECTS) {
+				array.add(createObject(random, i));
+			} else {
+				switch (i % 4) {
+					case 0:
+						array.add(createObject(random, i));
+						break;
+					case 1:
+						array.add("[" + random.nextInt(100) + ", {\"inner\": " + random.nextBoolean() + "}]");
+						break;
+					case 2:
+						array.add(Integer.toString(random.nextInt()));
+						break;
+					default:
+						array.add("null");
+				}
+			}
+		}
+		return array.toString();
+	}
+
+	private static String createObject(Random random, int index) {
+		return "{\"name\": \"element" + index + "\""
+		       + ", \"value\": " + random.nextDouble()
+		       + ", \"tags\": [\"a\", \"b\", \"c\"]"
+		       + ", \"optional" + index % 8 + "\": " + random.nextInt(10)
+		       + "}";
+	}
+}
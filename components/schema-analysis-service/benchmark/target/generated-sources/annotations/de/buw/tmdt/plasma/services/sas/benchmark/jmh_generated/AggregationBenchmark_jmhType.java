@@ -0,0 +1,4 @@
+package de.buw.tmdt.plasma.services.sas.benchmark.jmh_generated;
+public class AggregationBenchmark_jmhType extends AggregationBenchmark_jmhType_B3 {
+}
+
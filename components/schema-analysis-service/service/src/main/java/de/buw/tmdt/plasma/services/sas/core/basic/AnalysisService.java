@@ -3,60 +3,155 @@ package de.buw.tmdt.plasma.services.sas.core.basic;
 import de.buw.tmdt.plasma.services.sas.core.model.Analysis;
 import de.buw.tmdt.plasma.services.sas.core.model.syntaxmodel.Node;
 import de.buw.tmdt.plasma.services.sas.core.repository.AnalysisRepository;
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
 import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.beans.factory.annotation.Value;
 import org.springframework.http.HttpStatus;
 import org.springframework.stereotype.Service;
+import org.springframework.transaction.PlatformTransactionManager;
 import org.springframework.transaction.annotation.Transactional;
+import org.springframework.transaction.support.TransactionTemplate;
 import org.springframework.web.server.ResponseStatusException;
 
 import javax.persistence.EntityManager;
+import java.util.ArrayList;
+import java.util.HashMap;
+import java.util.List;
+import java.util.Map;
 import java.util.UUID;
-
+import java.util.concurrent.ConcurrentHashMap;
+
+/**
+ * Manages the analyses and their persistence.
+ * The nodes of the data points are merged into a running aggregate per analysis as they arrive, which is kept in memory.
+ * Every {@code plasma.sas.analysis.checkpointinterval} data points a copy of the aggregate replaces the stored sub analyses,
+ * so an analysis can be resumed from its last checkpoint and finishing it only has to store the aggregate.
+ * If {@code plasma.sas.analysis.convergencewindow} is set, an analysis converges once that many consecutive data points
+ * have not shown new paths or types, after which only a sample of the data points is analyzed.
+ */
 @Service
 public class AnalysisService {
 
+    private static final Logger log = LoggerFactory.getLogger(AnalysisService.class);
+    private static final int DATA_POINT_THRESHOLD = 20;
+
     private final AnalysisRepository analysisRepository;
     private final EntityManager entityManager;
+    private final TransactionTemplate transactionTemplate;
+    private final Map<UUID, SchemaAnalysisAggregateRecognizedSchema> aggregates = new ConcurrentHashMap<>();
+
+    @Value("${plasma.sas.analysis.checkpointinterval:1000}")
+    int checkpointInterval = 1000;
+
+    @Value("${plasma.sas.analysis.convergencewindow:0}")
+    int convergenceWindow = 0;
+
+    @Value("${plasma.sas.analysis.samplesize:100}")
+    int sampleSize = 100;
 
     @Autowired
-    public AnalysisService(AnalysisRepository analysisRepository, EntityManager entityManager) {
+    public AnalysisService(AnalysisRepository analysisRepository, EntityManager entityManager, PlatformTransactionManager transactionManager) {
         this.analysisRepository = analysisRepository;
         this.entityManager = entityManager;
+        this.transactionTemplate = new TransactionTemplate(transactionManager);
     }
 
     @Transactional
     public void createAnalysis(UUID uuid) {
         Analysis analysis = new Analysis(uuid);
         analysisRepository.save(analysis);
+        aggregates.put(uuid, newAggregate());
     }
 
-    @Transactional
+    /**
+     * Selects the data points of an analysis that are analyzed, which are all of them unless the analysis has converged.
+     *
+     * @param uuid       the id of the analysis
+     * @param dataPoints the data points to select from
+     * @return the data points to analyze
+     * @see SchemaAnalysisAggregateRecognizedSchema#sample()
+     */
+    public <T> List<T> sampleDataPoints(UUID uuid, List<T> dataPoints) {
+        SchemaAnalysisAggregateRecognizedSchema aggregate = getAggregate(uuid);
+        synchronized (aggregate) {
+            if (!aggregate.isConverged()) {
+                return dataPoints;
+            }
+            List<T> sample = new ArrayList<>();
+            for (T dataPoint : dataPoints) {
+                if (aggregate.sample()) {
+                    sample.add(dataPoint);
+                }
+            }
+            return sample;
+        }
+    }
+
+    public boolean isAggregationReady(UUID uuid) {
+        SchemaAnalysisAggregateRecognizedSchema aggregate = getAggregate(uuid);
+        synchronized (aggregate) {
+            return aggregate.isAggregationReady();
+        }
+    }
+
+    /**
+     * Merges the node of a data point into the aggregate of the analysis, writing a checkpoint if the interval has passed.
+     *
+     * @param uuid the id of the analysis
+     * @param node the node of the data point
+     */
     public void addNodeToAnalysis(UUID uuid, Node node) {
-        Analysis analysis =
-                analysisRepository.findById(uuid).orElseThrow(() -> new ResponseStatusException(HttpStatus.NOT_FOUND, "Analysis ID not found"));
-        analysis.addSubAnalysis(node);
-        analysisRepository.save(analysis);
+        addNodeToAnalysis(uuid, node, 1);
     }
 
-    @Transactional
-    public void calculateResult(UUID uuid) {
-        Analysis analysis = analysisRepository.findById(uuid).orElseThrow(() -> new ResponseStatusException(HttpStatus.NOT_FOUND, "Analysis ID not found"));
-        SchemaAnalysisAggregateRecognizedSchema schemaAnalysisAggregateRecognizedSchema = new SchemaAnalysisAggregateRecognizedSchema(20);
-        for (Node n : analysis.getSubAnalyses()) {
-            schemaAnalysisAggregateRecognizedSchema.addNode(n);
+    /**
+     * Merges a node that covers several data points into the aggregate of the analysis, writing a checkpoint if the interval has passed.
+     *
+     * @param uuid       the id of the analysis
+     * @param node       the node merged from the data points
+     * @param dataPoints the number of data points
+     */
+    public void addNodeToAnalysis(UUID uuid, Node node, int dataPoints) {
+        SchemaAnalysisAggregateRecognizedSchema aggregate = getAggregate(uuid);
+        synchronized (aggregate) {
+            int before = aggregate.getCollectionCounter();
+            aggregate.addNode(node, dataPoints);
+            if (checkpointInterval > 0 && before / checkpointInterval != aggregate.getCollectionCounter() / checkpointInterval) {
+                Node checkpoint = aggregate.getMergedRecognizedNode().copy(new HashMap<>());
+                transactionTemplate.executeWithoutResult(status -> {
+                    Analysis analysis = findAnalysis(uuid);
+                    analysis.replaceSubAnalyses(checkpoint, aggregate.getCollectionCounter());
+                    analysisRepository.save(analysis);
+                });
+                log.debug("Checkpointed analysis {} after {} data points", uuid, aggregate.getCollectionCounter());
+            }
         }
+    }
 
-        UUID newUuid = analysis.getUuid();
+    public void calculateResult(UUID uuid) {
+        SchemaAnalysisAggregateRecognizedSchema aggregate = getAggregate(uuid);
+        Node result;
+        synchronized (aggregate) {
+            Node merged = aggregate.getMergedRecognizedNode();
+            // the stored nodes are deleted with the analysis, the result is stored as a new graph
+            result = merged == null ? null : merged.copy(new HashMap<>());
+        }
+        transactionTemplate.executeWithoutResult(status -> {
+            Analysis analysis = findAnalysis(uuid);
+            UUID newUuid = analysis.getUuid();
 
-        Analysis finalAnalysis = new Analysis(newUuid);
+            Analysis finalAnalysis = new Analysis(newUuid);
 
-        // Deleting the old analysis as only the result is needed. Otherwise there will be id conflicts
-        analysisRepository.delete(analysis);
-        analysisRepository.flush();
+            // Deleting the old analysis as only the result is needed. Otherwise there will be id conflicts
+            analysisRepository.delete(analysis);
+            analysisRepository.flush();
 
-        finalAnalysis.setResult(schemaAnalysisAggregateRecognizedSchema.getMergedRecognizedNode());
+            finalAnalysis.setResult(result);
 
-        analysisRepository.save(finalAnalysis);
+            analysisRepository.save(finalAnalysis);
+        });
+        aggregates.remove(uuid, aggregate);
     }
 
 
@@ -73,11 +168,41 @@ public class AnalysisService {
     }
 
     public boolean exists(UUID uuid) {
-        return analysisRepository.existsById(uuid);
+        return aggregates.containsKey(uuid) || analysisRepository.existsById(uuid);
     }
 
     @Transactional
     public void delete(UUID uuid) {
+        aggregates.remove(uuid);
         analysisRepository.deleteById(uuid);
     }
+
+    /**
+     * Returns the aggregate of an analysis, restoring it from the stored sub analyses if it is not in memory,
+     * e.g. after a restart.
+     */
+    private SchemaAnalysisAggregateRecognizedSchema getAggregate(UUID uuid) {
+        return aggregates.computeIfAbsent(uuid, id -> transactionTemplate.execute(status -> {
+            Analysis analysis = findAnalysis(id);
+            SchemaAnalysisAggregateRecognizedSchema aggregate = newAggregate();
+            List<Node> subAnalyses = analysis.getSubAnalyses();
+            // the first sub analysis is the checkpoint if there is one, every further sub analysis covers a single data point
+            int checkpointDataPoints = Math.max(1, analysis.getCoveredDataPoints() - subAnalyses.size() + 1);
+            for (int i = 0; i < subAnalyses.size(); i++) {
+                aggregate.addNode(subAnalyses.get(i).copy(new HashMap<>()), i == 0 ? checkpointDataPoints : 1);
+            }
+            return aggregate;
+        }));
+    }
+
+    private SchemaAnalysisAggregateRecognizedSchema newAggregate() {
+        SchemaAnalysisAggregateRecognizedSchema aggregate = new SchemaAnalysisAggregateRecognizedSchema(DATA_POINT_THRESHOLD);
+        aggregate.setConvergenceWindow(convergenceWindow);
+        aggregate.setSampleSize(sampleSize);
+        return aggregate;
+    }
+
+    private Analysis findAnalysis(UUID uuid) {
+        return analysisRepository.findById(uuid).orElseThrow(() -> new ResponseStatusException(HttpStatus.NOT_FOUND, "Analysis ID not found"));
+    }
 }
\ No newline at end of file
@@ -1,8 +1,22 @@
 package de.buw.tmdt.plasma.services.sas.core.basic;
 
 import de.buw.tmdt.plasma.services.sas.core.model.exception.SchemaAnalysisException;
+import de.buw.tmdt.plasma.services.sas.core.model.syntaxmodel.CollisionNode;
 import de.buw.tmdt.plasma.services.sas.core.model.syntaxmodel.Node;
+import de.buw.tmdt.plasma.services.sas.core.model.syntaxmodel.ObjectNode;
+import de.buw.tmdt.plasma.services.sas.core.model.syntaxmodel.PrimitiveNode;
+import de.buw.tmdt.plasma.services.sas.core.model.syntaxmodel.SetNode;
 
+import java.util.HashSet;
+import java.util.Map;
+import java.util.Random;
+import java.util.Set;
+
+/**
+ * Aggregates the recognized schemas of the data points of an analysis.
+ * Optionally, the aggregate detects convergence: once no new paths or types have appeared for {@code convergenceWindow}
+ * consecutive data points, the aggregation is ready and further data points are only sampled (see {@link #sample()}).
+ */
 public class SchemaAnalysisAggregateRecognizedSchema {
 
 	private int dataPointThreshold = 10;
@@ -12,23 +26,87 @@ public class SchemaAnalysisAggregateRecognizedSchema {
 	private Node mergedRecognizedNode;
 	private int collectionCounter = 0;
 
+	/**
+	 * The number of consecutive data points without new paths or types after which the aggregate has converged, 0 disables convergence detection.
+	 */
+	private int convergenceWindow = 0;
+	/**
+	 * The number of data points sampled after the convergence like a reservoir.
+	 */
+	private int sampleSize = 0;
+	private final Set<String> knownPaths = new HashSet<>();
+	private int unchangedCounter = 0;
+	private long offeredSinceConvergence = 0;
+	private final Random random = new Random();
+
 	public SchemaAnalysisAggregateRecognizedSchema(int dataPointThreshold) {
 		this.dataPointThreshold = dataPointThreshold;
 		mergedRecognizedNode = null;
 	}
 
 	public void addNode(Node n) throws SchemaAnalysisException {
+		addNode(n, 1);
+	}
+
+	/**
+	 * Adds a node which has been merged from several data points already.
+	 *
+	 * @param n          the merged node
+	 * @param dataPoints the number of data points the node covers
+	 */
+	public void addNode(Node n, int dataPoints) throws SchemaAnalysisException {
+
+		if (convergenceWindow > 0) {
+			// the paths are collected before merging, as merging may reuse the parts of the node
+			Set<String> paths = new HashSet<>();
+			collectPaths(n, "$", paths);
+			if (knownPaths.addAll(paths)) {
+				unchangedCounter = 0;
+				offeredSinceConvergence = 0;
+			} else {
+				unchangedCounter += dataPoints;
+			}
+		}
 
 		if (this.mergedRecognizedNode == null) {
 			this.mergedRecognizedNode = n;
 		} else {
 			this.mergedRecognizedNode = (Node) this.mergedRecognizedNode.merge(n);
 		}
-		collectionCounter++;
+		collectionCounter += dataPoints;
+
+	}
+
+	/**
+	 * Decides whether the next data point is analyzed at all.
+	 * Until the aggregate has converged every data point is analyzed. Afterwards the n-th data point since the convergence is
+	 * analyzed with a probability of {@code sampleSize / n}, so the number of analyzed data points grows only logarithmically.
+	 * A sampled data point with new paths or types ends the convergence.
+	 *
+	 * @return true if the data point should be analyzed and added
+	 */
+	public boolean sample() {
+		if (!isConverged()) {
+			return true;
+		}
+		offeredSinceConvergence++;
+		return offeredSinceConvergence <= sampleSize || random.nextDouble() * offeredSinceConvergence < sampleSize;
+	}
 
+	/**
+	 * Whether no new paths or types have appeared for {@code convergenceWindow} consecutive data points.
+	 */
+	public boolean isConverged() {
+		return convergenceWindow > 0 && unchangedCounter >= convergenceWindow;
 	}
 
+	/**
+	 * With convergence detection the aggregation is ready once it has converged, otherwise after {@code dataPointThreshold} data points.
+	 */
 	public boolean isAggregationReady() {
+		if (convergenceWindow > 0) {
+			return isConverged();
+		}
 		return collectionCounter >= this.dataPointThreshold;
 	}
 
@@ -39,8 +117,50 @@ public class SchemaAnalysisAggregateRecognizedSchema {
 		}
 	}
 
+	public void setConvergenceWindow(Integer convergenceWindow) {
+		if (convergenceWindow != null) {
+			this.convergenceWindow = convergenceWindow;
+		}
+	}
+
+	public void setSampleSize(Integer sampleSize) {
+		if (sampleSize != null) {
+			this.sampleSize = sampleSize;
+		}
+	}
+
+	/**
+	 * The number of nodes merged so far.
+	 */
+	public int getCollectionCounter() {
+		return collectionCounter;
+	}
+
 	public Node getMergedRecognizedNode() {
 		return mergedRecognizedNode;
 	}
-}
 
+	/**
+	 * Collects the paths of a node together with the kind of node, or the data type for primitives, found at each path.
+	 */
+	private static void collectPaths(Node node, String path, Set<String> paths) {
+		if (node instanceof PrimitiveNode) {
+			paths.add(path + ':' + ((PrimitiveNode) node).getDataType());
+		} else if (node instanceof ObjectNode) {
+			paths.add(path + ":{}");
+			for (Map.Entry<String, Node> child : ((ObjectNode) node).getChildren().entrySet()) {
+				collectPaths(child.getValue(), path + '.' + child.getKey(), paths);
+			}
+		} else if (node instanceof SetNode) {
+			paths.add(path + ":[]");
+			for (SetNode.Child child : ((SetNode) node).getChildren()) {
+				collectPaths(child.getNode(), path + "[]", paths);
+			}
+		} else if (node instanceof CollisionNode) {
+			CollisionNode collision = (CollisionNode) node;
+			collectPaths(collision.getPrimitiveNode(), path, paths);
+			collectPaths(collision.getObjectNode(), path, paths);
+			collectPaths(collision.getSetNode(), path, paths);
+		}
+	}
+}
@@ -16,6 +16,8 @@ import org.springframework.stereotype.Service;
 import org.springframework.web.server.ResponseStatusException;
 
 import java.util.ArrayList;
+import java.util.List;
+import java.util.Optional;
 import java.util.UUID;
 
 @Service
@@ -43,19 +45,46 @@ public class SchemaAnalysisHandler {
 		if (!analysisService.exists(uuid)) {
 			throw new ResponseStatusException(HttpStatus.BAD_REQUEST, "The requested id is not existing: " + uuid);
 		}
+		if (analysisService.sampleDataPoints(uuid, List.of(schemaAnalysisDataProvisionDTO)).isEmpty()) {
+			return;
+		}
 		// logger.info("Adding Datapoint to Schema Analysis with UUID:{} : {}", uuid, schemaAnalysisDataProvisionDTO.getData());
+		Node result = identifyStructure(schemaAnalysisDataProvisionDTO);
+
+		// logger.info("Identified Sub Schema: {}", result);
+
+		analysisService.addNodeToAnalysis(uuid, result);
+	}
+
+	/**
+	 * Adds a batch of data points to an analysis.
+	 * The structures of the data points are identified in parallel and merged into a single node,
+	 * which is then merged into the analysis at once.
+	 * Once the analysis has converged, only a sample of the data points is analyzed.
+	 *
+	 * @param uuid                            the id of the analysis
+	 * @param schemaAnalysisDataProvisionDTOs the data points
+	 */
+	public void addDataPoints(UUID uuid, List<SchemaAnalysisDataProvisionDTO> schemaAnalysisDataProvisionDTOs) {
+		if (!analysisService.exists(uuid)) {
+			throw new ResponseStatusException(HttpStatus.BAD_REQUEST, "The requested id is not existing: " + uuid);
+		}
+		List<SchemaAnalysisDataProvisionDTO> sample = analysisService.sampleDataPoints(uuid, schemaAnalysisDataProvisionDTOs);
+		Optional<Node> result = sample.parallelStream()
+				.map(this::identifyStructure)
+				// merging changes the left node, which is always a partial result of the own part of the batch
+				.reduce(Node::merge);
+		result.ifPresent(node -> analysisService.addNodeToAnalysis(uuid, node, sample.size()));
+	}
+
+	private Node identifyStructure(SchemaAnalysisDataProvisionDTO schemaAnalysisDataProvisionDTO) {
 		SchemaAnalysisIdentifyJSONStructure schemaAnalysisIdentifyJSONStructure = new SchemaAnalysisIdentifyJSONStructure();
-		Node result;
 		try {
-			result = schemaAnalysisIdentifyJSONStructure.execute(schemaAnalysisDataProvisionDTO.getData());
+			return schemaAnalysisIdentifyJSONStructure.execute(schemaAnalysisDataProvisionDTO.getData());
 		} catch (JsonProcessingException | SchemaAnalysisException e) {
 			logger.error("Could not create Json from input data", e);
 			throw new ResponseStatusException(HttpStatus.CONFLICT, "Could not create semantic model");
 		}
-
-		// logger.info("Identified Sub Schema: {}", result);
-
-		analysisService.addNodeToAnalysis(uuid, result);
 	}
 
 	public @NotNull SyntaxModel getResult(UUID uuid, int exampleLimit) {
@@ -79,6 +108,13 @@ public class SchemaAnalysisHandler {
 		analysisService.calculateResult(uuid);
 	}
 
+	public boolean isAggregationReady(UUID uuid) {
+		if (!analysisService.exists(uuid)) {
+			throw new ResponseStatusException(HttpStatus.BAD_REQUEST, "The requested id is not existing: " + uuid);
+		}
+		return analysisService.isAggregationReady(uuid);
+	}
+
 	public boolean hasResult(UUID uuid) {
 		return analysisService.hasResult(uuid);
 	}
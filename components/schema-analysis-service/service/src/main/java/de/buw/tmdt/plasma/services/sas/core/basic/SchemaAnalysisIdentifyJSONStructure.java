@@ -1,19 +1,25 @@
 package de.buw.tmdt.plasma.services.sas.core.basic;
 
+import com.fasterxml.jackson.core.JsonFactory;
+import com.fasterxml.jackson.core.JsonParser;
 import com.fasterxml.jackson.core.JsonProcessingException;
+import com.fasterxml.jackson.core.JsonToken;
 import com.fasterxml.jackson.databind.JsonMappingException;
-import com.fasterxml.jackson.databind.JsonNode;
-import com.fasterxml.jackson.databind.ObjectMapper;
-import com.fasterxml.jackson.databind.node.ArrayNode;
-import com.fasterxml.jackson.databind.node.ObjectNode;
 import de.buw.tmdt.plasma.services.sas.core.basic.exception.SchemaAnalysisException;
 import de.buw.tmdt.plasma.services.sas.core.model.syntaxmodel.Node;
+import de.buw.tmdt.plasma.services.sas.core.model.syntaxmodel.ObjectNode;
 import de.buw.tmdt.plasma.services.sas.core.model.syntaxmodel.PrimitiveNode;
 import de.buw.tmdt.plasma.services.sas.core.model.syntaxmodel.SetNode;
 
+import java.io.IOException;
 import java.io.Serializable;
 import java.util.*;
 
+/**
+ * Identifies the structure of a JSON document.
+ * The structure is built directly from the tokens of the document, so no tree of the document is created and
+ * primitive values that exceed the examples kept for an array are never converted.
+ */
 public class SchemaAnalysisIdentifyJSONStructure implements Serializable {
 
 	private static final int EXAMPLE_VALUE_LENGTH = 255;
@@ -24,63 +30,93 @@ public class SchemaAnalysisIdentifyJSONStructure implements Serializable {
 
 	private static final long serialVersionUID = 4213723179685942851L;
 
-	public Node execute(String translationOutput) throws JsonProcessingException, JsonMappingException, SchemaAnalysisException {
+	private static final JsonFactory JSON_FACTORY = new JsonFactory();
 
-		return parseJsonElement(new ObjectMapper().readTree(translationOutput));
+	public Node execute(String translationOutput) throws JsonProcessingException, JsonMappingException, SchemaAnalysisException {
+		try (JsonParser parser = JSON_FACTORY.createParser(translationOutput)) {
+			if (parser.nextToken() == null) {
+				throw new SchemaAnalysisException("Unknown JSON SubType: \"\".");
+			}
+			return parseJsonElement(parser);
+		} catch (JsonProcessingException e) {
+			throw e;
+		} catch (IOException e) {
+			throw new SchemaAnalysisException("Could not read JSON: " + e.getMessage());
+		}
 	}
 
-	private Node parseJsonElement(JsonNode jsonNode) throws SchemaAnalysisException {
-		if (jsonNode.isNull()) {
+	/**
+	 * Parses the value the parser points to, leaving the parser at its last token.
+	 */
+	private Node parseJsonElement(JsonParser parser) throws IOException, SchemaAnalysisException {
+		JsonToken token = parser.currentToken();
+		if (token == JsonToken.VALUE_NULL) {
 			return null;
-		} else if (jsonNode.isValueNode()) {
-			return parseJSONPrimitive(jsonNode);
-		} else if (jsonNode.isObject()) {
-			return parseJSONObject((ObjectNode) jsonNode);
-		} else if (jsonNode.isArray()) {
-			return parseJsonArray((ArrayNode) jsonNode);
+		} else if (token.isScalarValue()) {
+			return parseJSONPrimitive(parser);
+		} else if (token == JsonToken.START_OBJECT) {
+			return parseJSONObject(parser);
+		} else if (token == JsonToken.START_ARRAY) {
+			return parseJsonArray(parser);
 		}
-		throw new SchemaAnalysisException("Unknown JSON SubType: \"" + jsonNode + "\".");
+		throw new SchemaAnalysisException("Unknown JSON SubType: \"" + token + "\".");
 	}
 
 
 	// Works fine
-	private PrimitiveNode parseJSONPrimitive(JsonNode jsonNode) {
-		String exampleValue = jsonNode.asText();
+	private PrimitiveNode parseJSONPrimitive(JsonParser parser) throws IOException {
+		String exampleValue = getText(parser);
 		String truncatedExampleValue = exampleValue.substring(0, Math.min(exampleValue.length(), EXAMPLE_VALUE_LENGTH));
 		List<String> exampleValues = new ArrayList<>();
 		exampleValues.add(truncatedExampleValue);
 		return new PrimitiveNode(PrimitiveNode.DataType.UNKNOWN, exampleValues);
 	}
 
+	/**
+	 * The text of a scalar value, numbers are normalized like their representation in a tree (e.g. {@code 1e3} becomes {@code 1000.0}).
+	 */
+	private String getText(JsonParser parser) throws IOException {
+		switch (parser.currentToken()) {
+			case VALUE_NUMBER_INT:
+				return parser.getNumberValue().toString();
+			case VALUE_NUMBER_FLOAT:
+				return Double.toString(parser.getDoubleValue());
+			default:
+				return parser.getText();
+		}
+	}
+
 
 	// children.put is wrong -> check merging
-	private de.buw.tmdt.plasma.services.sas.core.model.syntaxmodel.ObjectNode parseJSONObject(ObjectNode object) throws SchemaAnalysisException {
+	private ObjectNode parseJSONObject(JsonParser parser) throws IOException, SchemaAnalysisException {
 
 		Map<String, Node> children = new HashMap<>();
-		de.buw.tmdt.plasma.services.sas.core.model.syntaxmodel.ObjectNode objectNode =
-				new de.buw.tmdt.plasma.services.sas.core.model.syntaxmodel.ObjectNode(children, null);
+		ObjectNode objectNode = new ObjectNode(children, null);
 
-		for (Iterator<Map.Entry<String, JsonNode>> it = object.fields(); it.hasNext();) {
-			Map.Entry<String, JsonNode> entry = it.next();
-			String nodeLabel = entry.getKey().substring(0, Math.min(entry.getKey().length(), NODE_LABEL_LENGTH));
-			objectNode.mergeChild(nodeLabel, parseJsonElement(entry.getValue()));
+		while (parser.nextToken() == JsonToken.FIELD_NAME) {
+			String key = parser.getCurrentName();
+			String nodeLabel = key.substring(0, Math.min(key.length(), NODE_LABEL_LENGTH));
+			parser.nextToken();
+			objectNode.mergeChild(nodeLabel, parseJsonElement(parser));
 
 		}
 		return objectNode;
 	}
 
 	// children.add is wrong --> check merging
-	private SetNode parseJsonArray(ArrayNode array) throws SchemaAnalysisException {
+	private SetNode parseJsonArray(JsonParser parser) throws IOException, SchemaAnalysisException {
 		int primitiveCounter = 0;
 		Set<Node> children = new HashSet<>();
 		SetNode setNode = new SetNode(children);
-		for (JsonNode node : array) {
-			if (!node.isValueNode()) {
-				setNode.mergeChild(parseJsonElement(node));
+		JsonToken token;
+		while ((token = parser.nextToken()) != JsonToken.END_ARRAY) {
+			if (token == JsonToken.START_OBJECT || token == JsonToken.START_ARRAY) {
+				setNode.mergeChild(parseJsonElement(parser));
 			} else if (primitiveCounter < NUMBER_OF_EXAMPLE_VALUES_PER_TYPE) {
 				primitiveCounter++;
-				setNode.mergeChild(parseJsonElement(node));
+				setNode.mergeChild(parseJsonElement(parser));
 			}
+			// further primitive values are passed over without reading their text
 		}
 		return setNode;
 	}
@@ -25,6 +25,9 @@ public class Analysis {
 	@OneToOne(cascade = CascadeType.ALL, orphanRemoval = true)
 	private Node result;
 
+	@Column(nullable = false)
+	private int coveredDataPoints;
+
 	protected Analysis() {
 
 	}
@@ -36,6 +39,19 @@ public class Analysis {
 
 	public void addSubAnalysis(Node node) {
 		subAnalyses.add(node);
+		coveredDataPoints++;
+	}
+
+	/**
+	 * Replaces all sub analyses by a single node which covers them, e.g. the aggregate of the previous sub analyses.
+	 *
+	 * @param node       the node replacing the sub analyses
+	 * @param dataPoints the number of data points the node covers
+	 */
+	public void replaceSubAnalyses(Node node, int dataPoints) {
+		subAnalyses.clear();
+		subAnalyses.add(node);
+		coveredDataPoints = dataPoints;
 	}
 
 	public void setResult(Node result) {
@@ -46,6 +62,13 @@ public class Analysis {
 		return Collections.unmodifiableList(subAnalyses);
 	}
 
+	/**
+	 * The number of data points covered by the sub analyses.
+	 */
+	public int getCoveredDataPoints() {
+		return coveredDataPoints;
+	}
+
 	public Node getResult() {
 		return result;
 	}
@@ -89,9 +89,9 @@ public class CollisionNode extends Node {
 	public CollisionNode copy(@NotNull Map<Identity<?>, Traversable> copyableLookup) {
 		return ObjectUtilities.checkedReturn(
 				copy(copyableLookup, () -> new CollisionNode(
-						this.primitiveNode.copy(copyableLookup),
-						this.objectNode.copy(copyableLookup),
-						this.setNode.copy(copyableLookup),
+						this.primitiveNode != null ? this.primitiveNode.copy(copyableLookup) : null,
+						this.objectNode != null ? this.objectNode.copy(copyableLookup) : null,
+						this.setNode != null ? this.setNode.copy(copyableLookup) : null,
 						this.getPosition(),
 						this.getIdentity()
 				)), CollisionNode.class
@@ -209,7 +209,7 @@ public class CollisionNode extends Node {
 		} else if (other instanceof SetNode) {
 			SetNode otherSetNode = (SetNode) other;
 			this.setNode = this.setNode == null ? otherSetNode : this.setNode.merge(otherSetNode);
-		} else {
+		} else if (other != null) {
 			throw new SchemaAnalysisException("Unknown type"); // needs to get correct exception
 		}
 		return this;
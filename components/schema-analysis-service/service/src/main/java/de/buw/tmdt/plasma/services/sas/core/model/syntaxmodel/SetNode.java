@@ -27,6 +27,11 @@ public class SetNode extends Node {
 	@OneToMany(cascade = CascadeType.ALL)
 	private List<Child> children;
 
+	/**
+	 * The children by the kind of their node, built on the first merge and dropped when the children are changed otherwise.
+	 */
+	private transient Map<Kind, Child> childIndex;
+
 	protected SetNode() {
 		this.children = null;
 	}
@@ -73,6 +78,7 @@ public class SetNode extends Node {
 		this.children.forEach(e -> e.setNode(e.getNode().replace(identity, replacement)));
 
 		this.children.replaceAll(child -> ObjectUtilities.checkedReturn(child.replace(identity, replacement), Child.class));
+		this.childIndex = null;
 		return this;
 	}
 
@@ -84,6 +90,7 @@ public class SetNode extends Node {
 	@Override
 	public boolean remove(@NotNull Traversable.Identity<?> identity, @NotNull Set<Traversable.Identity<?>> visited, @NotNull Deque<Traversable.Identity<?>> collateralRemoveQueue) {
 		visited.add(this.getIdentity());
+		this.childIndex = null;
 
 		return Traversable.removeFromChildren(identity, visited, collateralRemoveQueue, this.children, OWNED);
 	}
@@ -149,26 +156,59 @@ public class SetNode extends Node {
 		}
 	}
 
+	/**
+	 * Merges a node into the child of the same kind, or into the child holding a collision if there is one.
+	 * Without either, the node is merged into the first child, which then becomes a collision.
+	 * The target is looked up by kind, so the cost of a merge does not depend on the number of children.
+	 * A null node, as produced by a null element, is skipped.
+	 */
 	public void mergeChild(Node child) throws SchemaAnalysisException {
 
-		List<Child> newChildList = new ArrayList<>();
+		if (child == null) {
+			return;
+		}
 
-		if (this.children.isEmpty()) {
-			this.children.add(new Child(new WildcardSelector(), child));
+		Map<Kind, Child> index = getChildIndex();
+		Child target = index.get(Kind.COLLISION);
+		if (target == null) {
+			target = index.get(Kind.of(child));
+		}
+		if (target == null) {
+			target = this.children.stream().filter(c -> c.getNode() != null).findFirst().orElse(null);
+		}
+		if (target == null) {
+			Child added = new Child(new WildcardSelector(), child);
+			this.children.add(added);
+			index.put(Kind.of(child), added);
+			return;
 		}
-		else {
-			for (Child c : this.children) {
-				try {
 
-					Node newNode = c.getNode().merge(child);
+		Kind previousKind = Kind.of(target.getNode());
+		try {
+			target.setNode(target.getNode().merge(child));
+		} catch (Exception e) {
+			throw new SchemaAnalysisException("Could not merge nodes");
+		}
+		Kind kind = Kind.of(target.getNode());
+		if (kind != previousKind) {
+			if (previousKind != null) {
+				index.remove(previousKind, target);
+			}
+			index.putIfAbsent(kind, target);
+		}
+	}
 
-					newChildList.add(new Child(new WildcardSelector(), newNode));
-				} catch (Exception e) {
-					throw new SchemaAnalysisException("Could not merge nodes");
+	private Map<Kind, Child> getChildIndex() {
+		if (this.childIndex == null) {
+			this.childIndex = new EnumMap<>(Kind.class);
+			for (Child c : this.children) {
+				Kind kind = Kind.of(c.getNode());
+				if (kind != null) {
+					this.childIndex.putIfAbsent(kind, c);
 				}
 			}
-			this.children = newChildList;
 		}
+		return this.childIndex;
 	}
 
 	public SetNode merge(SetNode other) throws SchemaAnalysisException {
@@ -227,6 +267,27 @@ public class SetNode extends Node {
 		return true;
 	}
 
+	private enum Kind {
+		PRIMITIVE,
+		OBJECT,
+		SET,
+		COLLISION;
+
+		@Nullable
+		static Kind of(@Nullable Node node) {
+			if (node instanceof PrimitiveNode) {
+				return PRIMITIVE;
+			} else if (node instanceof ObjectNode) {
+				return OBJECT;
+			} else if (node instanceof SetNode) {
+				return SET;
+			} else if (node instanceof CollisionNode) {
+				return COLLISION;
+			}
+			return null;
+		}
+	}
+
 	@Entity
 	@DynamicUpdate
 	@Table(name = "set_children")
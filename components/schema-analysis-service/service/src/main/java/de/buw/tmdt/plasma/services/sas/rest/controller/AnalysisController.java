@@ -36,7 +36,7 @@ public class AnalysisController implements AnalysisApi {
 	@Override
 	public void addDataPoints(String id, List<SchemaAnalysisDataProvisionDTO> schemaAnalysisDataProvisionDTOs) {
 		UUID uuid = UUID.fromString(id);
-		schemaAnalysisDataProvisionDTOs.forEach(schemaAnalysisDataProvisionDTO -> schemaAnalysisHandler.addDataPoint(uuid, schemaAnalysisDataProvisionDTO));
+		schemaAnalysisHandler.addDataPoints(uuid, schemaAnalysisDataProvisionDTOs);
 	}
 
 	@Override
@@ -51,6 +51,12 @@ public class AnalysisController implements AnalysisApi {
 		return schemaAnalysisHandler.hasResult(uuid);
 	}
 
+	@Override
+	public boolean isAggregationReady(String id) {
+		UUID uuid = UUID.fromString(id);
+		return schemaAnalysisHandler.isAggregationReady(uuid);
+	}
+
 	@Override
 	public void finish(String id) {
 		UUID uuid = UUID.fromString(id);
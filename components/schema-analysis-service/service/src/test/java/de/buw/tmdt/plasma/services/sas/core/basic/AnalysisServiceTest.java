@@ -0,0 +1,136 @@
+package de.buw.tmdt.plasma.services.sas.core.basic;
+
+import de.buw.tmdt.plasma.services.sas.core.model.Analysis;
+import de.buw.tmdt.plasma.services.sas.core.model.syntaxmodel.Node;
+import de.buw.tmdt.plasma.services.sas.core.model.syntaxmodel.ObjectNode;
+import de.buw.tmdt.plasma.services.sas.core.model.syntaxmodel.PrimitiveNode;
+import de.buw.tmdt.plasma.services.sas.core.repository.AnalysisRepository;
+import org.junit.jupiter.api.BeforeEach;
+import org.junit.jupiter.api.Test;
+import org.mockito.ArgumentCaptor;
+import org.mockito.Mock;
+import org.mockito.MockitoAnnotations;
+import org.springframework.transaction.PlatformTransactionManager;
+
+import javax.persistence.EntityManager;
+import java.util.List;
+import java.util.Map;
+import java.util.Optional;
+import java.util.UUID;
+
+import static org.junit.jupiter.api.Assertions.*;
+import static org.mockito.Mockito.*;
+
+public class AnalysisServiceTest {
+
+	@Mock
+	private AnalysisRepository analysisRepository;
+	@Mock
+	private EntityManager entityManager;
+	@Mock
+	private PlatformTransactionManager transactionManager;
+
+	private AnalysisService testee;
+	private final UUID uuid = UUID.randomUUID();
+	private final Analysis analysis = new Analysis(uuid);
+
+	@BeforeEach
+	void setUp() {
+		MockitoAnnotations.initMocks(this);
+		when(analysisRepository.findById(uuid)).thenReturn(Optional.of(analysis));
+		testee = new AnalysisService(analysisRepository, entityManager, transactionManager);
+		testee.checkpointInterval = 2;
+		testee.createAnalysis(uuid);
+	}
+
+	@Test
+	void checkpointAggregate() throws Exception {
+		SchemaAnalysisIdentifyJSONStructure structure = new SchemaAnalysisIdentifyJSONStructure();
+		testee.addNodeToAnalysis(uuid, structure.execute("{\"a\": 1}"));
+		verify(analysisRepository, never()).findById(uuid);
+		assertTrue(analysis.getSubAnalyses().isEmpty());
+
+		testee.addNodeToAnalysis(uuid, structure.execute("{\"b\": \"x\"}"));
+		assertEquals(1, analysis.getSubAnalyses().size());
+		assertEquals(2, analysis.getCoveredDataPoints());
+		Node checkpoint = analysis.getSubAnalyses().get(0);
+		assertEquals(2, ((ObjectNode) checkpoint).getChildren().size());
+
+		testee.addNodeToAnalysis(uuid, structure.execute("{\"a\": 2, \"c\": true}"));
+		// the checkpoint is a copy which is not changed by later data points
+		assertEquals(2, ((ObjectNode) checkpoint).getChildren().size());
+	}
+
+	@Test
+	void checkpointBatch() throws Exception {
+		SchemaAnalysisIdentifyJSONStructure structure = new SchemaAnalysisIdentifyJSONStructure();
+		testee.addNodeToAnalysis(uuid, structure.execute("{\"a\": 1}"), 3);
+		assertEquals(1, analysis.getSubAnalyses().size());
+		testee.addNodeToAnalysis(uuid, structure.execute("{\"a\": 2}"));
+		verify(analysisRepository, times(2)).save(analysis);
+	}
+
+	@Test
+	void calculateResultFromAggregate() throws Exception {
+		SchemaAnalysisIdentifyJSONStructure structure = new SchemaAnalysisIdentifyJSONStructure();
+		testee.addNodeToAnalysis(uuid, structure.execute("{\"a\": 1}"));
+		testee.addNodeToAnalysis(uuid, structure.execute("{\"a\": 2}"));
+		testee.addNodeToAnalysis(uuid, structure.execute("{\"a\": 3, \"b\": \"x\"}"));
+		testee.calculateResult(uuid);
+
+		ArgumentCaptor<Analysis> saved = ArgumentCaptor.forClass(Analysis.class);
+		verify(analysisRepository).delete(analysis);
+		verify(analysisRepository, atLeastOnce()).save(saved.capture());
+		Analysis finalAnalysis = saved.getValue();
+		assertNotSame(analysis, finalAnalysis);
+		Map<String, Node> children = ((ObjectNode) finalAnalysis.getResult()).getChildren();
+		assertEquals(3, ((PrimitiveNode) children.get("a")).getExamples().size());
+		assertEquals(1, ((PrimitiveNode) children.get("b")).getExamples().size());
+	}
+
+	@Test
+	void sampleConvergedAnalysis() throws Exception {
+		SchemaAnalysisIdentifyJSONStructure structure = new SchemaAnalysisIdentifyJSONStructure();
+		UUID sampled = UUID.randomUUID();
+		testee.convergenceWindow = 1;
+		testee.sampleSize = 0;
+		when(analysisRepository.findById(sampled)).thenReturn(Optional.of(new Analysis(sampled)));
+		testee.createAnalysis(sampled);
+		List<String> dataPoints = List.of("{\"a\": \"x\"}", "{\"a\": \"y\"}");
+
+		assertEquals(dataPoints, testee.sampleDataPoints(sampled, dataPoints));
+		testee.addNodeToAnalysis(sampled, structure.execute(dataPoints.get(0)));
+		testee.addNodeToAnalysis(sampled, structure.execute(dataPoints.get(1)));
+		assertTrue(testee.isAggregationReady(sampled));
+		assertTrue(testee.sampleDataPoints(sampled, dataPoints).isEmpty());
+		assertFalse(testee.isAggregationReady(uuid));
+	}
+
+	@Test
+	void restoreAggregateFromCheckpoint() throws Exception {
+		SchemaAnalysisIdentifyJSONStructure structure = new SchemaAnalysisIdentifyJSONStructure();
+		UUID restored = UUID.randomUUID();
+		Analysis stored = new Analysis(restored);
+		stored.replaceSubAnalyses(structure.execute("{\"a\": 1}"), 1);
+		when(analysisRepository.findById(restored)).thenReturn(Optional.of(stored));
+
+		testee.addNodeToAnalysis(restored, structure.execute("{\"b\": 2}"));
+		verify(analysisRepository).save(stored);
+		assertEquals(2, ((ObjectNode) stored.getSubAnalyses().get(0)).getChildren().size());
+	}
+
+	@Test
+	void restoreCoveredDataPointsFromCheckpoint() throws Exception {
+		SchemaAnalysisIdentifyJSONStructure structure = new SchemaAnalysisIdentifyJSONStructure();
+		UUID restored = UUID.randomUUID();
+		Analysis stored = new Analysis(restored);
+		stored.replaceSubAnalyses(structure.execute("{\"a\": 1}"), 19);
+		when(analysisRepository.findById(restored)).thenReturn(Optional.of(stored));
+
+		assertFalse(testee.isAggregationReady(restored));
+		testee.addNodeToAnalysis(restored, structure.execute("{\"a\": 2}"));
+		assertTrue(testee.isAggregationReady(restored));
+		verify(analysisRepository).save(stored);
+		assertEquals(20, stored.getCoveredDataPoints());
+	}
+}
@@ -0,0 +1,73 @@
+package de.buw.tmdt.plasma.services.sas.core.basic;
+
+import org.junit.jupiter.api.BeforeEach;
+import org.junit.jupiter.api.Test;
+
+import static org.junit.jupiter.api.Assertions.*;
+
+public class SchemaAnalysisAggregateRecognizedSchemaTest {
+
+	private final SchemaAnalysisIdentifyJSONStructure structure = new SchemaAnalysisIdentifyJSONStructure();
+	private SchemaAnalysisAggregateRecognizedSchema testee;
+
+	@BeforeEach
+	void setUp() {
+		testee = new SchemaAnalysisAggregateRecognizedSchema(20);
+		testee.setConvergenceWindow(3);
+		testee.setSampleSize(2);
+	}
+
+	@Test
+	void readyAfterThresholdWithoutConvergence() throws Exception {
+		testee.setConvergenceWindow(0);
+		for (int i = 0; i < 20; i++) {
+			assertFalse(testee.isAggregationReady());
+			assertTrue(testee.sample());
+			testee.addNode(structure.execute("{\"a\": \"x\"}"));
+		}
+		assertTrue(testee.isAggregationReady());
+		assertFalse(testee.isConverged());
+		assertTrue(testee.sample());
+	}
+
+	@Test
+	void convergence() throws Exception {
+		testee.addNode(structure.execute("{\"a\": \"x\", \"b\": [\"y\"]}"));
+		testee.addNode(structure.execute("{\"a\": \"x\"}"));
+		testee.addNode(structure.execute("{\"b\": [\"z\"]}"));
+		assertFalse(testee.isAggregationReady());
+
+		// a new type at a known path
+		testee.addNode(structure.execute("{\"a\": {\"c\": \"x\"}}"));
+		testee.addNode(structure.execute("{\"a\": \"x\"}"), 2);
+		assertFalse(testee.isAggregationReady());
+		assertTrue(testee.sample());
+
+		testee.addNode(structure.execute("{\"a\": {\"c\": \"y\"}}"));
+		assertTrue(testee.isConverged());
+		assertTrue(testee.isAggregationReady());
+	}
+
+	@Test
+	void sampleAfterConvergence() throws Exception {
+		for (int i = 0; i < 3; i++) {
+			testee.addNode(structure.execute("{\"a\": \"x\"}"));
+		}
+		testee.addNode(structure.execute("{\"a\": \"x\"}"));
+		assertTrue(testee.isConverged());
+
+		assertTrue(testee.sample());
+		assertTrue(testee.sample());
+		int sampled = 0;
+		for (int i = 0; i < 100_000; i++) {
+			sampled += testee.sample() ? 1 : 0;
+		}
+		// about 2 * ln(50000), the bound is far off
+		assertTrue(sampled < 200, "sampled " + sampled);
+
+		// new paths end the convergence, so every data point is analyzed again
+		testee.addNode(structure.execute("{\"a\": \"x\", \"b\": 1}"));
+		assertFalse(testee.isConverged());
+		assertTrue(testee.sample());
+	}
+}
@@ -0,0 +1,85 @@
+package de.buw.tmdt.plasma.services.sas.core.basic;
+
+import de.buw.tmdt.plasma.services.sas.core.converter.CombinedModelConverter;
+import de.buw.tmdt.plasma.services.sas.core.model.syntaxmodel.Node;
+import de.buw.tmdt.plasma.services.sas.core.model.syntaxmodel.ObjectNode;
+import de.buw.tmdt.plasma.services.sas.core.model.syntaxmodel.PrimitiveNode;
+import de.buw.tmdt.plasma.services.sas.shared.dto.SchemaAnalysisDataProvisionDTO;
+import org.junit.jupiter.api.BeforeEach;
+import org.junit.jupiter.api.Test;
+import org.mockito.ArgumentCaptor;
+import org.mockito.Mock;
+import org.mockito.MockitoAnnotations;
+import org.springframework.web.server.ResponseStatusException;
+
+import java.util.ArrayList;
+import java.util.List;
+import java.util.Map;
+import java.util.UUID;
+
+import static org.junit.jupiter.api.Assertions.assertEquals;
+import static org.junit.jupiter.api.Assertions.assertThrows;
+import static org.mockito.ArgumentMatchers.any;
+import static org.mockito.ArgumentMatchers.anyInt;
+import static org.mockito.ArgumentMatchers.anyList;
+import static org.mockito.ArgumentMatchers.eq;
+import static org.mockito.Mockito.*;
+
+public class SchemaAnalysisHandlerTest {
+
+	@Mock
+	private AnalysisService analysisService;
+	@Mock
+	private CombinedModelConverter combinedModelConverter;
+
+	private SchemaAnalysisHandler testee;
+	private final UUID uuid = UUID.randomUUID();
+
+	@BeforeEach
+	void setUp() {
+		MockitoAnnotations.initMocks(this);
+		when(analysisService.exists(uuid)).thenReturn(true);
+		when(analysisService.sampleDataPoints(eq(uuid), anyList())).thenAnswer(invocation -> invocation.getArgument(1));
+		testee = new SchemaAnalysisHandler(analysisService, combinedModelConverter);
+	}
+
+	@Test
+	void addDataPointsMergedAtOnce() {
+		List<SchemaAnalysisDataProvisionDTO> dataPoints = new ArrayList<>();
+		for (int i = 0; i < 100; i++) {
+			dataPoints.add(new SchemaAnalysisDataProvisionDTO("{\"a\": " + i + (i % 10 == 0 ? ", \"b\": \"x\"}" : "}")));
+		}
+		testee.addDataPoints(uuid, dataPoints);
+
+		ArgumentCaptor<Node> merged = ArgumentCaptor.forClass(Node.class);
+		verify(analysisService).addNodeToAnalysis(eq(uuid), merged.capture(), eq(100));
+		verify(analysisService, never()).addNodeToAnalysis(any(), any());
+		Map<String, Node> children = ((ObjectNode) merged.getValue()).getChildren();
+		assertEquals(100, ((PrimitiveNode) children.get("a")).getExamples().size());
+		assertEquals(10, ((PrimitiveNode) children.get("b")).getExamples().size());
+	}
+
+	@Test
+	void addSampledDataPoints() {
+		List<SchemaAnalysisDataProvisionDTO> dataPoints = new ArrayList<>();
+		for (int i = 0; i < 10; i++) {
+			dataPoints.add(new SchemaAnalysisDataProvisionDTO("{\"a\": " + i + "}"));
+		}
+		when(analysisService.sampleDataPoints(uuid, dataPoints)).thenReturn(dataPoints.subList(0, 2));
+		testee.addDataPoints(uuid, dataPoints);
+		verify(analysisService).addNodeToAnalysis(eq(uuid), any(), eq(2));
+
+		SchemaAnalysisDataProvisionDTO skipped = new SchemaAnalysisDataProvisionDTO("{\"a\"");
+		when(analysisService.sampleDataPoints(uuid, List.of(skipped))).thenReturn(List.of());
+		// a data point which is not sampled is not even parsed
+		testee.addDataPoint(uuid, skipped);
+		verify(analysisService, never()).addNodeToAnalysis(any(), any());
+	}
+
+	@Test
+	void addInvalidDataPoints() {
+		List<SchemaAnalysisDataProvisionDTO> dataPoints = List.of(new SchemaAnalysisDataProvisionDTO("{\"a\": 1}"), new SchemaAnalysisDataProvisionDTO("{\"a\""));
+		assertThrows(ResponseStatusException.class, () -> testee.addDataPoints(uuid, dataPoints));
+		verify(analysisService, never()).addNodeToAnalysis(any(), any(), anyInt());
+	}
+}
@@ -0,0 +1,58 @@
+package de.buw.tmdt.plasma.services.sas.core.basic;
+
+import com.fasterxml.jackson.core.JsonProcessingException;
+import de.buw.tmdt.plasma.services.sas.core.basic.exception.SchemaAnalysisException;
+import de.buw.tmdt.plasma.services.sas.core.model.syntaxmodel.CollisionNode;
+import de.buw.tmdt.plasma.services.sas.core.model.syntaxmodel.Node;
+import de.buw.tmdt.plasma.services.sas.core.model.syntaxmodel.ObjectNode;
+import de.buw.tmdt.plasma.services.sas.core.model.syntaxmodel.PrimitiveNode;
+import de.buw.tmdt.plasma.services.sas.core.model.syntaxmodel.SetNode;
+import org.junit.jupiter.api.BeforeEach;
+import org.junit.jupiter.api.Test;
+
+import java.util.List;
+import java.util.Map;
+import java.util.StringJoiner;
+
+import static org.junit.jupiter.api.Assertions.*;
+
+public class SchemaAnalysisIdentifyJSONStructureTest {
+
+	private SchemaAnalysisIdentifyJSONStructure testee;
+
+	@BeforeEach
+	void setUp() {
+		testee = new SchemaAnalysisIdentifyJSONStructure();
+	}
+
+	@Test
+	void primitiveExamples() throws Exception {
+		Map<String, Node> children = ((ObjectNode) testee.execute("{\"i\": 12, \"f\": 1e3, \"b\": true, \"s\": \"x\", \"n\": null}")).getChildren();
+		assertEquals(List.of("12"), ((PrimitiveNode) children.get("i")).getExamples());
+		assertEquals(List.of("1000.0"), ((PrimitiveNode) children.get("f")).getExamples());
+		assertEquals(List.of("true"), ((PrimitiveNode) children.get("b")).getExamples());
+		assertEquals(List.of("x"), ((PrimitiveNode) children.get("s")).getExamples());
+		assertNull(children.get("n"));
+	}
+
+	@Test
+	void largePrimitiveArray() throws Exception {
+		StringJoiner array = new StringJoiner(",", "[", "]");
+		for (int i = 0; i < 100_000; i++) {
+			array.add(Integer.toString(i));
+		}
+		array.add("{\"a\": 1}");
+		SetNode setNode = (SetNode) testee.execute(array.toString());
+
+		assertEquals(1, setNode.getChildren().size());
+		CollisionNode collision = (CollisionNode) setNode.getChildren().get(0).getNode();
+		assertEquals(List.of("0", "1", "2", "3", "4", "5"), collision.getPrimitiveNode().getExamples());
+		assertTrue(collision.getObjectNode().getChildren().containsKey("a"));
+	}
+
+	@Test
+	void invalidDocument() {
+		assertThrows(JsonProcessingException.class, () -> testee.execute("{\"a\": [1, 2"));
+		assertThrows(SchemaAnalysisException.class, () -> testee.execute(""));
+	}
+}
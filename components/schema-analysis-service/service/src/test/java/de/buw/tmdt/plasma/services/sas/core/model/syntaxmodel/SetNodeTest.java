@@ -0,0 +1,74 @@
+package de.buw.tmdt.plasma.services.sas.core.model.syntaxmodel;
+
+import de.buw.tmdt.plasma.services.sas.core.basic.SchemaAnalysisIdentifyJSONStructure;
+import org.junit.jupiter.api.Test;
+
+import java.util.*;
+
+import static org.junit.jupiter.api.Assertions.*;
+
+public class SetNodeTest {
+
+	@Test
+	void mergeChildOfSameKind() throws Exception {
+		SetNode testee = new SetNode(new HashSet<>());
+		testee.mergeChild(primitive("1"));
+		testee.mergeChild(primitive("2"));
+		testee.mergeChild(null);
+
+		assertEquals(1, testee.getChildren().size());
+		assertEquals(List.of("1", "2"), ((PrimitiveNode) testee.getChildren().get(0).getNode()).getExamples());
+	}
+
+	@Test
+	void mergeChildIntoCollision() throws Exception {
+		SetNode testee = new SetNode(new HashSet<>());
+		testee.mergeChild(primitive("1"));
+		testee.mergeChild(object("a"));
+		testee.mergeChild(object("b"));
+		testee.mergeChild(primitive("2"));
+
+		assertEquals(1, testee.getChildren().size());
+		CollisionNode collision = (CollisionNode) testee.getChildren().get(0).getNode();
+		assertEquals(List.of("1", "2"), collision.getPrimitiveNode().getExamples());
+		assertEquals(Set.of("a", "b"), collision.getObjectNode().getChildren().keySet());
+		assertNull(collision.getSetNode());
+	}
+
+	@Test
+	void mergeChildByKind() throws Exception {
+		PrimitiveNode primitive = primitive("1");
+		ObjectNode object = object("a");
+		SetNode testee = new SetNode(new LinkedHashSet<>(List.of(primitive, object)));
+		testee.mergeChild(object("b"));
+		testee.mergeChild(primitive("2"));
+
+		assertEquals(2, testee.getChildren().size());
+		assertEquals(List.of("1", "2"), primitive.getExamples());
+		assertEquals(Set.of("a", "b"), object.getChildren().keySet());
+	}
+
+	@Test
+	void mergeChildAfterNullElement() throws Exception {
+		SchemaAnalysisIdentifyJSONStructure identifier = new SchemaAnalysisIdentifyJSONStructure();
+
+		SetNode primitives = (SetNode) identifier.execute("[null, 1]");
+		assertEquals(1, primitives.getChildren().size());
+		assertEquals(List.of("1"), ((PrimitiveNode) primitives.getChildren().get(0).getNode()).getExamples());
+
+		ObjectNode root = (ObjectNode) identifier.execute("{\"x\":[null,{\"a\":1}]}");
+		SetNode objects = (SetNode) root.getChildren().get("x");
+		assertEquals(1, objects.getChildren().size());
+		assertEquals(Set.of("a"), ((ObjectNode) objects.getChildren().get(0).getNode()).getChildren().keySet());
+	}
+
+	private static PrimitiveNode primitive(String example) {
+		return new PrimitiveNode(PrimitiveNode.DataType.UNKNOWN, List.of(example));
+	}
+
+	private static ObjectNode object(String key) {
+		Map<String, Node> children = new HashMap<>();
+		children.put(key, primitive(key));
+		return new ObjectNode(children, null);
+	}
+}
@@ -12,7 +12,7 @@ import java.util.List;
  * Provides endpoints for schema analysis operations.
  * Expected usage pattern:
  * - initAnalysis
- * - addDataPoint (multiple times)
+ * - addDataPoint (multiple times, optionally until aggregated returns true)
  * - finish
  * - ready (until it returns true)
  * - getResult
@@ -37,6 +37,13 @@ public interface AnalysisApi {
 	@GetMapping(path = "/{id}/ready", produces = MediaType.APPLICATION_JSON_VALUE)
 	boolean isReady(@PathVariable("id") String id);
 
+	/**
+	 * Whether enough data points have been added to the analysis: if the service detects convergence, once the last data points
+	 * did not show new paths or types, otherwise after a fixed number of data points.
+	 */
+	@GetMapping(path = "/{id}/aggregated", produces = MediaType.APPLICATION_JSON_VALUE)
+	boolean isAggregationReady(@PathVariable("id") String id);
+
 	@PostMapping(path = "/{id}/finish", produces = MediaType.APPLICATION_JSON_VALUE)
 	void finish(@PathVariable("id") String id);
 